@@ -0,0 +1,30 @@
+package com.example.workflow.advice;
+
+import com.example.workflow.exception.ConcurrentUpdateException;
+import org.camunda.bpm.engine.OptimisticLockingException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Date;
+
+/**
+ * Answers concurrent modifications of engine data with 409 Conflict instead of 500, so clients know the
+ * request can be sent again. ConcurrentUpdateException is thrown once ConflictRetryService gave up;
+ * OptimisticLockingException comes from operations that are not retried.
+ */
+@RestControllerAdvice
+public class ConflictControllerAdvice {
+
+    @ExceptionHandler(value = {ConcurrentUpdateException.class, OptimisticLockingException.class})
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorMessage handleConflict(RuntimeException ex, WebRequest request) {
+        return new ErrorMessage(
+                HttpStatus.CONFLICT.value(),
+                new Date(),
+                ex.getMessage(),
+                request.getDescription(false));
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.workflow.advice;
+
+import com.example.workflow.exception.TaskNotFoundException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Date;
+
+/**
+ * Answers requests for tasks that do not exist, or no longer exist, with 404 Not Found instead of 500.
+ */
+@RestControllerAdvice
+public class NotFoundControllerAdvice {
+
+    @ExceptionHandler(value = TaskNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public ErrorMessage handleNotFound(TaskNotFoundException ex, WebRequest request) {
+        return new ErrorMessage(
+                HttpStatus.NOT_FOUND.value(),
+                new Date(),
+                ex.getMessage(),
+                request.getDescription(false));
+    }
+}
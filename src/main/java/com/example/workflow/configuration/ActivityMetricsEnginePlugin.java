@@ -0,0 +1,58 @@
+package com.example.workflow.configuration;
+
+import com.example.workflow.listener.ActivityMetricsParseListener;
+import org.camunda.bpm.engine.impl.bpmn.parser.BpmnParseListener;
+import org.camunda.bpm.engine.impl.cfg.AbstractProcessEnginePlugin;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.delegate.DelegateInvocation;
+import org.camunda.bpm.engine.impl.interceptor.DelegateInterceptor;
+import org.camunda.bpm.engine.impl.persistence.entity.ExecutionEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registers the activity metrics parse listener after the default parse listeners, and wraps the
+ * engine's delegate interceptor so that errors thrown by delegates are counted per activity
+ * before the engine turns them into error events or rolls back.
+ */
+@Component
+public class ActivityMetricsEnginePlugin extends AbstractProcessEnginePlugin {
+
+    private final ActivityMetricsParseListener activityMetricsParseListener;
+
+    public ActivityMetricsEnginePlugin(ActivityMetricsParseListener activityMetricsParseListener) {
+        this.activityMetricsParseListener = activityMetricsParseListener;
+    }
+
+    @Override
+    public void preInit(ProcessEngineConfigurationImpl processEngineConfiguration) {
+        List<BpmnParseListener> parseListeners = processEngineConfiguration.getCustomPostBPMNParseListeners();
+        if (parseListeners == null) {
+            parseListeners = new ArrayList<>();
+        } else {
+            parseListeners = new ArrayList<>(parseListeners);
+        }
+        parseListeners.add(activityMetricsParseListener);
+        processEngineConfiguration.setCustomPostBPMNParseListeners(parseListeners);
+    }
+
+    @Override
+    public void postInit(ProcessEngineConfigurationImpl processEngineConfiguration) {
+        // The default interceptor only exists once the configuration is initialized
+        DelegateInterceptor delegateInterceptor = processEngineConfiguration.getDelegateInterceptor();
+        processEngineConfiguration.setDelegateInterceptor(invocation -> invoke(delegateInterceptor, invocation));
+    }
+
+    private static void invoke(DelegateInterceptor delegateInterceptor, DelegateInvocation invocation) throws Exception {
+        try {
+            delegateInterceptor.handleInvocation(invocation);
+        } catch (Exception e) {
+            if (invocation.getContextExecution() instanceof ExecutionEntity) {
+                ActivityMetricsParseListener.recordError((ExecutionEntity) invocation.getContextExecution(), e);
+            }
+            throw e;
+        }
+    }
+}
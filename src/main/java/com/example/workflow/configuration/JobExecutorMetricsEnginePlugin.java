@@ -0,0 +1,96 @@
+package com.example.workflow.configuration;
+
+import com.example.workflow.service.JobExecutorService;
+import org.camunda.bpm.engine.impl.cfg.AbstractProcessEnginePlugin;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.cmd.ExecuteJobsCmd;
+import org.camunda.bpm.engine.impl.context.Context;
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandInterceptor;
+import org.camunda.bpm.engine.impl.metrics.MetricsRegistry;
+import org.camunda.bpm.engine.impl.persistence.entity.JobEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Installs an engine metrics registry that also hands every occurrence to JobExecutorService.
+ * The engine registry keeps its counts only until they are reported to the database, so the job
+ * acquisition and execution counts are forwarded to Micrometer as they are recorded. Requires the
+ * engine metrics to be enabled, which is the default.
+ * Also times every job run by the job executor, from its due date and from its start, by priority.
+ */
+@Component
+public class JobExecutorMetricsEnginePlugin extends AbstractProcessEnginePlugin {
+
+    private final JobExecutorService jobExecutorService;
+
+    public JobExecutorMetricsEnginePlugin(JobExecutorService jobExecutorService) {
+        this.jobExecutorService = jobExecutorService;
+    }
+
+    @Override
+    public void preInit(ProcessEngineConfigurationImpl processEngineConfiguration) {
+        // The engine registers its default meters on the registry it finds during initialization
+        if (processEngineConfiguration.getMetricsRegistry() == null) {
+            processEngineConfiguration.setMetricsRegistry(new ForwardingMetricsRegistry(jobExecutorService));
+        }
+        // Post interceptors run inside the command context, where the executed job is known
+        List<CommandInterceptor> interceptors = processEngineConfiguration.getCustomPostCommandInterceptorsTxRequired();
+        if (interceptors == null) {
+            interceptors = new ArrayList<>();
+        } else {
+            interceptors = new ArrayList<>(interceptors);
+        }
+        interceptors.add(new JobTimingInterceptor(jobExecutorService));
+        processEngineConfiguration.setCustomPostCommandInterceptorsTxRequired(interceptors);
+    }
+
+    private static final class JobTimingInterceptor extends CommandInterceptor {
+
+        private final JobExecutorService jobExecutorService;
+
+        private JobTimingInterceptor(JobExecutorService jobExecutorService) {
+            this.jobExecutorService = jobExecutorService;
+        }
+
+        @Override
+        public <T> T execute(Command<T> command) {
+            if (!(command instanceof ExecuteJobsCmd)) {
+                return next.execute(command);
+            }
+            long startedAt = System.currentTimeMillis();
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                T result = next.execute(command);
+                failed = false;
+                return result;
+            } finally {
+                // Only set when the job executor runs the job, not for ManagementService.executeJob
+                boolean runByJobExecutor = Context.getJobExecutorContext() != null;
+                // The job executor context forgets the job when the command returns, the command context keeps it until it closes
+                JobEntity job = runByJobExecutor ? Context.getCommandContext().getCurrentJob() : null;
+                if (job != null) {
+                    jobExecutorService.recordJob(job.getPriority(), job.getDuedate(), startedAt, System.nanoTime() - start, failed);
+                }
+            }
+        }
+    }
+
+    private static final class ForwardingMetricsRegistry extends MetricsRegistry {
+
+        private final JobExecutorService jobExecutorService;
+
+        private ForwardingMetricsRegistry(JobExecutorService jobExecutorService) {
+            this.jobExecutorService = jobExecutorService;
+        }
+
+        @Override
+        public void markOccurrence(String name, long times) {
+            super.markOccurrence(name, times);
+            jobExecutorService.record(name, times);
+        }
+    }
+}
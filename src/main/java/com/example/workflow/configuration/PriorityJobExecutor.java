@@ -0,0 +1,90 @@
+package com.example.workflow.configuration;
+
+import org.camunda.bpm.engine.impl.ProcessEngineImpl;
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.persistence.entity.JobEntity;
+import org.camunda.bpm.engine.spring.components.jobexecutor.SpringJobExecutor;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Job executor that keeps a few threads for high priority jobs. Jobs are acquired highest priority first;
+ * when a reserved thread is idle, the priority of an acquired batch is looked up and a batch at or above the
+ * threshold runs on the reserved threads instead of queueing behind the jobs already waiting for the shared pool.
+ * Everything else, and high priority batches while every reserved thread is busy, go to the shared pool.
+ */
+public class PriorityJobExecutor extends SpringJobExecutor {
+
+    private final long highPriorityThreshold;
+    private final int reservedThreads;
+
+    private volatile ThreadPoolExecutor reservedPool;
+
+    public PriorityJobExecutor(long highPriorityThreshold, int reservedThreads) {
+        this.highPriorityThreshold = highPriorityThreshold;
+        this.reservedThreads = reservedThreads;
+    }
+
+    @Override
+    protected void startExecutingJobs() {
+        if (reservedThreads > 0) {
+            AtomicInteger threadCount = new AtomicInteger();
+            // No queue: a batch either gets an idle reserved thread right away or goes to the shared pool
+            reservedPool = new ThreadPoolExecutor(reservedThreads, reservedThreads, 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), runnable -> new Thread(runnable, "job-executor-reserved-" + threadCount.incrementAndGet()));
+        }
+        super.startExecutingJobs();
+    }
+
+    @Override
+    protected void stopExecutingJobs() {
+        super.stopExecutingJobs();
+        if (reservedPool != null) {
+            reservedPool.shutdown();
+            reservedPool = null;
+        }
+    }
+
+    @Override
+    public void executeJobs(List<String> jobIds, ProcessEngineImpl processEngine) {
+        ThreadPoolExecutor pool = reservedPool;
+        if (pool != null && pool.getActiveCount() < reservedThreads
+                && highestPriority(jobIds, processEngine) >= highPriorityThreshold) {
+            try {
+                pool.execute(getExecuteJobsRunnable(jobIds, processEngine));
+                return;
+            } catch (RejectedExecutionException e) {
+                // The reserved threads got busy in the meantime
+            }
+        }
+        super.executeJobs(jobIds, processEngine);
+    }
+
+    public int getReservedThreads() {
+        return reservedThreads;
+    }
+
+    public int getReservedActiveThreads() {
+        ThreadPoolExecutor pool = reservedPool;
+        return pool != null ? pool.getActiveCount() : 0;
+    }
+
+    private static long highestPriority(List<String> jobIds, ProcessEngineImpl processEngine) {
+        Command<Long> command = commandContext -> {
+            long highest = Long.MIN_VALUE;
+            for (String jobId : jobIds) {
+                JobEntity job = commandContext.getJobManager().findJobById(jobId);
+                if (job != null) {
+                    highest = Math.max(highest, job.getPriority());
+                }
+            }
+            return highest;
+        };
+        return processEngine.getProcessEngineConfiguration().getCommandExecutorTxRequired().execute(command);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.workflow.configuration;
+
+import org.camunda.bpm.engine.impl.jobexecutor.CallerRunsRejectedJobsHandler;
+import org.camunda.bpm.engine.impl.jobexecutor.JobExecutor;
+import org.camunda.bpm.spring.boot.starter.property.CamundaBpmProperties;
+import org.camunda.bpm.spring.boot.starter.property.JobExecutionProperty;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+
+import java.util.Optional;
+
+/**
+ * Replaces the job executor of the Camunda starter with PriorityJobExecutor, configured from the same
+ * camunda.bpm.job-execution properties and running on the same camundaTaskExecutor thread pool.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "camunda.bpm.job-execution", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class PriorityJobExecutorConfiguration {
+
+    @Bean
+    public JobExecutor jobExecutor(@Qualifier("camundaTaskExecutor") TaskExecutor taskExecutor,
+                                   CamundaBpmProperties properties,
+                                   @Value("${flowvioo.app.jobHighPriorityThreshold:100}") long highPriorityThreshold,
+                                   @Value("${flowvioo.app.jobReservedThreads:2}") int reservedThreads) {
+        PriorityJobExecutor jobExecutor = new PriorityJobExecutor(highPriorityThreshold, reservedThreads);
+        jobExecutor.setTaskExecutor(taskExecutor);
+        jobExecutor.setRejectedJobsHandler(new CallerRunsRejectedJobsHandler());
+
+        JobExecutionProperty jobExecution = properties.getJobExecution();
+        Optional.ofNullable(jobExecution.getLockTimeInMillis()).ifPresent(jobExecutor::setLockTimeInMillis);
+        Optional.ofNullable(jobExecution.getMaxJobsPerAcquisition()).ifPresent(jobExecutor::setMaxJobsPerAcquisition);
+        Optional.ofNullable(jobExecution.getWaitTimeInMillis()).ifPresent(jobExecutor::setWaitTimeInMillis);
+        Optional.ofNullable(jobExecution.getMaxWait()).ifPresent(jobExecutor::setMaxWait);
+        Optional.ofNullable(jobExecution.getBackoffTimeInMillis()).ifPresent(jobExecutor::setBackoffTimeInMillis);
+        Optional.ofNullable(jobExecution.getMaxBackoff()).ifPresent(jobExecutor::setMaxBackoff);
+        Optional.ofNullable(jobExecution.getBackoffDecreaseThreshold()).ifPresent(jobExecutor::setBackoffDecreaseThreshold);
+        Optional.ofNullable(jobExecution.getWaitIncreaseFactor()).ifPresent(jobExecutor::setWaitIncreaseFactor);
+        return jobExecutor;
+    }
+}
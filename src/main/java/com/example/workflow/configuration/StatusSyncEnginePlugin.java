@@ -0,0 +1,36 @@
+package com.example.workflow.configuration;
+
+import com.example.workflow.listener.ProcessStatusHistoryEventHandler;
+import org.camunda.bpm.engine.impl.cfg.AbstractProcessEnginePlugin;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.history.handler.HistoryEventHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registers the process status history event handler next to the default database handler,
+ * so the engine keeps writing its own history.
+ */
+@Component
+public class StatusSyncEnginePlugin extends AbstractProcessEnginePlugin {
+
+    private final ProcessStatusHistoryEventHandler processStatusHistoryEventHandler;
+
+    public StatusSyncEnginePlugin(ProcessStatusHistoryEventHandler processStatusHistoryEventHandler) {
+        this.processStatusHistoryEventHandler = processStatusHistoryEventHandler;
+    }
+
+    @Override
+    public void preInit(ProcessEngineConfigurationImpl processEngineConfiguration) {
+        List<HistoryEventHandler> handlers = processEngineConfiguration.getCustomHistoryEventHandlers();
+        if (handlers == null) {
+            handlers = new ArrayList<>();
+        } else {
+            handlers = new ArrayList<>(handlers);
+        }
+        handlers.add(processStatusHistoryEventHandler);
+        processEngineConfiguration.setCustomHistoryEventHandlers(handlers);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.workflow.configuration;
+
+import com.example.workflow.listener.WorkflowDefaultsParseListener;
+import org.camunda.bpm.engine.impl.bpmn.parser.BpmnParseListener;
+import org.camunda.bpm.engine.impl.cfg.AbstractProcessEnginePlugin;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registers the workflow defaults parse listener after the default parse listeners,
+ * so that it sees the conditions and listeners already declared in the XML.
+ */
+@Component
+public class WorkflowDefaultsEnginePlugin extends AbstractProcessEnginePlugin {
+
+    private final WorkflowDefaultsParseListener workflowDefaultsParseListener;
+
+    public WorkflowDefaultsEnginePlugin(WorkflowDefaultsParseListener workflowDefaultsParseListener) {
+        this.workflowDefaultsParseListener = workflowDefaultsParseListener;
+    }
+
+    @Override
+    public void preInit(ProcessEngineConfigurationImpl processEngineConfiguration) {
+        List<BpmnParseListener> parseListeners = processEngineConfiguration.getCustomPostBPMNParseListeners();
+        if (parseListeners == null) {
+            parseListeners = new ArrayList<>();
+        } else {
+            parseListeners = new ArrayList<>(parseListeners);
+        }
+        parseListeners.add(workflowDefaultsParseListener);
+        processEngineConfiguration.setCustomPostBPMNParseListeners(parseListeners);
+    }
+}
@@ -1,9 +1,34 @@
 package com.example.workflow.controller;
 
+import com.example.workflow.dto.ActivityHeatmapDto;
+import com.example.workflow.dto.BatchStatusDto;
+import com.example.workflow.dto.BulkOperationDto;
+import com.example.workflow.dto.ConflictStatsDto;
 import com.example.workflow.dto.HistoricActivityInstanceDto;
+import com.example.workflow.dto.HistoryCleanupReportDto;
+import com.example.workflow.dto.JobExecutorStatusDto;
 import com.example.workflow.dto.ProcessDefinitionDto;
+import com.example.workflow.dto.ProcessStatisticsDto;
+import com.example.workflow.dto.ProcessStartTicketDto;
+import com.example.workflow.dto.PurgeReportDto;
+import com.example.workflow.dto.WorkflowProcessInstanceDto;
+import com.example.workflow.dto.WarmupReportDto;
 import com.example.workflow.entity.WorkflowProcessInstance;
+import com.example.workflow.payload.request.JobExecutorPoolRequest;
+import com.example.workflow.payload.request.ProcessInstanceFilterRequest;
+import com.example.workflow.payload.request.ProcessStartRequest;
+import com.example.workflow.payload.response.BatchStartResponse;
+import com.example.workflow.payload.response.MessageResponse;
+import com.example.workflow.service.ActivityHeatmapService;
+import com.example.workflow.service.DeploymentCacheWarmupService;
+import com.example.workflow.service.HistoryCleanupService;
+import com.example.workflow.service.JobExecutorService;
+import com.example.workflow.service.ProcessBatchStartService;
+import com.example.workflow.service.ProcessBulkOperationService;
+import com.example.workflow.service.ProcessPurgeService;
 import com.example.workflow.service.ProcessService;
+import com.example.workflow.service.ProcessStatisticsService;
+import com.example.workflow.service.ProcessStartTicketService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import javassist.NotFoundException;
@@ -11,10 +36,13 @@ import org.camunda.bpm.engine.history.HistoricActivityInstance;
 import org.camunda.bpm.engine.history.HistoricProcessInstance;
 import org.camunda.bpm.engine.runtime.ProcessInstance;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import javax.validation.Valid;
 import java.util.List;
 
 @RestController
@@ -26,6 +54,33 @@ public class ProcessController {
     @Autowired
     private ProcessService processService;
 
+    @Autowired
+    private DeploymentCacheWarmupService deploymentCacheWarmupService;
+
+    @Autowired
+    private ProcessBatchStartService processBatchStartService;
+
+    @Autowired
+    private ProcessStartTicketService processStartTicketService;
+
+    @Autowired
+    private ProcessBulkOperationService processBulkOperationService;
+
+    @Autowired
+    private ProcessPurgeService processPurgeService;
+
+    @Autowired
+    private HistoryCleanupService historyCleanupService;
+
+    @Autowired
+    private JobExecutorService jobExecutorService;
+
+    @Autowired
+    private ProcessStatisticsService processStatisticsService;
+
+    @Autowired
+    private ActivityHeatmapService activityHeatmapService;
+
     @ApiOperation(value = "Get all deployed process definitions")
     @GetMapping("/get/process-definitions")
     public List<ProcessDefinitionDto> getProcessDefinitions() {
@@ -46,6 +101,36 @@ public class ProcessController {
         return new ResponseEntity<>(processInstanceId, HttpStatus.OK);
     }
 
+    @ApiOperation(value = "Start a batch of processes by their deploymentId")
+    @PostMapping("/start/batch")
+    public ResponseEntity<?> startProcesses(@Valid @RequestBody List<ProcessStartRequest> requests) {
+        try {
+            BatchStartResponse response = processBatchStartService.startProcesses(requests);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @ApiOperation(value = "Request a process start by its deploymentId and return a ticket without waiting for the start")
+    @PostMapping("/start/async")
+    public ResponseEntity<?> startProcessAsync(@Valid @RequestBody ProcessStartRequest request) {
+        try {
+            ProcessStartTicketDto ticket = processStartTicketService.submit(request);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ticket);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @ApiOperation(value = "Get the status of an asynchronous process start ticket")
+    @GetMapping("/start/tickets/{ticketId}")
+    public ResponseEntity<ProcessStartTicketDto> getStartTicket(@PathVariable String ticketId) {
+        return processStartTicketService.getTicket(ticketId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     @ApiOperation(value = "Suspend process instances by process instance ID")
     @PostMapping("/suspend/process-instances/{processInstanceId}")
     public ResponseEntity<String> suspendProcessInstance(@PathVariable String processInstanceId) {
@@ -53,6 +138,48 @@ public class ProcessController {
         return ResponseEntity.ok("Process instances suspended successfully.");
     }
 
+    @ApiOperation(value = "Suspend all running process instances matching a filter")
+    @PostMapping("/bulk/suspend")
+    public ResponseEntity<?> suspendProcessInstances(@RequestBody ProcessInstanceFilterRequest filter) {
+        try {
+            BulkOperationDto operation = processBulkOperationService.suspend(filter);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(operation);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @ApiOperation(value = "Resume all running process instances matching a filter")
+    @PostMapping("/bulk/resume")
+    public ResponseEntity<?> resumeProcessInstances(@RequestBody ProcessInstanceFilterRequest filter) {
+        try {
+            BulkOperationDto operation = processBulkOperationService.resume(filter);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(operation);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @ApiOperation(value = "Delete all running process instances matching a filter")
+    @PostMapping("/bulk/delete")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<?> deleteProcessInstances(@RequestBody ProcessInstanceFilterRequest filter) {
+        try {
+            BulkOperationDto operation = processBulkOperationService.delete(filter);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(operation);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @ApiOperation(value = "Get the progress of a bulk operation by its batch ID")
+    @GetMapping("/bulk/{batchId}")
+    public ResponseEntity<BatchStatusDto> getBulkOperationStatus(@PathVariable String batchId) {
+        return processBulkOperationService.getBatchStatus(batchId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     @ApiOperation(value = " Restart a process instance by process instance ID")
     @PutMapping("/restart/{processInstanceId}")
     public ResponseEntity<String> restartProcessInstanceById(@PathVariable String processInstanceId) {
@@ -124,6 +251,81 @@ public class ProcessController {
         processService.deleteAllHistoricProcessInstances();
     }
 
+    @ApiOperation(value = "Get the progress of the last purge of process instances (RUNTIME) or history (HISTORY)")
+    @GetMapping("/purge/{type}")
+    public ResponseEntity<PurgeReportDto> getPurgeProgress(@PathVariable String type) {
+        return processPurgeService.getProgress(type.toUpperCase())
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @ApiOperation(value = "Get the rows removed by the history cleanup, the history table sizes and the next cleanup run")
+    @GetMapping("/history-cleanup")
+    public HistoryCleanupReportDto getHistoryCleanupReport() {
+        return historyCleanupService.getReport();
+    }
+
+    @ApiOperation(value = "Run the history cleanup now, outside of the batch window")
+    @PostMapping("/history-cleanup")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public HistoryCleanupReportDto cleanUpHistory() {
+        return historyCleanupService.cleanUpNow();
+    }
+
+    @ApiOperation(value = "Get the thread pool, queue, acquisition counts and throughput of the job executor", response = JobExecutorStatusDto.class)
+    @GetMapping("/job-executor")
+    public JobExecutorStatusDto getJobExecutorStatus() {
+        return jobExecutorService.getStatus();
+    }
+
+    @ApiOperation(value = "Change the thread pool sizes of the job executor", response = JobExecutorStatusDto.class)
+    @PutMapping("/job-executor/pool")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<?> resizeJobExecutorPool(@RequestBody JobExecutorPoolRequest poolRequest) {
+        try {
+            return ResponseEntity.ok(jobExecutorService.resizePool(poolRequest.getCorePoolSize(), poolRequest.getMaxPoolSize()));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @ApiOperation(value = "Get the optimistic locking conflicts of task and process instance operations per process definition key and activity")
+    @GetMapping("/conflicts")
+    public List<ConflictStatsDto> getConflicts() {
+        return processService.getConflicts();
+    }
+
+    @ApiOperation(value = "Get the active, suspended and completed instance counts and average cycle time per process definition key")
+    @GetMapping("/stats")
+    public List<ProcessStatisticsDto> getStatistics() {
+        return processStatisticsService.getStatistics();
+    }
+
+    @ApiOperation(value = "Get the instance statistics of one process definition key")
+    @GetMapping("/stats/{processDefinitionKey}")
+    public ResponseEntity<ProcessStatisticsDto> getStatistics(@PathVariable String processDefinitionKey) {
+        return processStatisticsService.getStatistics(processDefinitionKey)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @ApiOperation(value = "Rebuild the instance statistics from the engine history")
+    @PostMapping("/stats/rebuild")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public List<ProcessStatisticsDto> rebuildStatistics() {
+        processStatisticsService.rebuild();
+        return processStatisticsService.getStatistics();
+    }
+
+    @ApiOperation(value = "Get the visit count, mean and p95 duration of every activity of a process definition version")
+    @GetMapping("/{definitionKey}/heatmap")
+    public ResponseEntity<ActivityHeatmapDto> getHeatmap(@PathVariable String definitionKey,
+                                                         @RequestParam(required = false) Integer version) {
+        return activityHeatmapService.getHeatmap(definitionKey, version)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     @ApiOperation(value = "Get  process instances")
     @GetMapping("/get/process-instances")
     public List<WorkflowProcessInstance> getAllProcessInstances() {
@@ -131,6 +333,26 @@ public class ProcessController {
         return processService.getAllWorkflowProcessInstances();
     }
 
+    @ApiOperation(value = "Get one page of process instances, filtered by status, workflow and process name")
+    @GetMapping("/get/process-instances/page")
+    public Page<WorkflowProcessInstanceDto> getProcessInstancesPage(@RequestParam(required = false) String status,
+                                                                    @RequestParam(required = false) String workflowId,
+                                                                    @RequestParam(required = false) String processName,
+                                                                    @RequestParam(defaultValue = "0") int page,
+                                                                    @RequestParam(defaultValue = "20") int size) {
+        return processService.getWorkflowProcessInstances(status, workflowId, processName, page, size);
+    }
+
+    @ApiOperation(value = "Get the process instances after a given ID in ID order, filtered by status, workflow and process name")
+    @GetMapping("/get/process-instances/after")
+    public List<WorkflowProcessInstanceDto> getProcessInstancesAfter(@RequestParam(required = false) String status,
+                                                                     @RequestParam(required = false) String workflowId,
+                                                                     @RequestParam(required = false) String processName,
+                                                                     @RequestParam(defaultValue = "") String after,
+                                                                     @RequestParam(defaultValue = "20") int size) {
+        return processService.getWorkflowProcessInstancesAfter(status, workflowId, processName, after, size);
+    }
+
     @ApiOperation(value = "Retrieves all process instances by process definition key")
     @GetMapping("/get/definition-key/{processDefinitionKey}")
     public List<ProcessInstance> getProcessInstancesByProcessDefinitionKey(@PathVariable String processDefinitionKey) {
@@ -156,9 +378,34 @@ public class ProcessController {
         processService.deleteProcessInstanceAndWorkflowInstanceById(Id);
     }
 
+    @ApiOperation(value = "Get the report of the last deployment cache warm-up")
+    @GetMapping("/warmup")
+    public ResponseEntity<WarmupReportDto> getWarmupReport() {
+        WarmupReportDto report = deploymentCacheWarmupService.getLastReport();
+        if (report != null) {
+            return ResponseEntity.ok(report);
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @GetMapping("/get/{processInstanceId}/execution-history")
     public List<HistoricActivityInstanceDto> getExecutionHistory(@PathVariable String processInstanceId) {
         return processService.getExecutionHistoryByProcessInstanceId(processInstanceId);
     }
 
+    @ApiOperation(value = "Get one page of the execution history of a process instance as parallel arrays, latest activities first by default")
+    @GetMapping("/get/{processInstanceId}/execution-history/page")
+    public ResponseEntity<?> getExecutionHistoryPage(@PathVariable String processInstanceId,
+                                                     @RequestParam(required = false) String activityType,
+                                                     @RequestParam(defaultValue = "true") boolean latestFirst,
+                                                     @RequestParam(defaultValue = "0") int page,
+                                                     @RequestParam(defaultValue = "100") int size) {
+        try {
+            return ResponseEntity.ok(processService.getExecutionHistoryPage(processInstanceId, activityType, latestFirst, page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
 }
@@ -76,6 +76,7 @@ public class TaskController {
     @ApiOperation(value = "Claim task", notes = "Claims a task")
     @ApiResponses(value = {
             @ApiResponse(code = 204, message = "No Content"),
+            @ApiResponse(code = 404, message = "Task not found"),
             @ApiResponse(code = 500, message = "Internal Server Error")
     })
     @PostMapping("/claim/{taskId}")
@@ -87,6 +88,7 @@ public class TaskController {
     @ApiOperation(value = "Complete task", notes = "Completes a task")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Success"),
+            @ApiResponse(code = 404, message = "Task not found"),
             @ApiResponse(code = 500, message = "Internal Server Error")
     })
     @PostMapping("/complete/{taskId}")
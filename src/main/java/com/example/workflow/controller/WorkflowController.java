@@ -1,14 +1,28 @@
 package com.example.workflow.controller;
 
+import com.example.workflow.dto.MigrationReportDto;
+import com.example.workflow.dto.SimulationEstimateDto;
+import com.example.workflow.dto.SimulationResultDto;
+import com.example.workflow.dto.WorkflowVersionDto;
 import com.example.workflow.entity.Workflow;
+import com.example.workflow.payload.request.ElementOperationRequest;
+import com.example.workflow.payload.request.ExecutionPolicyRule;
+import com.example.workflow.payload.request.SimulationRequest;
+import com.example.workflow.payload.response.ElementPatchResponse;
+import com.example.workflow.payload.response.MessageResponse;
+import com.example.workflow.service.WorkflowMigrationService;
+import com.example.workflow.service.WorkflowPatchService;
 import com.example.workflow.service.WorkflowService;
+import com.example.workflow.service.WorkflowSimulationService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 
@@ -24,9 +38,17 @@ import java.util.Optional;
 public class WorkflowController {
 
     private final WorkflowService workflowService;
+    private final WorkflowPatchService workflowPatchService;
+    private final WorkflowMigrationService workflowMigrationService;
+    private final WorkflowSimulationService workflowSimulationService;
 
-    public WorkflowController(WorkflowService workflowService) {
+    public WorkflowController(WorkflowService workflowService, WorkflowPatchService workflowPatchService,
+                              WorkflowMigrationService workflowMigrationService,
+                              WorkflowSimulationService workflowSimulationService) {
         this.workflowService = workflowService;
+        this.workflowPatchService = workflowPatchService;
+        this.workflowMigrationService = workflowMigrationService;
+        this.workflowSimulationService = workflowSimulationService;
     }
 
     @ApiOperation(value = "Save a Workflow", response = Workflow.class)
@@ -84,6 +106,131 @@ public class WorkflowController {
         }
     }
 
+    @ApiOperation(value = "Apply element level changes to a Workflow", response = ElementPatchResponse.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 202, message = "Changes applied, deployment scheduled"),
+            @ApiResponse(code = 400, message = "Invalid operation"),
+            @ApiResponse(code = 404, message = "Workflow not found")
+    })
+    @PatchMapping("/{id}/elements")
+    public ResponseEntity<?> patchWorkflowElements(@PathVariable String id, @RequestBody List<ElementOperationRequest> operations) {
+        try {
+            ElementPatchResponse response = workflowPatchService.patchElements(id, operations);
+            if (response == null) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @ApiOperation(value = "Get the execution policy of a Workflow", response = ExecutionPolicyRule.class, responseContainer = "List")
+    @GetMapping("/{id}/execution-policy")
+    public ResponseEntity<List<ExecutionPolicyRule>> getExecutionPolicy(@PathVariable String id) {
+        return workflowService.getExecutionPolicy(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @ApiOperation(value = "Replace the execution policy of a Workflow and redeploy it", response = Workflow.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 400, message = "Invalid policy rule"),
+            @ApiResponse(code = 404, message = "Workflow not found")
+    })
+    @PutMapping("/{id}/execution-policy")
+    public ResponseEntity<?> updateExecutionPolicy(@PathVariable String id, @RequestBody List<ExecutionPolicyRule> rules) throws IOException {
+        try {
+            Workflow updatedWorkflow = workflowService.updateExecutionPolicy(id, rules);
+            if (updatedWorkflow == null) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            return new ResponseEntity<>(updatedWorkflow, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @ApiOperation(value = "Get the stored versions of a Workflow", response = WorkflowVersionDto.class, responseContainer = "List")
+    @GetMapping("/{id}/versions")
+    public List<WorkflowVersionDto> getWorkflowVersions(@PathVariable String id) {
+        return workflowService.getWorkflowVersions(id);
+    }
+
+    @ApiOperation(value = "Get the BPMN XML of a Workflow version")
+    @GetMapping(value = "/{id}/versions/{versionNumber}", produces = MediaType.APPLICATION_XML_VALUE)
+    public ResponseEntity<String> getWorkflowVersionXml(@PathVariable String id, @PathVariable int versionNumber) {
+        Optional<String> xmlContent = workflowService.getWorkflowVersionXml(id, versionNumber);
+
+        if (xmlContent.isPresent()) {
+            return new ResponseEntity<>(xmlContent.get(), HttpStatus.OK);
+        } else {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @ApiOperation(value = "Migrate the running instances of older versions to the current version of a Workflow", response = MigrationReportDto.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 202, message = "Migration batches started"),
+            @ApiResponse(code = 404, message = "Workflow not found or not deployed")
+    })
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/{id}/migrate")
+    public ResponseEntity<MigrationReportDto> migrateInstances(@PathVariable String id) {
+        return workflowMigrationService.migrate(id)
+                .map(report -> ResponseEntity.status(HttpStatus.ACCEPTED).body(report))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @ApiOperation(value = "Get the progress of the last instance migration of a Workflow", response = MigrationReportDto.class)
+    @GetMapping("/{id}/migrate")
+    public ResponseEntity<MigrationReportDto> getMigrationStatus(@PathVariable String id) {
+        return workflowMigrationService.getMigrationStatus(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @ApiOperation(value = "Undeploy the older versions of a Workflow that have no running instances", response = String.class, responseContainer = "List")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/{id}/old-versions")
+    public ResponseEntity<List<String>> undeployOldVersions(@PathVariable String id) {
+        return workflowMigrationService.undeployEmptyVersions(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @ApiOperation(value = "Simulate a run of a Workflow with the given gateway inputs, without the engine", response = SimulationResultDto.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 400, message = "Workflow has no BPMN or no start event"),
+            @ApiResponse(code = 404, message = "Workflow not found")
+    })
+    @PostMapping("/{id}/simulate")
+    public ResponseEntity<?> simulateWorkflow(@PathVariable String id, @RequestBody SimulationRequest simulationRequest) {
+        try {
+            return workflowSimulationService.simulate(id, simulationRequest.getInputs())
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @ApiOperation(value = "Estimate the path and branch probabilities of a Workflow with random walks", response = SimulationEstimateDto.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 400, message = "Invalid number of walks, or workflow has no BPMN or no start event"),
+            @ApiResponse(code = 404, message = "Workflow not found")
+    })
+    @GetMapping("/{id}/simulate/random")
+    public ResponseEntity<?> estimateWorkflowPaths(@PathVariable String id, @RequestParam(defaultValue = "1000") int walks) {
+        try {
+            return workflowSimulationService.estimate(id, walks)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
     @ApiOperation(value = "Delete a Workflow")
     @DeleteMapping("/delete/{id}")
     public void deleteWorkflow(@PathVariable String id) {
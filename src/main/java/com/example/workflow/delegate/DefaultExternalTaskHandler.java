@@ -0,0 +1,26 @@
+package com.example.workflow.delegate;
+
+import org.camunda.bpm.engine.externaltask.LockedExternalTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import java.util.Map;
+
+@Named
+public class DefaultExternalTaskHandler implements ExternalTaskWorkerHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultExternalTaskHandler.class);
+
+    @Override
+    public String getTopic() {
+        return "default";
+    }
+
+    @Override
+    public Map<String, Object> handle(LockedExternalTask task) throws Exception {
+        logger.info("Default external task handler ran for activity {} of process instance {}",
+                task.getActivityId(), task.getProcessInstanceId());
+        return null;
+    }
+}
@@ -3,28 +3,24 @@ package com.example.workflow.delegate;
 import javax.inject.Named;
 
 
+import com.example.workflow.service.MailOutboxService;
 import org.camunda.bpm.engine.delegate.DelegateExecution;
 import org.camunda.bpm.engine.delegate.JavaDelegate;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 
 @Named
 public class DefaultSendMailDelegateClass implements JavaDelegate {
 
     @Autowired
-    private JavaMailSender javaMailSender;
+    private MailOutboxService mailOutboxService;
 
     @Override
     public void execute(DelegateExecution execution) throws Exception {
         String recipientAddress = "nader.hamad@esprit.tn";
         String taskName = execution.getCurrentActivityName();
 
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(recipientAddress);
-        message.setSubject(taskName);
-        message.setText("The task '" + taskName + "' has been reached.");
-
-        javaMailSender.send(message);
+        // Queued in the engine transaction and sent by the outbox dispatcher, so SMTP never blocks the process step
+        String dedupKey = execution.getProcessInstanceId() + ":" + execution.getActivityInstanceId();
+        mailOutboxService.enqueue(dedupKey, recipientAddress, taskName, "The task '" + taskName + "' has been reached.");
     }
-}
\ No newline at end of file
+}
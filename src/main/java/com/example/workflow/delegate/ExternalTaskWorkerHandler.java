@@ -0,0 +1,22 @@
+package com.example.workflow.delegate;
+
+import org.camunda.bpm.engine.externaltask.LockedExternalTask;
+
+import java.util.Map;
+
+/**
+ * Runs the external tasks of one topic for the embedded external task workers.
+ * Implementations are picked up as beans; throwing a BpmnError raises it in the process,
+ * any other exception counts as a failed attempt and the task is retried.
+ */
+public interface ExternalTaskWorkerHandler {
+
+    String getTopic();
+
+    /**
+     * Runs one external task outside of any engine transaction.
+     * @param task the locked task with its variables
+     * @return the variables to set on completion, may be null
+     */
+    Map<String, Object> handle(LockedExternalTask task) throws Exception;
+}
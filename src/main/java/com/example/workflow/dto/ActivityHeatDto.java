@@ -0,0 +1,42 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for the heat of one activity of a process definition.
+ *  It contains the following information:
+ *  activityId: the ID of the BPMN element, to overlay the heat on the diagram
+ *  activityName: the name of the activity
+ *  activityType: the activity type, e.g. userTask
+ *  visits: the number of completed visits of the activity
+ *  meanDurationMs: the mean duration of a visit, in milliseconds
+ *  p95DurationMs: the 95th percentile of the visit duration, in milliseconds, within 10%
+ *  maxDurationMs: the longest visit, in milliseconds
+ *  heat: the p95 duration relative to the slowest activity of the definition, from 0 to 1
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+@Value
+public class ActivityHeatDto {
+
+    String activityId;
+    String activityName;
+    String activityType;
+    long visits;
+    long meanDurationMs;
+    long p95DurationMs;
+    long maxDurationMs;
+    double heat;
+
+    public ActivityHeatDto(String activityId, String activityName, String activityType, long visits,
+			long meanDurationMs, long p95DurationMs, long maxDurationMs, double heat) {
+		super();
+		this.activityId = activityId;
+		this.activityName = activityName;
+		this.activityType = activityType;
+		this.visits = visits;
+		this.meanDurationMs = meanDurationMs;
+		this.p95DurationMs = p95DurationMs;
+		this.maxDurationMs = maxDurationMs;
+		this.heat = heat;
+	}
+}
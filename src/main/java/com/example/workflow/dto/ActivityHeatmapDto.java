@@ -0,0 +1,36 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for the activity heatmap of a process definition version.
+ *  It contains the following information:
+ *  processDefinitionId: the ID of the process definition version
+ *  processDefinitionKey: the key of the process definition
+ *  version: the version of the process definition
+ *  computedUntil: the end time of the most recent activity taken into account
+ *  activities: the heat of each activity, slowest first
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+import java.util.Date;
+import java.util.List;
+
+@Value
+public class ActivityHeatmapDto {
+
+    String processDefinitionId;
+    String processDefinitionKey;
+    int version;
+    Date computedUntil;
+    List<ActivityHeatDto> activities;
+
+    public ActivityHeatmapDto(String processDefinitionId, String processDefinitionKey, int version,
+			Date computedUntil, List<ActivityHeatDto> activities) {
+		super();
+		this.processDefinitionId = processDefinitionId;
+		this.processDefinitionKey = processDefinitionKey;
+		this.version = version;
+		this.computedUntil = computedUntil;
+		this.activities = activities;
+	}
+}
@@ -0,0 +1,42 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for the progress of an engine batch.
+ *  It contains the following information:
+ *  batchId: the ID of the batch
+ *  type: the engine batch type, e.g. instance-deletion
+ *  totalJobs: the number of jobs the batch is split into
+ *  completedJobs: the number of jobs that completed
+ *  failedJobs: the number of jobs that failed and have no retries left
+ *  remainingJobs: the number of jobs still to run
+ *  suspended: whether the batch is suspended
+ *  finished: whether the batch has ended
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+@Value
+public class BatchStatusDto {
+
+    String batchId;
+    String type;
+    int totalJobs;
+    int completedJobs;
+    int failedJobs;
+    int remainingJobs;
+    boolean suspended;
+    boolean finished;
+
+    public BatchStatusDto(String batchId, String type, int totalJobs, int completedJobs, int failedJobs,
+			int remainingJobs, boolean suspended, boolean finished) {
+		super();
+		this.batchId = batchId;
+		this.type = type;
+		this.totalJobs = totalJobs;
+		this.completedJobs = completedJobs;
+		this.failedJobs = failedJobs;
+		this.remainingJobs = remainingJobs;
+		this.suspended = suspended;
+		this.finished = finished;
+	}
+}
@@ -0,0 +1,32 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for a gateway branch of random workflow simulations.
+ *  It contains the following information:
+ *  gatewayId: the ID of the gateway
+ *  flowId: the ID of the outgoing sequence flow
+ *  flowName: the name of the flow, as shown on the task form
+ *  walks: the number of walks that took this branch at least once
+ *  probability: the share of the walks that took this branch, from 0 to 1
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+@Value
+public class BranchCoverageDto {
+
+    String gatewayId;
+    String flowId;
+    String flowName;
+    long walks;
+    double probability;
+
+    public BranchCoverageDto(String gatewayId, String flowId, String flowName, long walks, double probability) {
+		super();
+		this.gatewayId = gatewayId;
+		this.flowId = flowId;
+		this.flowName = flowName;
+		this.walks = walks;
+		this.probability = probability;
+	}
+}
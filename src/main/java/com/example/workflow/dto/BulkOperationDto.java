@@ -0,0 +1,26 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for a submitted bulk process instance operation.
+ *  It contains the following information:
+ *  batchId: the ID of the engine batch running the operation, null when no instance matched
+ *  operation: SUSPEND, RESUME or DELETE
+ *  processInstances: the number of process instances selected by the filter
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+@Value
+public class BulkOperationDto {
+
+    String batchId;
+    String operation;
+    int processInstances;
+
+    public BulkOperationDto(String batchId, String operation, int processInstances) {
+		super();
+		this.batchId = batchId;
+		this.operation = operation;
+		this.processInstances = processInstances;
+	}
+}
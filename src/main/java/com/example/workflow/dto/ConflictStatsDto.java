@@ -0,0 +1,32 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for the concurrent modification conflicts of one activity.
+ *  It contains the following information:
+ *  processDefinitionKey: the key of the process definition
+ *  activityId: the ID of the activity the conflicting operation worked on, "-" for instance level operations
+ *  conflicts: the number of optimistic locking conflicts since startup
+ *  retried: the number of conflicts resolved by running the operation again
+ *  exhausted: the number of operations that still conflicted after the last attempt
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+@Value
+public class ConflictStatsDto {
+
+    String processDefinitionKey;
+    String activityId;
+    long conflicts;
+    long retried;
+    long exhausted;
+
+    public ConflictStatsDto(String processDefinitionKey, String activityId, long conflicts, long retried, long exhausted) {
+		super();
+		this.processDefinitionKey = processDefinitionKey;
+		this.activityId = activityId;
+		this.conflicts = conflicts;
+		this.retried = retried;
+		this.exhausted = exhausted;
+	}
+}
@@ -0,0 +1,48 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for the migration of the instances of one old process definition version.
+ *  It contains the following information:
+ *  sourceProcessDefinitionId: the ID of the old process definition version
+ *  sourceVersion: the version number of the old process definition
+ *  batchId: the ID of the engine batch migrating the instances, null when no batch was started
+ *  instances: the number of instances the migration was started for
+ *  remainingInstances: the number of instances still running on the old version
+ *  finished: whether the batch has ended
+ *  planError: why no migration plan could be built, null when the plan is valid
+ *  remainingInstanceIds: the IDs of the first instances still running on the old version
+ *  failures: the errors of the failed migration jobs
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class DefinitionMigrationDto {
+
+    String sourceProcessDefinitionId;
+    int sourceVersion;
+    String batchId;
+    long instances;
+    long remainingInstances;
+    boolean finished;
+    String planError;
+    List<String> remainingInstanceIds;
+    List<String> failures;
+
+    public DefinitionMigrationDto(String sourceProcessDefinitionId, int sourceVersion, String batchId, long instances,
+			long remainingInstances, boolean finished, String planError, List<String> remainingInstanceIds,
+			List<String> failures) {
+		super();
+		this.sourceProcessDefinitionId = sourceProcessDefinitionId;
+		this.sourceVersion = sourceVersion;
+		this.batchId = batchId;
+		this.instances = instances;
+		this.remainingInstances = remainingInstances;
+		this.finished = finished;
+		this.planError = planError;
+		this.remainingInstanceIds = remainingInstanceIds;
+		this.failures = failures;
+	}
+}
@@ -0,0 +1,52 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for one page of the execution history of a process instance,
+ *  in a columnar layout: entry i of every array describes the same activity instance.
+ *  It contains the following information:
+ *  processInstanceId: the ID of the process instance
+ *  total: the number of activity instances matching the filter, over all pages
+ *  page: the page number, starting at 0
+ *  size: the page size
+ *  baseTime: the earliest start time of the page, in epoch milliseconds, 0 for an empty page
+ *  ids: the IDs of the activity instances
+ *  activityIds: the IDs of the BPMN activities
+ *  names: the names of the activities
+ *  types: the activity types, e.g. userTask
+ *  startOffsets: the start times, in milliseconds after baseTime
+ *  endOffsets: the end times, in milliseconds after baseTime, -1 while the activity is running
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+@Value
+public class ExecutionHistoryPageDto {
+
+    String processInstanceId;
+    long total;
+    int page;
+    int size;
+    long baseTime;
+    String[] ids;
+    String[] activityIds;
+    String[] names;
+    String[] types;
+    long[] startOffsets;
+    long[] endOffsets;
+
+    public ExecutionHistoryPageDto(String processInstanceId, long total, int page, int size, long baseTime,
+			String[] ids, String[] activityIds, String[] names, String[] types, long[] startOffsets, long[] endOffsets) {
+		super();
+		this.processInstanceId = processInstanceId;
+		this.total = total;
+		this.page = page;
+		this.size = size;
+		this.baseTime = baseTime;
+		this.ids = ids;
+		this.activityIds = activityIds;
+		this.names = names;
+		this.types = types;
+		this.startOffsets = startOffsets;
+		this.endOffsets = endOffsets;
+	}
+}
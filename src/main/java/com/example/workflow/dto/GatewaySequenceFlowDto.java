@@ -1,5 +1,6 @@
 package com.example.workflow.dto;
 
+import com.example.workflow.util.GatewayDefaults;
 import lombok.Value;
 import org.camunda.bpm.model.bpmn.instance.SequenceFlow;
 
@@ -22,6 +23,7 @@ public class GatewaySequenceFlowDto {
 
 	/**
      * Constructs a new GatewaySequenceFlowDto object from a given SequenceFlow object.
+     * The condition is the one the engine evaluates, including the default gateway conditions.
      * @param sequenceFlow the SequenceFlow object to create a DTO from
      * @return a new GatewaySequenceFlowDto object
      */
@@ -31,7 +33,7 @@ public class GatewaySequenceFlowDto {
                 sequenceFlow.getId(),
                 sequenceFlow.getName(),
                 sequenceFlow.getSource().getId(),
-                sequenceFlow.getConditionExpression().getTextContent()
+                GatewayDefaults.effectiveCondition(sequenceFlow)
         );
     }
 }
\ No newline at end of file
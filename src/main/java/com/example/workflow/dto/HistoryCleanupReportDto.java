@@ -0,0 +1,36 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for the state of the engine history cleanup.
+ *  It contains the following information:
+ *  removedProcessInstances: the number of historic process instances removed by the cleanup
+ *  removedDecisionInstances: the number of historic decision instances removed by the cleanup
+ *  removedBatchOperations: the number of historic batch operations removed by the cleanup
+ *  historyTableCounts: the number of rows of each ACT_HI_* table
+ *  nextRunAt: the due date of the next cleanup job, null when no cleanup is scheduled
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+import java.util.Date;
+import java.util.Map;
+
+@Value
+public class HistoryCleanupReportDto {
+
+    long removedProcessInstances;
+    long removedDecisionInstances;
+    long removedBatchOperations;
+    Map<String, Long> historyTableCounts;
+    Date nextRunAt;
+
+    public HistoryCleanupReportDto(long removedProcessInstances, long removedDecisionInstances,
+			long removedBatchOperations, Map<String, Long> historyTableCounts, Date nextRunAt) {
+		super();
+		this.removedProcessInstances = removedProcessInstances;
+		this.removedDecisionInstances = removedDecisionInstances;
+		this.removedBatchOperations = removedBatchOperations;
+		this.historyTableCounts = historyTableCounts;
+		this.nextRunAt = nextRunAt;
+	}
+}
@@ -0,0 +1,64 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for the state of the engine job executor of this node.
+ *  It contains the following information:
+ *  corePoolSize: the number of threads kept to run jobs
+ *  maxPoolSize: the maximum number of threads running jobs
+ *  poolSize: the current number of threads
+ *  activeThreads: the number of threads running a job
+ *  queueDepth: the number of acquired jobs waiting for a thread
+ *  queueCapacity: the number of acquired jobs that can wait for a thread
+ *  reservedThreads: the number of extra threads kept for high priority jobs
+ *  reservedActiveThreads: the number of reserved threads running a job
+ *  acquisitionAttempts: the number of job acquisition runs since startup
+ *  acquiredJobs: the number of jobs acquired and locked since startup
+ *  lockFailures: the number of jobs another node or thread locked first since startup
+ *  rejectedJobs: the number of acquired jobs the full queue rejected since startup
+ *  successfulJobs: the number of jobs executed successfully since startup
+ *  failedJobs: the number of failed job executions since startup
+ *  jobsPerSecond: the number of jobs executed per second, over the last sampling interval
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+@Value
+public class JobExecutorStatusDto {
+
+    int corePoolSize;
+    int maxPoolSize;
+    int poolSize;
+    int activeThreads;
+    int queueDepth;
+    int queueCapacity;
+    int reservedThreads;
+    int reservedActiveThreads;
+    long acquisitionAttempts;
+    long acquiredJobs;
+    long lockFailures;
+    long rejectedJobs;
+    long successfulJobs;
+    long failedJobs;
+    double jobsPerSecond;
+
+    public JobExecutorStatusDto(int corePoolSize, int maxPoolSize, int poolSize, int activeThreads, int queueDepth,
+			int queueCapacity, int reservedThreads, int reservedActiveThreads, long acquisitionAttempts, long acquiredJobs, long lockFailures, long rejectedJobs,
+			long successfulJobs, long failedJobs, double jobsPerSecond) {
+		super();
+		this.corePoolSize = corePoolSize;
+		this.maxPoolSize = maxPoolSize;
+		this.poolSize = poolSize;
+		this.activeThreads = activeThreads;
+		this.queueDepth = queueDepth;
+		this.queueCapacity = queueCapacity;
+		this.reservedThreads = reservedThreads;
+		this.reservedActiveThreads = reservedActiveThreads;
+		this.acquisitionAttempts = acquisitionAttempts;
+		this.acquiredJobs = acquiredJobs;
+		this.lockFailures = lockFailures;
+		this.rejectedJobs = rejectedJobs;
+		this.successfulJobs = successfulJobs;
+		this.failedJobs = failedJobs;
+		this.jobsPerSecond = jobsPerSecond;
+	}
+}
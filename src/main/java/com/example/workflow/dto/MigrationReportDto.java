@@ -0,0 +1,29 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for the migration of the running instances of a workflow
+ *  to its current process definition version.
+ *  It contains the following information:
+ *  workflowId: the ID of the workflow
+ *  targetProcessDefinitionId: the ID of the process definition version instances are migrated to
+ *  sources: the migration of each old process definition version that had running instances
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class MigrationReportDto {
+
+    String workflowId;
+    String targetProcessDefinitionId;
+    List<DefinitionMigrationDto> sources;
+
+    public MigrationReportDto(String workflowId, String targetProcessDefinitionId, List<DefinitionMigrationDto> sources) {
+		super();
+		this.workflowId = workflowId;
+		this.targetProcessDefinitionId = targetProcessDefinitionId;
+		this.sources = sources;
+	}
+}
@@ -0,0 +1,47 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for an asynchronous process start ticket.
+ *  It contains the following information:
+ *  id: the ID of the ticket
+ *  status: PENDING, RUNNING, STARTED or FAILED
+ *  deploymentId: the deployment the process is started from
+ *  processInstanceId: the ID of the started process instance, once STARTED
+ *  error: the reason of the failure, once FAILED
+ *  createdAt: the date the start was requested
+ *  updatedAt: the date of the last status change
+ */
+
+package com.example.workflow.dto;
+
+import com.example.workflow.entity.ProcessStartTicket;
+import lombok.Value;
+
+import java.util.Date;
+
+@Value
+public class ProcessStartTicketDto {
+
+    String id;
+    String status;
+    String deploymentId;
+    String processInstanceId;
+    String error;
+    Date createdAt;
+    Date updatedAt;
+
+    public ProcessStartTicketDto(String id, String status, String deploymentId, String processInstanceId,
+			String error, Date createdAt, Date updatedAt) {
+		super();
+		this.id = id;
+		this.status = status;
+		this.deploymentId = deploymentId;
+		this.processInstanceId = processInstanceId;
+		this.error = error;
+		this.createdAt = createdAt;
+		this.updatedAt = updatedAt;
+	}
+
+    public static ProcessStartTicketDto of(ProcessStartTicket ticket) {
+        return new ProcessStartTicketDto(ticket.getId(), ticket.getStatus(), ticket.getDeploymentId(),
+                ticket.getProcessInstanceId(), ticket.getError(), ticket.getCreatedAt(), ticket.getUpdatedAt());
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for the instance statistics of a process definition key.
+ *  All versions of a workflow share its process definition key.
+ *  It contains the following information:
+ *  processDefinitionKey: the key of the process definition
+ *  active: the number of running, active instances
+ *  suspended: the number of running, suspended instances
+ *  completed: the number of instances that ran to their end
+ *  averageCycleTimeMs: the average duration of the completed instances, in milliseconds
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+@Value
+public class ProcessStatisticsDto {
+
+    String processDefinitionKey;
+    long active;
+    long suspended;
+    long completed;
+    long averageCycleTimeMs;
+
+    public ProcessStatisticsDto(String processDefinitionKey, long active, long suspended, long completed,
+			long averageCycleTimeMs) {
+		super();
+		this.processDefinitionKey = processDefinitionKey;
+		this.active = active;
+		this.suspended = suspended;
+		this.completed = completed;
+		this.averageCycleTimeMs = averageCycleTimeMs;
+	}
+}
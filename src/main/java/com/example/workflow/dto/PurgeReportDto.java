@@ -0,0 +1,35 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for the progress or result of a purge.
+ *  It contains the following information:
+ *  type: RUNTIME for process instances, HISTORY for historic process instances
+ *  status: RUNNING, COMPLETED or FAILED
+ *  deleted: the number of process instances deleted so far, including earlier interrupted runs
+ *  lastId: the ID the purge resumes after
+ *  durationMs: the time the purge took, in milliseconds, since it was started or resumed
+ *  rowsPerSecond: the deletion rate of the current run
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+@Value
+public class PurgeReportDto {
+
+    String type;
+    String status;
+    long deleted;
+    String lastId;
+    long durationMs;
+    double rowsPerSecond;
+
+    public PurgeReportDto(String type, String status, long deleted, String lastId, long durationMs, double rowsPerSecond) {
+		super();
+		this.type = type;
+		this.status = status;
+		this.deleted = deleted;
+		this.lastId = lastId;
+		this.durationMs = durationMs;
+		this.rowsPerSecond = rowsPerSecond;
+	}
+}
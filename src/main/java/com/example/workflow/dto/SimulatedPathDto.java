@@ -0,0 +1,28 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for a path found by random workflow simulations.
+ *  It contains the following information:
+ *  decisions: the IDs of the sequence flows chosen at the gateways, in order
+ *  walks: the number of walks that took this path
+ *  probability: the share of the walks that took this path, from 0 to 1
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class SimulatedPathDto {
+
+    List<String> decisions;
+    long walks;
+    double probability;
+
+    public SimulatedPathDto(List<String> decisions, long walks, double probability) {
+		super();
+		this.decisions = decisions;
+		this.walks = walks;
+		this.probability = probability;
+	}
+}
@@ -0,0 +1,26 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for a user task reached by a workflow simulation.
+ *  It contains the following information:
+ *  id: the ID of the user task
+ *  name: the name of the user task
+ *  formKey: the key of the form shown for the task, if any
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+@Value
+public class SimulatedUserTaskDto {
+
+    String id;
+    String name;
+    String formKey;
+
+    public SimulatedUserTaskDto(String id, String name, String formKey) {
+		super();
+		this.id = id;
+		this.name = name;
+		this.formKey = formKey;
+	}
+}
@@ -0,0 +1,23 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for a dead end met by a workflow simulation.
+ *  It contains the following information:
+ *  elementId: the ID of the BPMN element the path stopped at
+ *  reason: why the path could not go on
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+@Value
+public class SimulationDeadEndDto {
+
+    String elementId;
+    String reason;
+
+    public SimulationDeadEndDto(String elementId, String reason) {
+		super();
+		this.elementId = elementId;
+		this.reason = reason;
+	}
+}
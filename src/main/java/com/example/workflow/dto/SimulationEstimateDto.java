@@ -0,0 +1,39 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for random walk simulations of a workflow.
+ *  It contains the following information:
+ *  walks: the number of simulated walks
+ *  completedWalks: the number of walks in which every path reached an end event
+ *  branchCoverage: the share of the gateway branches taken by at least one walk, from 0 to 1
+ *  paths: the most frequent paths, most frequent first
+ *  branches: every gateway branch with the share of walks that took it
+ *  deadEnds: the number of walks that stopped at each element before an end event
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.Map;
+
+@Value
+public class SimulationEstimateDto {
+
+    int walks;
+    long completedWalks;
+    double branchCoverage;
+    List<SimulatedPathDto> paths;
+    List<BranchCoverageDto> branches;
+    Map<String, Long> deadEnds;
+
+    public SimulationEstimateDto(int walks, long completedWalks, double branchCoverage, List<SimulatedPathDto> paths,
+			List<BranchCoverageDto> branches, Map<String, Long> deadEnds) {
+		super();
+		this.walks = walks;
+		this.completedWalks = completedWalks;
+		this.branchCoverage = branchCoverage;
+		this.paths = paths;
+		this.branches = branches;
+		this.deadEnds = deadEnds;
+	}
+}
@@ -0,0 +1,35 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for one simulated run of a workflow.
+ *  It contains the following information:
+ *  completed: true if every path reached an end event
+ *  path: the IDs of the flow nodes and sequence flows taken, in order
+ *  userTasks: the user tasks reached, in order
+ *  deadEnds: the elements where a path stopped before an end event
+ *  unusedInputs: the number of given inputs no gateway consumed
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class SimulationResultDto {
+
+    boolean completed;
+    List<String> path;
+    List<SimulatedUserTaskDto> userTasks;
+    List<SimulationDeadEndDto> deadEnds;
+    int unusedInputs;
+
+    public SimulationResultDto(boolean completed, List<String> path, List<SimulatedUserTaskDto> userTasks,
+			List<SimulationDeadEndDto> deadEnds, int unusedInputs) {
+		super();
+		this.completed = completed;
+		this.path = path;
+		this.userTasks = userTasks;
+		this.deadEnds = deadEnds;
+		this.unusedInputs = unusedInputs;
+	}
+}
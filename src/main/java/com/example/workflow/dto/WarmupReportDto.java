@@ -0,0 +1,29 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for the result of the deployment cache warm-up.
+ *  It contains the following information:
+ *  deployments: the number of workflow deployments found
+ *  processDefinitions: the number of process definitions loaded into the engine caches
+ *  failures: the number of deployments that could not be loaded
+ *  durationMs: the time the warm-up took, in milliseconds
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+@Value
+public class WarmupReportDto {
+
+    int deployments;
+    int processDefinitions;
+    int failures;
+    long durationMs;
+
+    public WarmupReportDto(int deployments, int processDefinitions, int failures, long durationMs) {
+		super();
+		this.deployments = deployments;
+		this.processDefinitions = processDefinitions;
+		this.failures = failures;
+		this.durationMs = durationMs;
+	}
+}
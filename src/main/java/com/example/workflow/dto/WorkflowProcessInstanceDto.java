@@ -0,0 +1,37 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for a row of the process instance listing.
+ *  It carries the workflow ID and name instead of the whole workflow and its XML.
+ *  It contains the following information:
+ *  id: the ID of the WorkflowProcessInstance
+ *  processInstanceId: the ID of the engine process instance
+ *  processName: the name of the process
+ *  workflowId: the ID of the workflow the instance was started from, null if none
+ *  workflowName: the name of that workflow
+ *  status: ACTIVE, SUSPENDED or COMPLETED
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+@Value
+public class WorkflowProcessInstanceDto {
+
+    String id;
+    String processInstanceId;
+    String processName;
+    String workflowId;
+    String workflowName;
+    String status;
+
+    public WorkflowProcessInstanceDto(String id, String processInstanceId, String processName, String workflowId,
+			String workflowName, String status) {
+		super();
+		this.id = id;
+		this.processInstanceId = processInstanceId;
+		this.processName = processName;
+		this.workflowId = workflowId;
+		this.workflowName = workflowName;
+		this.status = status;
+	}
+}
@@ -0,0 +1,38 @@
+/**
+ *  This class represents a Data Transfer Object (DTO) for a stored workflow version.
+ *  It contains the following information:
+ *  versionNumber: the sequential number of the version, starting at 1
+ *  snapshot: whether the version is stored as a full snapshot or as a delta
+ *  contentSize: the size in bytes of the uncompressed XML of the version, encoded as UTF-8
+ *  storedSize: the number of bytes stored for the version
+ *  deploymentId: the Camunda deployment created for the version
+ *  createdAt: the date the version was recorded
+ */
+
+package com.example.workflow.dto;
+
+import lombok.Value;
+
+import java.util.Date;
+
+@Value
+public class WorkflowVersionDto {
+
+    int versionNumber;
+    boolean snapshot;
+    int contentSize;
+    int storedSize;
+    String deploymentId;
+    Date createdAt;
+
+    public WorkflowVersionDto(int versionNumber, boolean snapshot, int contentSize, int storedSize,
+			String deploymentId, Date createdAt) {
+		super();
+		this.versionNumber = versionNumber;
+		this.snapshot = snapshot;
+		this.contentSize = contentSize;
+		this.storedSize = storedSize;
+		this.deploymentId = deploymentId;
+		this.createdAt = createdAt;
+	}
+}
@@ -0,0 +1,124 @@
+/**
+ *
+ * Represents a mail waiting in the outbox.
+ * The row is written in the engine transaction of the send task that produced it and the
+ * mail is sent later by the outbox dispatcher, so an SMTP failure never rolls back a process step.
+ * Its status moves from PENDING to SENDING and then to SENT, back to PENDING for a retry, or to FAILED.
+ * A message left SENDING longer than the claim timeout is moved back to PENDING.
+ */
+
+package com.example.workflow.entity;
+
+import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import java.util.Date;
+
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "mail_outbox", indexes = @Index(name = "idx_mail_outbox_status", columnList = "status, next_attempt_at"))
+public class MailOutboxMessage {
+
+    @Id
+    @GeneratedValue(generator = "uuid")
+    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    private String id;
+    /* Identifies the activity instance that produced the mail, so it is queued only once */
+    @Column(name = "dedup_key", nullable = false, unique = true)
+    private String dedupKey;
+    @Column(nullable = false)
+    private String recipient;
+    private String subject;
+    @Lob
+    private String body;
+    @Column(name = "status", nullable = false, length = 16)
+    private String status;
+    private int attempts;
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "next_attempt_at", nullable = false)
+    private Date nextAttemptAt;
+    @Column(length = 2000)
+    private String lastError;
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    private Date createdAt;
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date sentAt;
+    /* When a dispatcher moved the message to SENDING */
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date claimedAt;
+	public String getId() {
+		return id;
+	}
+	public void setId(String id) {
+		this.id = id;
+	}
+	public String getDedupKey() {
+		return dedupKey;
+	}
+	public void setDedupKey(String dedupKey) {
+		this.dedupKey = dedupKey;
+	}
+	public String getRecipient() {
+		return recipient;
+	}
+	public void setRecipient(String recipient) {
+		this.recipient = recipient;
+	}
+	public String getSubject() {
+		return subject;
+	}
+	public void setSubject(String subject) {
+		this.subject = subject;
+	}
+	public String getBody() {
+		return body;
+	}
+	public void setBody(String body) {
+		this.body = body;
+	}
+	public String getStatus() {
+		return status;
+	}
+	public void setStatus(String status) {
+		this.status = status;
+	}
+	public int getAttempts() {
+		return attempts;
+	}
+	public void setAttempts(int attempts) {
+		this.attempts = attempts;
+	}
+	public Date getNextAttemptAt() {
+		return nextAttemptAt;
+	}
+	public void setNextAttemptAt(Date nextAttemptAt) {
+		this.nextAttemptAt = nextAttemptAt;
+	}
+	public String getLastError() {
+		return lastError;
+	}
+	public void setLastError(String lastError) {
+		this.lastError = lastError;
+	}
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+	public void setCreatedAt(Date createdAt) {
+		this.createdAt = createdAt;
+	}
+	public Date getSentAt() {
+		return sentAt;
+	}
+	public void setSentAt(Date sentAt) {
+		this.sentAt = sentAt;
+	}
+	public Date getClaimedAt() {
+		return claimedAt;
+	}
+	public void setClaimedAt(Date claimedAt) {
+		this.claimedAt = claimedAt;
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ *
+ * Represents an asynchronous process start request.
+ * The ticket is stored before the caller gets an answer, so the start is not lost
+ * if the application stops before it ran. Its status moves from PENDING to RUNNING
+ * and then to STARTED or FAILED. A RUNNING ticket records the node that claimed it.
+ */
+
+package com.example.workflow.entity;
+
+import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import java.util.Date;
+
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "process_start_ticket", indexes = @Index(name = "idx_process_start_ticket_status", columnList = "status, created_at"))
+public class ProcessStartTicket {
+
+    @Id
+    @GeneratedValue(generator = "uuid")
+    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    private String id;
+    @Column(name = "deployment_id", nullable = false)
+    private String deploymentId;
+    private String businessKey;
+    /* Process variables serialized as JSON */
+    @Lob
+    private String variables;
+    @Column(name = "status", nullable = false, length = 16)
+    private String status;
+    private String processInstanceId;
+    /* Node that claimed the ticket, set when it becomes RUNNING */
+    @Column(length = 128)
+    private String ownerNode;
+    @Column(length = 2000)
+    private String error;
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "created_at", nullable = false)
+    private Date createdAt;
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date updatedAt;
+	public String getId() {
+		return id;
+	}
+	public void setId(String id) {
+		this.id = id;
+	}
+	public String getDeploymentId() {
+		return deploymentId;
+	}
+	public void setDeploymentId(String deploymentId) {
+		this.deploymentId = deploymentId;
+	}
+	public String getBusinessKey() {
+		return businessKey;
+	}
+	public void setBusinessKey(String businessKey) {
+		this.businessKey = businessKey;
+	}
+	public String getVariables() {
+		return variables;
+	}
+	public void setVariables(String variables) {
+		this.variables = variables;
+	}
+	public String getStatus() {
+		return status;
+	}
+	public void setStatus(String status) {
+		this.status = status;
+	}
+	public String getProcessInstanceId() {
+		return processInstanceId;
+	}
+	public void setProcessInstanceId(String processInstanceId) {
+		this.processInstanceId = processInstanceId;
+	}
+	public String getOwnerNode() {
+		return ownerNode;
+	}
+	public void setOwnerNode(String ownerNode) {
+		this.ownerNode = ownerNode;
+	}
+	public String getError() {
+		return error;
+	}
+	public void setError(String error) {
+		this.error = error;
+	}
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+	public void setCreatedAt(Date createdAt) {
+		this.createdAt = createdAt;
+	}
+	public Date getUpdatedAt() {
+		return updatedAt;
+	}
+	public void setUpdatedAt(Date updatedAt) {
+		this.updatedAt = updatedAt;
+	}
+}
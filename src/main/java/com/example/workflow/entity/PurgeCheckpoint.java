@@ -0,0 +1,70 @@
+/**
+ *
+ * Represents the progress of a purge of process instances or history.
+ * The purge walks the IDs in ascending order; lastId is the highest ID of the
+ * last fully deleted wave, so an interrupted purge resumes right after it.
+ */
+
+package com.example.workflow.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.util.Date;
+
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "purge_checkpoint")
+public class PurgeCheckpoint {
+
+    /* The purge type, RUNTIME or HISTORY */
+    @Id
+    @Column(length = 16)
+    private String id;
+    private String lastId;
+    private long deleted;
+    /* RUNNING, COMPLETED or FAILED */
+    @Column(length = 16)
+    private String status;
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date startedAt;
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date updatedAt;
+	public String getId() {
+		return id;
+	}
+	public void setId(String id) {
+		this.id = id;
+	}
+	public String getLastId() {
+		return lastId;
+	}
+	public void setLastId(String lastId) {
+		this.lastId = lastId;
+	}
+	public long getDeleted() {
+		return deleted;
+	}
+	public void setDeleted(long deleted) {
+		this.deleted = deleted;
+	}
+	public String getStatus() {
+		return status;
+	}
+	public void setStatus(String status) {
+		this.status = status;
+	}
+	public Date getStartedAt() {
+		return startedAt;
+	}
+	public void setStartedAt(Date startedAt) {
+		this.startedAt = startedAt;
+	}
+	public Date getUpdatedAt() {
+		return updatedAt;
+	}
+	public void setUpdatedAt(Date updatedAt) {
+		this.updatedAt = updatedAt;
+	}
+}
@@ -26,6 +26,13 @@ public class Workflow {
     private String xmlContent;
     private String xmlName;
     private String deploymentId;
+    /* Days the history of finished instances is kept before the history cleanup removes it, null for the engine default */
+    private Integer historyTimeToLive;
+    /* ExecutionPolicyRule list as JSON, applied to the BPMN on every deployment; null keeps the XML as modeled */
+    @Column(name = "execution_policy", length = 10000)
+    private String executionPolicy;
+    /* Job priority of the asynchronous work of this workflow, written on its processes on every deployment; null for the engine default */
+    private Long jobPriority;
 	public String getId() {
 		return id;
 	}
@@ -56,4 +63,22 @@ public class Workflow {
 	public void setDeploymentId(String deploymentId) {
 		this.deploymentId = deploymentId;
 	}
+	public Integer getHistoryTimeToLive() {
+		return historyTimeToLive;
+	}
+	public void setHistoryTimeToLive(Integer historyTimeToLive) {
+		this.historyTimeToLive = historyTimeToLive;
+	}
+	public String getExecutionPolicy() {
+		return executionPolicy;
+	}
+	public void setExecutionPolicy(String executionPolicy) {
+		this.executionPolicy = executionPolicy;
+	}
+	public Long getJobPriority() {
+		return jobPriority;
+	}
+	public void setJobPriority(Long jobPriority) {
+		this.jobPriority = jobPriority;
+	}
 }
@@ -15,17 +15,23 @@ import javax.persistence.*;
 @Entity
 @NoArgsConstructor
 @AllArgsConstructor
+@Table(name = "workflow_process_instance", indexes = {
+        @Index(name = "idx_workflow_process_instance_status_workflow", columnList = "status, workflow_id"),
+        @Index(name = "idx_workflow_process_instance_process_instance", columnList = "process_instance_id")})
 public class WorkflowProcessInstance {
 
     @Id
     @GeneratedValue(generator = "uuid")
     @GenericGenerator(name = "uuid", strategy = "uuid2")
     private String id;
+    @Column(name = "process_instance_id")
     private String processInstanceId;
     private String processName;
     @ManyToOne(fetch = FetchType.EAGER)
+    @JoinColumn(name = "workflow_id")
     private Workflow workflow;
     /* This field is to tell whether the workflow process is suspended or not or finished */
+    @Column(name = "status")
     private String status;
 	public String getId() {
 		return id;
@@ -0,0 +1,97 @@
+/**
+ *
+ * Represents one saved version of a workflow BPMN XML.
+ * The first version and every periodic snapshot hold the full XML, the other
+ * versions hold a delta against the previous version. Both are gzip compressed.
+ */
+
+package com.example.workflow.entity;
+
+import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import java.util.Date;
+
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "workflow_version",
+        uniqueConstraints = @UniqueConstraint(name = "uk_workflow_version", columnNames = {"workflow_id", "version_number"}))
+public class WorkflowVersion {
+
+    @Id
+    @GeneratedValue(generator = "uuid")
+    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    private String id;
+    @Column(name = "workflow_id", nullable = false)
+    private String workflowId;
+    @Column(name = "version_number", nullable = false)
+    private int versionNumber;
+    /* true when content holds the full XML, false when it holds a delta against the previous version */
+    private boolean snapshot;
+    @Lob
+    @Column(name = "content", nullable = false)
+    private byte[] content;
+    /* Size in bytes of the uncompressed XML of this version, encoded as UTF-8 */
+    private int contentSize;
+    /* Number of bytes actually stored for this version */
+    private int storedSize;
+    private String deploymentId;
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdAt;
+	public String getId() {
+		return id;
+	}
+	public void setId(String id) {
+		this.id = id;
+	}
+	public String getWorkflowId() {
+		return workflowId;
+	}
+	public void setWorkflowId(String workflowId) {
+		this.workflowId = workflowId;
+	}
+	public int getVersionNumber() {
+		return versionNumber;
+	}
+	public void setVersionNumber(int versionNumber) {
+		this.versionNumber = versionNumber;
+	}
+	public boolean isSnapshot() {
+		return snapshot;
+	}
+	public void setSnapshot(boolean snapshot) {
+		this.snapshot = snapshot;
+	}
+	public byte[] getContent() {
+		return content;
+	}
+	public void setContent(byte[] content) {
+		this.content = content;
+	}
+	public int getContentSize() {
+		return contentSize;
+	}
+	public void setContentSize(int contentSize) {
+		this.contentSize = contentSize;
+	}
+	public int getStoredSize() {
+		return storedSize;
+	}
+	public void setStoredSize(int storedSize) {
+		this.storedSize = storedSize;
+	}
+	public String getDeploymentId() {
+		return deploymentId;
+	}
+	public void setDeploymentId(String deploymentId) {
+		this.deploymentId = deploymentId;
+	}
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+	public void setCreatedAt(Date createdAt) {
+		this.createdAt = createdAt;
+	}
+}
@@ -0,0 +1,147 @@
+package com.example.workflow.listener;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.camunda.bpm.engine.delegate.BpmnError;
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+import org.camunda.bpm.engine.delegate.ExecutionListener;
+import org.camunda.bpm.engine.impl.bpmn.parser.AbstractBpmnParseListener;
+import org.camunda.bpm.engine.impl.bpmn.parser.BpmnParse;
+import org.camunda.bpm.engine.impl.context.Context;
+import org.camunda.bpm.engine.impl.db.entitymanager.DbEntityManager;
+import org.camunda.bpm.engine.impl.history.event.HistoricActivityInstanceEventEntity;
+import org.camunda.bpm.engine.impl.persistence.entity.ExecutionEntity;
+import org.camunda.bpm.engine.impl.persistence.entity.ProcessDefinitionEntity;
+import org.camunda.bpm.engine.impl.pvm.process.ActivityImpl;
+import org.camunda.bpm.engine.impl.pvm.process.ProcessDefinitionImpl;
+import org.camunda.bpm.engine.impl.pvm.process.ScopeImpl;
+import org.camunda.bpm.engine.impl.util.ClockUtil;
+import org.camunda.bpm.engine.impl.util.xml.Element;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds an end execution listener to every service, send and user task while the BPMN is parsed,
+ * recording the activity durations as Micrometer timers tagged with the process definition key, the
+ * activity ID, the activity type and the delegate that implements it. The start time comes from the
+ * engine's historic activity instance, so activities started on another node or before a restart are
+ * timed too. The meters of an activity are created once at parse time and kept on the activity.
+ * Delegate errors are counted by ActivityMetricsEnginePlugin through recordError.
+ */
+@Component
+public class ActivityMetricsParseListener extends AbstractBpmnParseListener {
+
+    private static final String METERS_PROPERTY = "activityMeters";
+
+    private final MeterRegistry meterRegistry;
+
+    public ActivityMetricsParseListener(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void parseServiceTask(Element serviceTaskElement, ScopeImpl scope, ActivityImpl activity) {
+        addListener(serviceTaskElement, activity, "serviceTask");
+    }
+
+    @Override
+    public void parseSendTask(Element sendTaskElement, ScopeImpl scope, ActivityImpl activity) {
+        addListener(sendTaskElement, activity, "sendTask");
+    }
+
+    @Override
+    public void parseUserTask(Element userTaskElement, ScopeImpl scope, ActivityImpl activity) {
+        addListener(userTaskElement, activity, "userTask");
+    }
+
+    /**
+     * Counts an error thrown by a delegate of an instrumented activity.
+     * @param execution the execution the delegate ran in
+     * @param error the thrown error
+     */
+    public static void recordError(ExecutionEntity execution, Throwable error) {
+        ActivityImpl activity = execution.getActivity();
+        Object meters = activity != null ? activity.getProperty(METERS_PROPERTY) : null;
+        if (meters instanceof ActivityMeters) {
+            if (error instanceof BpmnError) {
+                ((ActivityMeters) meters).bpmnErrors.increment();
+            } else {
+                ((ActivityMeters) meters).failures.increment();
+            }
+        }
+    }
+
+    private void addListener(Element element, ActivityImpl activity, String type) {
+        ProcessDefinitionImpl processDefinition = activity.getProcessDefinition();
+        String processDefinitionKey = processDefinition instanceof ProcessDefinitionEntity
+                ? ((ProcessDefinitionEntity) processDefinition).getKey() : processDefinition.getId();
+        Tags tags = Tags.of("process", processDefinitionKey, "activity", activity.getId(), "type", type,
+                "delegate", delegateName(element, type));
+        ActivityMeters meters = new ActivityMeters(meterRegistry, tags);
+        activity.setProperty(METERS_PROPERTY, meters);
+        // Built-in listeners also run when custom listeners are skipped, e.g. by a bulk deletion
+        activity.addBuiltInListener(ExecutionListener.EVENTNAME_END, (ExecutionListener) meters::end);
+    }
+
+    private static String delegateName(Element element, String type) {
+        String className = element.attributeNS(BpmnParse.CAMUNDA_BPMN_EXTENSIONS_NS, "class");
+        if (className != null) {
+            return className.substring(className.lastIndexOf('.') + 1);
+        }
+        String delegateExpression = element.attributeNS(BpmnParse.CAMUNDA_BPMN_EXTENSIONS_NS, "delegateExpression");
+        if (delegateExpression != null) {
+            // #{defaultCamundaDelegateClass} names the bean
+            return delegateExpression.replaceAll("^[#$]\\{\\s*|\\s*}$", "");
+        }
+        if ("external".equals(element.attributeNS(BpmnParse.CAMUNDA_BPMN_EXTENSIONS_NS, "type"))) {
+            return "external:" + element.attributeNS(BpmnParse.CAMUNDA_BPMN_EXTENSIONS_NS, "topic");
+        }
+        if (element.attributeNS(BpmnParse.CAMUNDA_BPMN_EXTENSIONS_NS, "expression") != null) {
+            return "expression";
+        }
+        return "userTask".equals(type) ? "user" : "none";
+    }
+
+    /**
+     * Returns the start time of an activity instance from its history. The history handler runs before this
+     * listener and keeps the instance in the entity cache, whether it started in this transaction or earlier.
+     * @return the start time in milliseconds, or null if the history level does not record activities
+     */
+    private static Long startTime(String activityInstanceId) {
+        DbEntityManager dbEntityManager = Context.getCommandContext().getDbEntityManager();
+        HistoricActivityInstanceEventEntity activityInstance =
+                dbEntityManager.getCachedEntity(HistoricActivityInstanceEventEntity.class, activityInstanceId);
+        if (activityInstance == null) {
+            activityInstance = dbEntityManager.selectById(HistoricActivityInstanceEventEntity.class, activityInstanceId);
+        }
+        return activityInstance != null && activityInstance.getStartTime() != null
+                ? activityInstance.getStartTime().getTime() : null;
+    }
+
+    private final class ActivityMeters {
+        private final Timer completed;
+        private final Timer canceled;
+        private final Counter bpmnErrors;
+        private final Counter failures;
+
+        private ActivityMeters(MeterRegistry registry, Tags tags) {
+            completed = Timer.builder("bpmn.activity.duration").tags(tags).tag("outcome", "completed")
+                    .publishPercentileHistogram().register(registry);
+            canceled = Timer.builder("bpmn.activity.duration").tags(tags).tag("outcome", "canceled")
+                    .publishPercentileHistogram().register(registry);
+            bpmnErrors = Counter.builder("bpmn.activity.errors").tags(tags).tag("kind", "bpmnError").register(registry);
+            failures = Counter.builder("bpmn.activity.errors").tags(tags).tag("kind", "exception").register(registry);
+        }
+
+        private void end(DelegateExecution execution) {
+            Long start = startTime(execution.getActivityInstanceId());
+            if (start != null) {
+                long duration = Math.max(0, ClockUtil.getCurrentTime().getTime() - start);
+                (execution.isCanceled() ? canceled : completed).record(duration, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+}
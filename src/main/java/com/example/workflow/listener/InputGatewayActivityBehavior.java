@@ -0,0 +1,63 @@
+package com.example.workflow.listener;
+
+import com.example.workflow.util.GatewayDefaults;
+import org.camunda.bpm.engine.impl.Condition;
+import org.camunda.bpm.engine.impl.bpmn.behavior.ExclusiveGatewayActivityBehavior;
+import org.camunda.bpm.engine.impl.bpmn.helper.BpmnProperties;
+import org.camunda.bpm.engine.impl.bpmn.parser.BpmnParse;
+import org.camunda.bpm.engine.impl.pvm.PvmActivity;
+import org.camunda.bpm.engine.impl.pvm.PvmTransition;
+import org.camunda.bpm.engine.impl.pvm.delegate.ActivityExecution;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Exclusive gateway behavior that picks the outgoing flow of the input variable with one map lookup
+ * when every conditional flow of the gateway is an InputIndexCondition. The input is read once instead
+ * of once per flow. Gateways with other conditions, inputs only JUEL can compare and inputs without a
+ * matching flow take the default behavior, which also handles the default flow and the missing flow error.
+ */
+public class InputGatewayActivityBehavior extends ExclusiveGatewayActivityBehavior {
+
+    /* Built on first use, the outgoing transitions are only complete once the whole scope is parsed */
+    private volatile Map<Long, PvmTransition> flowsByIndex;
+
+    @Override
+    public void doLeave(ActivityExecution execution) {
+        Map<Long, PvmTransition> flows = flowsByIndex;
+        if (flows == null) {
+            flows = indexFlows(execution.getActivity());
+            flowsByIndex = flows;
+        }
+        if (!flows.isEmpty()) {
+            Object value = execution.getVariable(GatewayDefaults.INPUT_VARIABLE);
+            PvmTransition flow = value != null ? flows.get(InputIndexCondition.toIndex(value)) : null;
+            if (flow != null) {
+                execution.leaveActivityViaTransition(flow);
+                return;
+            }
+        }
+        super.doLeave(execution);
+    }
+
+    /**
+     * Maps every index to the first flow comparing the input to it, the one the default behavior would take.
+     * @return the flows by index, empty if a flow has another condition
+     */
+    static Map<Long, PvmTransition> indexFlows(PvmActivity activity) {
+        String defaultFlow = (String) activity.getProperty(BpmnProperties.DEFAULT.getName());
+        Map<Long, PvmTransition> flows = new HashMap<>();
+        for (PvmTransition transition : activity.getOutgoingTransitions()) {
+            Condition condition = (Condition) transition.getProperty(BpmnParse.PROPERTYNAME_CONDITION);
+            if (condition instanceof InputIndexCondition) {
+                flows.putIfAbsent(((InputIndexCondition) condition).getIndex(), transition);
+            } else if (condition != null || !transition.getId().equals(defaultFlow)) {
+                // A flow without condition that is not the default flow is always taken
+                return Collections.emptyMap();
+            }
+        }
+        return flows;
+    }
+}
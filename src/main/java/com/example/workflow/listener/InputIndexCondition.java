@@ -0,0 +1,96 @@
+package com.example.workflow.listener;
+
+import com.example.workflow.util.GatewayDefaults;
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+import org.camunda.bpm.engine.delegate.VariableScope;
+import org.camunda.bpm.engine.impl.Condition;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Condition of the form "${input == N}", the one generated for the flows leaving an exclusive gateway.
+ * The input variable is compared to N directly, with the coercions JUEL applies to integral numbers
+ * and strings. Any other value, or a missing variable, is left to the JUEL condition it replaces, so
+ * results and errors stay the same as without this shortcut.
+ */
+public class InputIndexCondition implements Condition {
+
+    private static final Pattern PATTERN = Pattern.compile(
+            "^\\s*\\$\\{\\s*" + GatewayDefaults.INPUT_VARIABLE + "\\s*==\\s*(\\d{1,18})\\s*}\\s*$");
+
+    private final long index;
+    private final Condition fallback;
+
+    public InputIndexCondition(long index, Condition fallback) {
+        this.index = index;
+        this.fallback = fallback;
+    }
+
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the index compared by a condition expression.
+     * @param expression the condition expression
+     * @return the index, or null if the expression is not of the form "${input == N}"
+     */
+    public static Long parseIndex(String expression) {
+        if (expression == null) {
+            return null;
+        }
+        Matcher matcher = PATTERN.matcher(expression);
+        return matcher.matches() ? Long.valueOf(matcher.group(1)) : null;
+    }
+
+    /**
+     * Converts an input value to the index JUEL would compare it as.
+     * @param value the value of the input variable, not null
+     * @return the index, or null if only JUEL can tell
+     */
+    static Long toIndex(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            String text = (String) value;
+            if (text.isEmpty()) {
+                // JUEL coerces the empty string to 0
+                return 0L;
+            }
+            try {
+                return Long.valueOf(text);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean evaluate(DelegateExecution execution) {
+        return evaluate(execution, execution);
+    }
+
+    @Override
+    public boolean evaluate(VariableScope scope, DelegateExecution execution) {
+        Object value = scope.getVariable(GatewayDefaults.INPUT_VARIABLE);
+        if (value == null) {
+            // JUEL fails on a missing variable and compares null as unequal
+            return scope.hasVariable(GatewayDefaults.INPUT_VARIABLE) ? false : fallback.evaluate(scope, execution);
+        }
+        Long input = toIndex(value);
+        return input != null ? input == index : fallback.evaluate(scope, execution);
+    }
+
+    @Override
+    public boolean tryEvaluate(VariableScope scope, DelegateExecution execution) {
+        Object value = scope.getVariable(GatewayDefaults.INPUT_VARIABLE);
+        if (value == null) {
+            return scope.hasVariable(GatewayDefaults.INPUT_VARIABLE) ? false : fallback.tryEvaluate(scope, execution);
+        }
+        Long input = toIndex(value);
+        return input != null ? input == index : fallback.tryEvaluate(scope, execution);
+    }
+}
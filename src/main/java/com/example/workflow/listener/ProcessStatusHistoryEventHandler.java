@@ -0,0 +1,86 @@
+package com.example.workflow.listener;
+
+import com.example.workflow.service.ProcessStatisticsService;
+import com.example.workflow.service.ProcessStatusSyncService;
+import org.camunda.bpm.engine.history.HistoricProcessInstance;
+import org.camunda.bpm.engine.impl.cfg.TransactionState;
+import org.camunda.bpm.engine.impl.context.Context;
+import org.camunda.bpm.engine.impl.history.event.HistoricProcessInstanceEventEntity;
+import org.camunda.bpm.engine.impl.history.event.HistoryEvent;
+import org.camunda.bpm.engine.impl.history.handler.HistoryEventHandler;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Turns process instance history events into WorkflowProcessInstance status changes
+ * and process statistics updates. Both only happen once the engine transaction committed,
+ * so a rolled back start or suspension is never counted nor written; the status queue is
+ * written by ProcessStatusSyncService outside of the engine transaction.
+ */
+@Component
+public class ProcessStatusHistoryEventHandler implements HistoryEventHandler {
+
+    @Autowired
+    private ProcessStatusSyncService processStatusSyncService;
+
+    @Autowired
+    private ProcessStatisticsService processStatisticsService;
+
+    @Override
+    public void handleEvent(HistoryEvent historyEvent) {
+        if (!(historyEvent instanceof HistoricProcessInstanceEventEntity)) {
+            return;
+        }
+        HistoricProcessInstanceEventEntity event = (HistoricProcessInstanceEventEntity) historyEvent;
+        String processInstanceId = event.getProcessInstanceId();
+        String processDefinitionKey = event.getProcessDefinitionKey();
+        String state = event.getState();
+        Long durationMs = event.getDurationInMillis();
+
+        CommandContext commandContext = Context.getCommandContext();
+        if (commandContext == null) {
+            afterCommit(processInstanceId, processDefinitionKey, state, durationMs);
+        } else {
+            commandContext.getTransactionContext().addTransactionListener(TransactionState.COMMITTED,
+                    context -> afterCommit(processInstanceId, processDefinitionKey, state, durationMs));
+        }
+    }
+
+    @Override
+    public void handleEvents(List<HistoryEvent> historyEvents) {
+        for (HistoryEvent historyEvent : historyEvents) {
+            handleEvent(historyEvent);
+        }
+    }
+
+    private void afterCommit(String processInstanceId, String processDefinitionKey, String state, Long durationMs) {
+        processStatisticsService.onProcessInstanceEvent(processInstanceId, processDefinitionKey, state, durationMs);
+        String status = toStatus(state);
+        if (status != null) {
+            processStatusSyncService.enqueue(processInstanceId, status);
+        }
+    }
+
+    /* Rows of deleted instances are removed, which also covers deletions run by engine batches */
+    private static String toStatus(String state) {
+        if (state == null) {
+            return null;
+        }
+        switch (state) {
+            case HistoricProcessInstance.STATE_ACTIVE:
+                return "ACTIVE";
+            case HistoricProcessInstance.STATE_SUSPENDED:
+                return "SUSPENDED";
+            case HistoricProcessInstance.STATE_COMPLETED:
+            case HistoricProcessInstance.STATE_INTERNALLY_TERMINATED:
+                return "COMPLETED";
+            case HistoricProcessInstance.STATE_EXTERNALLY_TERMINATED:
+                return ProcessStatusSyncService.DELETED;
+            default:
+                return null;
+        }
+    }
+}
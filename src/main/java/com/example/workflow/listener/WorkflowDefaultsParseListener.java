@@ -0,0 +1,121 @@
+package com.example.workflow.listener;
+
+import com.example.workflow.repository.WorkflowRepository;
+import com.example.workflow.repository.WorkflowVersionRepository;
+import com.example.workflow.service.WorkflowService;
+import com.example.workflow.util.GatewayDefaults;
+import org.camunda.bpm.engine.delegate.ExecutionListener;
+import org.camunda.bpm.engine.impl.Condition;
+import org.camunda.bpm.engine.impl.bpmn.helper.BpmnProperties;
+import org.camunda.bpm.engine.impl.bpmn.listener.ClassDelegateExecutionListener;
+import org.camunda.bpm.engine.impl.bpmn.parser.AbstractBpmnParseListener;
+import org.camunda.bpm.engine.impl.bpmn.parser.BpmnParse;
+import org.camunda.bpm.engine.impl.context.Context;
+import org.camunda.bpm.engine.impl.el.UelExpressionCondition;
+import org.camunda.bpm.engine.impl.persistence.entity.DeploymentEntity;
+import org.camunda.bpm.engine.impl.persistence.entity.ProcessDefinitionEntity;
+import org.camunda.bpm.engine.impl.pvm.process.ActivityImpl;
+import org.camunda.bpm.engine.impl.pvm.process.ProcessDefinitionImpl;
+import org.camunda.bpm.engine.impl.pvm.process.ScopeImpl;
+import org.camunda.bpm.engine.impl.pvm.process.TransitionImpl;
+import org.camunda.bpm.engine.impl.util.xml.Element;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Attaches the input conditions of the flows leaving an exclusive gateway (see GatewayDefaults) while the
+ * engine parses a workflow deployment, instead of writing them into the XML. The stored XML stays as modeled
+ * and every parse attaches each default exactly once, so repeated updates cannot duplicate them.
+ * Conditions of the form "${input == N}", generated or modeled, are evaluated by InputIndexCondition and the
+ * gateways use InputGatewayActivityBehavior, so choosing a flow does not go through expression resolution.
+ * Only deployments of saved workflows get these defaults; auto-deployed and REST-deployed models are parsed as modeled.
+ */
+@Component
+public class WorkflowDefaultsParseListener extends AbstractBpmnParseListener {
+
+    /* End event listener older versions wrote into the XML; the class is gone, so the reference is dropped on every parse */
+    public static final String LEGACY_COMPLETION_LISTENER = "com.example.workflow.listener.ProcessCompletionListener";
+
+    /* Outgoing flow IDs of an exclusive gateway in model order, read from its outgoing elements */
+    private static final String OUTGOING_FLOWS_PROPERTY = "defaultConditionFlows";
+    /* Whether the parsed process definition belongs to a workflow deployment, decided once per parse */
+    private static final String WORKFLOW_DEPLOYMENT_PROPERTY = "workflowDeployment";
+
+    @Autowired
+    private WorkflowRepository workflowRepository;
+
+    @Autowired
+    private WorkflowVersionRepository workflowVersionRepository;
+
+    @Override
+    public void parseEndEvent(Element endEventElement, ScopeImpl scope, ActivityImpl activity) {
+        activity.getListeners(ExecutionListener.EVENTNAME_END).removeIf(listener ->
+                listener instanceof ClassDelegateExecutionListener
+                        && LEGACY_COMPLETION_LISTENER.equals(((ClassDelegateExecutionListener) listener).getClassName()));
+    }
+
+    @Override
+    public void parseExclusiveGateway(Element exclusiveGwElement, ScopeImpl scope, ActivityImpl activity) {
+        if (!isWorkflowDeployment(scope.getProcessDefinition())) {
+            return;
+        }
+        List<String> outgoingFlows = new ArrayList<>();
+        for (Element outgoing : exclusiveGwElement.elements("outgoing")) {
+            outgoingFlows.add(outgoing.getText().trim());
+        }
+        activity.setProperty(OUTGOING_FLOWS_PROPERTY, outgoingFlows);
+        activity.setActivityBehavior(new InputGatewayActivityBehavior());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void parseSequenceFlow(Element sequenceFlowElement, ScopeImpl scopeElement, TransitionImpl transition) {
+        ActivityImpl source = transition.getSource();
+        // Only set on the gateways of workflow deployments
+        List<String> outgoingFlows = (List<String>) source.getProperty(OUTGOING_FLOWS_PROPERTY);
+        if (outgoingFlows == null) {
+            return;
+        }
+        Condition condition = (Condition) transition.getProperty(BpmnParse.PROPERTYNAME_CONDITION);
+        if (condition != null) {
+            Long modeledIndex = InputIndexCondition.parseIndex((String) transition.getProperty(BpmnParse.PROPERTYNAME_CONDITION_TEXT));
+            if (modeledIndex != null) {
+                transition.setProperty(BpmnParse.PROPERTYNAME_CONDITION, new InputIndexCondition(modeledIndex, condition));
+            }
+            return;
+        }
+        int index = outgoingFlows.indexOf(transition.getId());
+        boolean isDefaultFlow = transition.getId().equals(source.getProperty(BpmnProperties.DEFAULT.getName()));
+        if (index < 0 || !GatewayDefaults.needsCondition(outgoingFlows.size(), false, isDefaultFlow)) {
+            return;
+        }
+        String conditionText = GatewayDefaults.condition(index);
+        // The JUEL condition is kept for the inputs InputIndexCondition cannot compare itself
+        Condition uelCondition = new UelExpressionCondition(
+                Context.getProcessEngineConfiguration().getExpressionManager().createExpression(conditionText));
+        transition.setProperty(BpmnParse.PROPERTYNAME_CONDITION_TEXT, conditionText);
+        transition.setProperty(BpmnParse.PROPERTYNAME_CONDITION, new InputIndexCondition(index, uelCondition));
+    }
+
+    private boolean isWorkflowDeployment(ProcessDefinitionImpl processDefinition) {
+        Boolean workflowDeployment = (Boolean) processDefinition.getProperty(WORKFLOW_DEPLOYMENT_PROPERTY);
+        if (workflowDeployment == null) {
+            workflowDeployment = isWorkflowDeployment(((ProcessDefinitionEntity) processDefinition).getDeploymentId());
+            processDefinition.setProperty(WORKFLOW_DEPLOYMENT_PROPERTY, workflowDeployment);
+        }
+        return workflowDeployment;
+    }
+
+    private boolean isWorkflowDeployment(String deploymentId) {
+        // A new deployment is found in the entity cache of the deploying command
+        DeploymentEntity deployment = Context.getCommandContext().getDeploymentManager().findDeploymentById(deploymentId);
+        if (deployment != null && WorkflowService.DEPLOYMENT_SOURCE.equals(deployment.getSource())) {
+            return true;
+        }
+        // Workflow deployments made before they were marked with their source
+        return workflowRepository.existsByDeploymentId(deploymentId) || workflowVersionRepository.existsByDeploymentId(deploymentId);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.workflow.payload.request;
+
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+/**
+ * One element level change of a workflow BPMN model.
+ * SET_ATTRIBUTE uses attribute and value (prefix the attribute with "camunda:" for Camunda extension attributes),
+ * RENAME and SET_CONDITION use value, ADD_LISTENER uses event and either listenerClass or delegateExpression.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+
+public class ElementOperationRequest {
+
+    public enum Operation {
+        SET_ATTRIBUTE,
+        RENAME,
+        SET_CONDITION,
+        ADD_LISTENER
+    }
+
+    @NotNull
+    private Operation op;
+
+    @NotBlank
+    private String elementId;
+
+    private String attribute;
+
+    private String value;
+
+    private String event;
+
+    private String listenerClass;
+
+    private String delegateExpression;
+
+	public Operation getOp() {
+		return op;
+	}
+
+	public void setOp(Operation op) {
+		this.op = op;
+	}
+
+	public String getElementId() {
+		return elementId;
+	}
+
+	public void setElementId(String elementId) {
+		this.elementId = elementId;
+	}
+
+	public String getAttribute() {
+		return attribute;
+	}
+
+	public void setAttribute(String attribute) {
+		this.attribute = attribute;
+	}
+
+	public String getValue() {
+		return value;
+	}
+
+	public void setValue(String value) {
+		this.value = value;
+	}
+
+	public String getEvent() {
+		return event;
+	}
+
+	public void setEvent(String event) {
+		this.event = event;
+	}
+
+	public String getListenerClass() {
+		return listenerClass;
+	}
+
+	public void setListenerClass(String listenerClass) {
+		this.listenerClass = listenerClass;
+	}
+
+	public String getDelegateExpression() {
+		return delegateExpression;
+	}
+
+	public void setDelegateExpression(String delegateExpression) {
+		this.delegateExpression = delegateExpression;
+	}
+}
@@ -0,0 +1,90 @@
+package com.example.workflow.payload.request;
+
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One rule of a workflow execution policy, applied to the elements of a type when the workflow is deployed.
+ * elementType is one of ExecutionPolicyService.ELEMENT_TYPES, e.g. SERVICE_TASK.
+ * elementIds narrows the rule to these elements, null applies it to every element of the type.
+ * Attributes left null keep the value of the BPMN XML; rules apply in order, so a later rule wins.
+ * jobPriority is a number or an expression, e.g. ${priority}.
+ * externalTopic turns service tasks into external tasks of this topic, run by the external task workers.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+
+public class ExecutionPolicyRule {
+
+    private String elementType;
+
+    private List<String> elementIds;
+
+    private Boolean asyncBefore;
+
+    private Boolean asyncAfter;
+
+    private Boolean exclusive;
+
+    private String jobPriority;
+
+    private String externalTopic;
+
+	public String getElementType() {
+		return elementType;
+	}
+
+	public void setElementType(String elementType) {
+		this.elementType = elementType;
+	}
+
+	public List<String> getElementIds() {
+		return elementIds;
+	}
+
+	public void setElementIds(List<String> elementIds) {
+		this.elementIds = elementIds;
+	}
+
+	public Boolean getAsyncBefore() {
+		return asyncBefore;
+	}
+
+	public void setAsyncBefore(Boolean asyncBefore) {
+		this.asyncBefore = asyncBefore;
+	}
+
+	public Boolean getAsyncAfter() {
+		return asyncAfter;
+	}
+
+	public void setAsyncAfter(Boolean asyncAfter) {
+		this.asyncAfter = asyncAfter;
+	}
+
+	public Boolean getExclusive() {
+		return exclusive;
+	}
+
+	public void setExclusive(Boolean exclusive) {
+		this.exclusive = exclusive;
+	}
+
+	public String getJobPriority() {
+		return jobPriority;
+	}
+
+	public void setJobPriority(String jobPriority) {
+		this.jobPriority = jobPriority;
+	}
+
+	public String getExternalTopic() {
+		return externalTopic;
+	}
+
+	public void setExternalTopic(String externalTopic) {
+		this.externalTopic = externalTopic;
+	}
+}
@@ -0,0 +1,31 @@
+package com.example.workflow.payload.request;
+
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+
+public class JobExecutorPoolRequest {
+
+    /* Sizes left null keep their current value */
+    private Integer corePoolSize;
+
+    private Integer maxPoolSize;
+
+	public Integer getCorePoolSize() {
+		return corePoolSize;
+	}
+
+	public void setCorePoolSize(Integer corePoolSize) {
+		this.corePoolSize = corePoolSize;
+	}
+
+	public Integer getMaxPoolSize() {
+		return maxPoolSize;
+	}
+
+	public void setMaxPoolSize(Integer maxPoolSize) {
+		this.maxPoolSize = maxPoolSize;
+	}
+}
@@ -0,0 +1,88 @@
+package com.example.workflow.payload.request;
+
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Selects running process instances for a bulk operation.
+ * All given criteria must match; at least one criterion is required.
+ * status is ACTIVE or SUSPENDED.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+
+public class ProcessInstanceFilterRequest {
+
+    private String processDefinitionId;
+
+    private String processDefinitionKey;
+
+    private String deploymentId;
+
+    private String status;
+
+    private Date startedAfter;
+
+    private Date startedBefore;
+
+    /* Only used by the delete operation */
+    private String deleteReason;
+
+	public String getProcessDefinitionId() {
+		return processDefinitionId;
+	}
+
+	public void setProcessDefinitionId(String processDefinitionId) {
+		this.processDefinitionId = processDefinitionId;
+	}
+
+	public String getProcessDefinitionKey() {
+		return processDefinitionKey;
+	}
+
+	public void setProcessDefinitionKey(String processDefinitionKey) {
+		this.processDefinitionKey = processDefinitionKey;
+	}
+
+	public String getDeploymentId() {
+		return deploymentId;
+	}
+
+	public void setDeploymentId(String deploymentId) {
+		this.deploymentId = deploymentId;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	public Date getStartedAfter() {
+		return startedAfter;
+	}
+
+	public void setStartedAfter(Date startedAfter) {
+		this.startedAfter = startedAfter;
+	}
+
+	public Date getStartedBefore() {
+		return startedBefore;
+	}
+
+	public void setStartedBefore(Date startedBefore) {
+		this.startedBefore = startedBefore;
+	}
+
+	public String getDeleteReason() {
+		return deleteReason;
+	}
+
+	public void setDeleteReason(String deleteReason) {
+		this.deleteReason = deleteReason;
+	}
+}
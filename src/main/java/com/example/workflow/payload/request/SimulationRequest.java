@@ -0,0 +1,23 @@
+package com.example.workflow.payload.request;
+
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+
+public class SimulationRequest {
+
+    /* Input values for the gateways in the order they are reached, as submitted by the task forms */
+    private List<Integer> inputs;
+
+	public List<Integer> getInputs() {
+		return inputs;
+	}
+
+	public void setInputs(List<Integer> inputs) {
+		this.inputs = inputs;
+	}
+}
@@ -0,0 +1,50 @@
+package com.example.workflow.payload.response;
+
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@NoArgsConstructor
+
+public class BatchStartResponse {
+
+	/* Process instance IDs in the order of the requests, null where the start failed */
+	private List<String> processInstanceIds;
+
+	/* Error messages by request index */
+	private Map<Integer, String> failures;
+
+	private long durationMs;
+
+	public List<String> getProcessInstanceIds() {
+		return processInstanceIds;
+	}
+
+	public void setProcessInstanceIds(List<String> processInstanceIds) {
+		this.processInstanceIds = processInstanceIds;
+	}
+
+	public Map<Integer, String> getFailures() {
+		return failures;
+	}
+
+	public void setFailures(Map<Integer, String> failures) {
+		this.failures = failures;
+	}
+
+	public long getDurationMs() {
+		return durationMs;
+	}
+
+	public void setDurationMs(long durationMs) {
+		this.durationMs = durationMs;
+	}
+
+	public BatchStartResponse(List<String> processInstanceIds, Map<Integer, String> failures, long durationMs) {
+		super();
+		this.processInstanceIds = processInstanceIds;
+		this.failures = failures;
+		this.durationMs = durationMs;
+	}
+}
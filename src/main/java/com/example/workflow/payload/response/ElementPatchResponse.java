@@ -0,0 +1,46 @@
+package com.example.workflow.payload.response;
+
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+
+public class ElementPatchResponse {
+
+	private String workflowId;
+
+	private int appliedOperations;
+
+	/* The delay after which the batched changes will be deployed */
+	private long deployDelayMs;
+
+	public String getWorkflowId() {
+		return workflowId;
+	}
+
+	public void setWorkflowId(String workflowId) {
+		this.workflowId = workflowId;
+	}
+
+	public int getAppliedOperations() {
+		return appliedOperations;
+	}
+
+	public void setAppliedOperations(int appliedOperations) {
+		this.appliedOperations = appliedOperations;
+	}
+
+	public long getDeployDelayMs() {
+		return deployDelayMs;
+	}
+
+	public void setDeployDelayMs(long deployDelayMs) {
+		this.deployDelayMs = deployDelayMs;
+	}
+
+	public ElementPatchResponse(String workflowId, int appliedOperations, long deployDelayMs) {
+		super();
+		this.workflowId = workflowId;
+		this.appliedOperations = appliedOperations;
+		this.deployDelayMs = deployDelayMs;
+	}
+}
@@ -0,0 +1,36 @@
+package com.example.workflow.repository;
+
+import com.example.workflow.entity.MailOutboxMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface MailOutboxMessageRepository extends JpaRepository<MailOutboxMessage,String> {
+
+    boolean existsByDedupKey(String dedupKey);
+
+    long countByStatus(String status);
+
+    @Query("select m.id from MailOutboxMessage m where m.status = :status and m.nextAttemptAt <= :now order by m.nextAttemptAt asc")
+    List<String> findDueIds(@Param("status") String status, @Param("now") Date now, Pageable pageable);
+
+    /* Moves a message from one status to SENDING; returns 0 when another dispatcher claimed it first */
+    @Transactional
+    @Modifying
+    @Query("update MailOutboxMessage m set m.status = :to, m.claimedAt = :now where m.id = :id and m.status = :from")
+    int claim(@Param("id") String id, @Param("from") String from, @Param("to") String to, @Param("now") Date now);
+
+    /* Moves the messages claimed before a given time back; rows claimed before claims were stamped have no time */
+    @Transactional
+    @Modifying
+    @Query("update MailOutboxMessage m set m.status = :to where m.status = :from and (m.claimedAt is null or m.claimedAt < :claimedBefore)")
+    int updateStaleClaims(@Param("from") String from, @Param("to") String to, @Param("claimedBefore") Date claimedBefore);
+}
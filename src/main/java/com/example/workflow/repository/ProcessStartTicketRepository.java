@@ -0,0 +1,51 @@
+package com.example.workflow.repository;
+
+import com.example.workflow.entity.ProcessStartTicket;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface ProcessStartTicketRepository extends JpaRepository<ProcessStartTicket,String> {
+
+    @Query("select t.id from ProcessStartTicket t where t.status = :status order by t.createdAt asc")
+    List<String> findIdsByStatus(@Param("status") String status, Pageable pageable);
+
+    /* Claims a ticket for a node; returns 0 when another thread or node claimed it first */
+    @Transactional
+    @Modifying
+    @Query("update ProcessStartTicket t set t.status = :to, t.ownerNode = :ownerNode, t.updatedAt = :now where t.id = :id and t.status = :from")
+    int claim(@Param("id") String id, @Param("from") String from, @Param("to") String to,
+              @Param("ownerNode") String ownerNode, @Param("now") Date now);
+
+    /* Records the outcome of a claimed ticket; returns 0 when the ticket is no longer claimed by the node, e.g. after the stale sweep */
+    @Transactional
+    @Modifying
+    @Query("update ProcessStartTicket t set t.status = :to, t.processInstanceId = :processInstanceId, t.error = :error, "
+            + "t.updatedAt = :now where t.id = :id and t.status = :from and t.ownerNode = :ownerNode")
+    int finish(@Param("id") String id, @Param("from") String from, @Param("to") String to,
+               @Param("ownerNode") String ownerNode, @Param("processInstanceId") String processInstanceId,
+               @Param("error") String error, @Param("now") Date now);
+
+    @Transactional
+    @Modifying
+    @Query("update ProcessStartTicket t set t.status = :to, t.error = :error, t.updatedAt = :now "
+            + "where t.status = :from and t.ownerNode = :ownerNode")
+    int updateStatusByOwner(@Param("from") String from, @Param("to") String to, @Param("ownerNode") String ownerNode,
+                            @Param("error") String error, @Param("now") Date now);
+
+    /* Tickets claimed before the cutoff, by any node, including claims made before the owner was recorded */
+    @Transactional
+    @Modifying
+    @Query("update ProcessStartTicket t set t.status = :to, t.error = :error, t.updatedAt = :now "
+            + "where t.status = :from and (t.updatedAt is null or t.updatedAt < :claimedBefore)")
+    int updateStaleClaims(@Param("from") String from, @Param("to") String to, @Param("claimedBefore") Date claimedBefore,
+                          @Param("error") String error, @Param("now") Date now);
+}
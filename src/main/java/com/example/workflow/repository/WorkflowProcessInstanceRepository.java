@@ -1,11 +1,58 @@
 package com.example.workflow.repository;
 
+import com.example.workflow.dto.WorkflowProcessInstanceDto;
 import com.example.workflow.entity.Workflow;
 import com.example.workflow.entity.WorkflowProcessInstance;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 @Repository
 
 public interface WorkflowProcessInstanceRepository extends JpaRepository<WorkflowProcessInstance,String> {
     WorkflowProcessInstance findByProcessInstanceId(String processInstanceId);
+
+    /* A null filter matches every row; the workflow is joined for its name only, its XML is never read */
+    @Query(value = "select new com.example.workflow.dto.WorkflowProcessInstanceDto(p.id, p.processInstanceId, p.processName, w.id, w.name, p.status) "
+            + "from WorkflowProcessInstance p left join p.workflow w "
+            + "where (:status is null or p.status = :status) "
+            + "and (:workflowId is null or w.id = :workflowId) "
+            + "and (:processName is null or p.processName = :processName)",
+            countQuery = "select count(p) from WorkflowProcessInstance p "
+            + "where (:status is null or p.status = :status) "
+            + "and (:workflowId is null or p.workflow.id = :workflowId) "
+            + "and (:processName is null or p.processName = :processName)")
+    Page<WorkflowProcessInstanceDto> findInstances(@Param("status") String status, @Param("workflowId") String workflowId,
+                                                   @Param("processName") String processName, Pageable pageable);
+
+    /* Keyset page: the rows after the given ID in ID order, without counting the matching rows */
+    @Query("select new com.example.workflow.dto.WorkflowProcessInstanceDto(p.id, p.processInstanceId, p.processName, w.id, w.name, p.status) "
+            + "from WorkflowProcessInstance p left join p.workflow w "
+            + "where (:status is null or p.status = :status) "
+            + "and (:workflowId is null or w.id = :workflowId) "
+            + "and (:processName is null or p.processName = :processName) "
+            + "and p.id > :after order by p.id")
+    List<WorkflowProcessInstanceDto> findInstancesAfter(@Param("status") String status, @Param("workflowId") String workflowId,
+                                                        @Param("processName") String processName, @Param("after") String after,
+                                                        Pageable pageable);
+
+    @Query("select p.processInstanceId from WorkflowProcessInstance p where p.processInstanceId in :processInstanceIds")
+    List<String> findExistingProcessInstanceIds(@Param("processInstanceIds") Collection<String> processInstanceIds);
+
+    @Transactional
+    @Modifying
+    @Query("update WorkflowProcessInstance p set p.status = :status where p.processInstanceId in :processInstanceIds")
+    int updateStatusByProcessInstanceIds(@Param("processInstanceIds") Collection<String> processInstanceIds, @Param("status") String status);
+
+    @Transactional
+    @Modifying
+    @Query("delete from WorkflowProcessInstance p where p.processInstanceId in :processInstanceIds")
+    int deleteByProcessInstanceIds(@Param("processInstanceIds") Collection<String> processInstanceIds);
 }
@@ -2,11 +2,31 @@ package com.example.workflow.repository;
 
 import com.example.workflow.entity.Workflow;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 @Repository
 public interface WorkflowRepository extends JpaRepository<Workflow,String> {
     Workflow findWorkflowByDeploymentId(String deploymentId);
+    boolean existsByDeploymentId(String deploymentId);
     Optional<Workflow> findByName(String name);
+
+    @Query("select w.id from Workflow w where w.deploymentId = :deploymentId")
+    String findIdByDeploymentId(@Param("deploymentId") String deploymentId);
+
+    @Query("select w.deploymentId from Workflow w where w.deploymentId is not null")
+    List<String> findAllDeploymentIds();
+
+    /* Stores a redeployment unless the workflow was redeployed since it was read; returns 0 in that case */
+    @Transactional
+    @Modifying
+    @Query("update Workflow w set w.xmlContent = :xmlContent, w.deploymentId = :deploymentId "
+            + "where w.id = :id and w.deploymentId = :expectedDeploymentId")
+    int updateDeployment(@Param("id") String id, @Param("expectedDeploymentId") String expectedDeploymentId,
+                         @Param("xmlContent") String xmlContent, @Param("deploymentId") String deploymentId);
 }
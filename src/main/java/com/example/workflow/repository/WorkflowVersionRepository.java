@@ -0,0 +1,40 @@
+package com.example.workflow.repository;
+
+import com.example.workflow.dto.WorkflowVersionDto;
+import com.example.workflow.entity.WorkflowVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+
+@Repository
+public interface WorkflowVersionRepository extends JpaRepository<WorkflowVersion,String> {
+
+    WorkflowVersion findTopByWorkflowIdOrderByVersionNumberDesc(String workflowId);
+
+    /* Locks the latest version until the transaction ends, so concurrent saves of a workflow number their versions one after the other */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    WorkflowVersion findFirstByWorkflowIdOrderByVersionNumberDesc(String workflowId);
+
+    WorkflowVersion findTopByWorkflowIdAndSnapshotTrueAndVersionNumberLessThanEqualOrderByVersionNumberDesc(String workflowId, int versionNumber);
+
+    List<WorkflowVersion> findByWorkflowIdAndVersionNumberBetweenOrderByVersionNumberAsc(String workflowId, int from, int to);
+
+    @Query("select new com.example.workflow.dto.WorkflowVersionDto(v.versionNumber, v.snapshot, v.contentSize, v.storedSize, v.deploymentId, v.createdAt) "
+            + "from WorkflowVersion v where v.workflowId = :workflowId order by v.versionNumber asc")
+    List<WorkflowVersionDto> findVersionsByWorkflowId(@Param("workflowId") String workflowId);
+
+    @Query("select distinct v.deploymentId from WorkflowVersion v where v.workflowId = :workflowId and v.deploymentId is not null")
+    List<String> findDeploymentIdsByWorkflowId(@Param("workflowId") String workflowId);
+
+    boolean existsByDeploymentId(String deploymentId);
+
+    @Modifying
+    @Query("delete from WorkflowVersion v where v.workflowId = :workflowId")
+    int deleteByWorkflowId(@Param("workflowId") String workflowId);
+}
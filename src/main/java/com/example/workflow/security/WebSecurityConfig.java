@@ -59,6 +59,7 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                 .antMatchers("/api/test/**").permitAll()
                 .antMatchers("/form/**", "/process/**", "/task/**", "/workflow/**").permitAll()
                 .antMatchers("/camunda/**", "/backend/camunda/**").permitAll() // Ajoutez votre URL spécifique ici
+                .antMatchers("/actuator/health/**").permitAll()
                 .anyRequest().authenticated();
 
         http.addFilterBefore(authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class);
@@ -0,0 +1,205 @@
+/**
+ * ActivityHeatmapService computes per-activity visit counts and durations of a process definition
+ * version from the activity history, to spot bottleneck activities on the diagram.
+ * The first request streams the whole activity history of the version once; the result is cached
+ * and later requests only read the activities that ended after the last one already counted, less a window
+ * for rows committed late (async jobs, long transactions), whose end time can be older than rows already seen.
+ * Rows of that window are recognized by their ID, so none is counted twice. Rows committed later than the
+ * window are missed until the heatmap is computed again. Heatmaps of undeployed versions are evicted, at most
+ * heatmapMaxCached are kept, and all are dropped when history is deleted.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.dto.ActivityHeatDto;
+import com.example.workflow.dto.ActivityHeatmapDto;
+import com.example.workflow.util.DurationHistogram;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.camunda.bpm.engine.repository.ProcessDefinitionQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+@Service
+public class ActivityHeatmapService {
+
+    /* Ordered by end time so that the watermark only moves forward and the window of recent IDs stays ordered */
+    private static final String ENDED_ACTIVITIES_SINCE =
+            "select ID_, ACT_ID_, ACT_NAME_, ACT_TYPE_, DURATION_, END_TIME_ from ACT_HI_ACTINST "
+            + "where PROC_DEF_ID_ = ? and END_TIME_ >= ? order by END_TIME_";
+
+    private final RepositoryService repositoryService;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Heatmap> heatmaps = new ConcurrentHashMap<>();
+
+    /* Rows committed up to this long after their end time are still counted, by default the job lock time */
+    @Value("${flowvioo.app.heatmapLateCommitWindowMs:${camunda.bpm.job-execution.lock-time-in-millis:300000}}")
+    private long lateCommitWindowMs;
+
+    @Value("${flowvioo.app.heatmapMaxCached:200}")
+    private int maxCached;
+
+    public ActivityHeatmapService(RepositoryService repositoryService, JdbcTemplate jdbcTemplate) {
+        this.repositoryService = repositoryService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Returns the activity heatmap of a process definition version, bringing it up to date first.
+     * @param processDefinitionKey the key of the process definition
+     * @param version the version, or null for the latest version
+     * @return the heatmap, or empty if the process definition does not exist
+     */
+    public Optional<ActivityHeatmapDto> getHeatmap(String processDefinitionKey, Integer version) {
+        ProcessDefinitionQuery query = repositoryService.createProcessDefinitionQuery()
+                .processDefinitionKey(processDefinitionKey);
+        if (version != null) {
+            query.processDefinitionVersion(version);
+        } else {
+            query.latestVersion();
+        }
+        ProcessDefinition processDefinition = query.singleResult();
+        if (processDefinition == null) {
+            return Optional.empty();
+        }
+
+        Heatmap heatmap = heatmaps.computeIfAbsent(processDefinition.getId(), id -> new Heatmap(lateCommitWindowMs));
+        heatmap.lastUsedAt = System.currentTimeMillis();
+        if (heatmaps.size() > maxCached) {
+            evict();
+        }
+        synchronized (heatmap) {
+            refresh(processDefinition.getId(), heatmap);
+            return Optional.of(heatmap.toDto(processDefinition));
+        }
+    }
+
+    /**
+     * Drops the cached heatmap of a process definition version, e.g. after its history was deleted.
+     * @param processDefinitionId the ID of the process definition version
+     */
+    public void invalidate(String processDefinitionId) {
+        heatmaps.remove(processDefinitionId);
+    }
+
+    /**
+     * Drops every cached heatmap, e.g. after history of several versions was deleted.
+     */
+    public void invalidateAll() {
+        heatmaps.clear();
+    }
+
+    /**
+     * Drops the heatmaps of undeployed versions, then the least recently used ones above heatmapMaxCached.
+     */
+    @Scheduled(fixedDelayString = "${flowvioo.app.heatmapEvictMs:3600000}")
+    public synchronized void evict() {
+        if (heatmaps.isEmpty()) {
+            return;
+        }
+        Set<String> deployed = repositoryService.createProcessDefinitionQuery()
+                .processDefinitionIdIn(heatmaps.keySet().toArray(new String[0]))
+                .list().stream()
+                .map(ProcessDefinition::getId)
+                .collect(Collectors.toSet());
+        heatmaps.keySet().retainAll(deployed);
+        if (heatmaps.size() > maxCached) {
+            heatmaps.entrySet().stream()
+                    .sorted(Comparator.comparingLong(entry -> entry.getValue().lastUsedAt))
+                    .limit(heatmaps.size() - maxCached)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList())
+                    .forEach(heatmaps::remove);
+        }
+    }
+
+    private void refresh(String processDefinitionId, Heatmap heatmap) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ENDED_ACTIVITIES_SINCE,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // Makes the MySQL driver stream the rows instead of reading the whole result into memory
+            statement.setFetchSize(Integer.MIN_VALUE);
+            statement.setString(1, processDefinitionId);
+            statement.setTimestamp(2, new Timestamp(Math.max(0, heatmap.watermark - heatmap.lateCommitWindowMs)));
+            return statement;
+        }, resultSet -> {
+            heatmap.add(resultSet.getString(1), resultSet.getString(2), resultSet.getString(3), resultSet.getString(4),
+                    resultSet.getLong(5), resultSet.getTimestamp(6).getTime());
+        });
+    }
+
+    private static final class Heatmap {
+        private final Map<String, ActivityStats> activities = new LinkedHashMap<>();
+        private final long lateCommitWindowMs;
+        /* Largest end time counted so far, in epoch milliseconds */
+        private long watermark;
+        /* End time of each counted activity of the late commit window, oldest first, so re-read rows count once */
+        private final Map<String, Long> recentIds = new LinkedHashMap<>();
+        private volatile long lastUsedAt;
+
+        private Heatmap(long lateCommitWindowMs) {
+            this.lateCommitWindowMs = lateCommitWindowMs;
+        }
+
+        private void add(String id, String activityId, String activityName, String activityType, long durationMs, long endTime) {
+            if (recentIds.putIfAbsent(id, endTime) != null) {
+                return;
+            }
+            watermark = Math.max(watermark, endTime);
+            // Rows come in end time order, so the IDs that left the window are at the head
+            Iterator<Long> endTimes = recentIds.values().iterator();
+            while (endTimes.hasNext() && endTimes.next() < watermark - lateCommitWindowMs) {
+                endTimes.remove();
+            }
+            activities.computeIfAbsent(activityId, key -> new ActivityStats(activityName, activityType))
+                    .histogram.record(durationMs);
+        }
+
+        private ActivityHeatmapDto toDto(ProcessDefinition processDefinition) {
+            long slowest = 0;
+            for (ActivityStats stats : activities.values()) {
+                slowest = Math.max(slowest, stats.histogram.getPercentile(95));
+            }
+            List<ActivityHeatDto> heat = new ArrayList<>();
+            for (Map.Entry<String, ActivityStats> entry : activities.entrySet()) {
+                DurationHistogram histogram = entry.getValue().histogram;
+                long p95 = histogram.getPercentile(95);
+                heat.add(new ActivityHeatDto(entry.getKey(), entry.getValue().name, entry.getValue().type,
+                        histogram.getCount(), histogram.getMean(), p95, histogram.getMax(),
+                        slowest > 0 ? (double) p95 / slowest : 0));
+            }
+            heat.sort(Comparator.comparingLong(ActivityHeatDto::getP95DurationMs).reversed());
+            Date computedUntil = watermark > 0 ? new Date(watermark) : null;
+            return new ActivityHeatmapDto(processDefinition.getId(), processDefinition.getKey(),
+                    processDefinition.getVersion(), computedUntil, heat);
+        }
+    }
+
+    private static final class ActivityStats {
+        private final String name;
+        private final String type;
+        private final DurationHistogram histogram = new DurationHistogram();
+
+        private ActivityStats(String name, String type) {
+            this.name = name;
+            this.type = type;
+        }
+    }
+}
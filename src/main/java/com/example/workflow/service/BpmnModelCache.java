@@ -0,0 +1,87 @@
+/**
+ * BpmnModelCache keeps the parsed BPMN model instance of each workflow in memory,
+ * so that element level edits and model queries do not re-parse the stored XML.
+ * Model instances are not thread safe: callers synchronize on the returned instance
+ * while reading or mutating it. Element patches mutate the cached instance in place
+ * and bump its revision, so readers that derive data from a model can tell it changed.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.entity.Workflow;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class BpmnModelCache {
+
+    private final Map<String, BpmnModelInstance> models = new ConcurrentHashMap<>();
+    private final Map<String, Long> revisions = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the cached model of a workflow, parsing its stored XML on first access.
+     * @param workflow the workflow
+     * @return the model instance of the workflow
+     */
+    public BpmnModelInstance get(Workflow workflow) {
+        if (workflow.getXmlContent() == null) {
+            throw new IllegalArgumentException("Workflow " + workflow.getId() + " has no XML content");
+        }
+        return models.computeIfAbsent(workflow.getId(), id -> Bpmn.readModelFromStream(
+                new ByteArrayInputStream(workflow.getXmlContent().getBytes(StandardCharsets.UTF_8))));
+    }
+
+    /**
+     * Returns the cached model of a workflow without loading it.
+     * @param workflowId the ID of the workflow
+     * @return the cached model instance, or null if it is not cached
+     */
+    public BpmnModelInstance getIfPresent(String workflowId) {
+        return models.get(workflowId);
+    }
+
+    /**
+     * Returns the revision of the cached model of a workflow, which changes whenever it is mutated in place.
+     * @param workflowId the ID of the workflow
+     * @return the revision of the model
+     */
+    public long revision(String workflowId) {
+        return revisions.getOrDefault(workflowId, 0L);
+    }
+
+    /**
+     * Records that the cached model of a workflow was mutated in place.
+     * Called while holding the lock of the model instance.
+     * @param workflowId the ID of the workflow
+     */
+    public void modified(String workflowId) {
+        revisions.merge(workflowId, 1L, Long::sum);
+    }
+
+    /**
+     * Drops the cached model of a workflow if it is still the given instance.
+     * @param workflowId the ID of the workflow
+     * @param expected   the model instance to drop
+     */
+    public void invalidate(String workflowId, BpmnModelInstance expected) {
+        if (workflowId != null) {
+            models.remove(workflowId, expected);
+        }
+    }
+
+    /**
+     * Drops the cached model of a workflow, e.g. after its XML was replaced.
+     * @param workflowId the ID of the workflow
+     */
+    public void invalidate(String workflowId) {
+        if (workflowId != null) {
+            models.remove(workflowId);
+        }
+    }
+}
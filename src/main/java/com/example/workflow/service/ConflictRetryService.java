@@ -0,0 +1,163 @@
+/**
+ * ConflictRetryService runs engine mutations that can hit an OptimisticLockingException, typically user tasks
+ * of parallel branches completed at the same time, and runs them again after a short random backoff.
+ * The operation must be a whole unit of work, outside of any surrounding transaction, and safe to run again.
+ * Conflicts are counted per process definition key and activity, as Micrometer counters and for the
+ * /process/conflicts endpoint, so the activities that conflict most can be found and remodeled.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.dto.ConflictStatsDto;
+import com.example.workflow.exception.ConcurrentUpdateException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.camunda.bpm.engine.OptimisticLockingException;
+import org.camunda.bpm.engine.RepositoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+@Service
+public class ConflictRetryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConflictRetryService.class);
+
+    private static final String NO_ACTIVITY = "-";
+
+    private final RepositoryService repositoryService;
+    private final MeterRegistry meterRegistry;
+    /* Conflict counts by process definition key and activity ID */
+    private final Map<List<String>, ConflictCounts> conflicts = new ConcurrentHashMap<>();
+
+    @Value("${flowvioo.app.conflictRetryMaxAttempts:4}")
+    private int maxAttempts;
+
+    @Value("${flowvioo.app.conflictRetryBackoffMs:50}")
+    private long backoffMs;
+
+    @Value("${flowvioo.app.conflictRetryMaxBackoffMs:1000}")
+    private long maxBackoffMs;
+
+    public ConflictRetryService(RepositoryService repositoryService, MeterRegistry meterRegistry) {
+        this.repositoryService = repositoryService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs an operation, running it again while it fails on an optimistic locking conflict.
+     * Between attempts it waits a random time up to a limit that doubles with every attempt.
+     * @param processDefinitionId the process definition the operation works on, for the conflict counts
+     * @param activityId the activity the operation works on, or null for instance level operations
+     * @param operation the operation
+     * @param <T> the result type
+     * @return the result of the operation
+     * @throws ConcurrentUpdateException if the last attempt still conflicted
+     */
+    public <T> T execute(String processDefinitionId, String activityId, Supplier<T> operation) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return operation.get();
+            } catch (RuntimeException e) {
+                OptimisticLockingException conflict = conflictOf(e);
+                if (conflict == null) {
+                    throw e;
+                }
+                ConflictCounts counts = counts(processDefinitionId, activityId);
+                counts.conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    counts.exhausted.increment();
+                    counts.count("exhausted");
+                    logger.warn("Concurrent update of {}/{} still conflicting after {} attempts",
+                            counts.processDefinitionKey, counts.activityId, attempt);
+                    throw new ConcurrentUpdateException("The process instance was changed concurrently, please try again", conflict);
+                }
+                counts.retried.increment();
+                counts.count("retried");
+                backOff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Runs an operation without result, see execute.
+     * @param processDefinitionId the process definition the operation works on
+     * @param activityId the activity the operation works on, or null for instance level operations
+     * @param operation the operation
+     * @throws ConcurrentUpdateException if the last attempt still conflicted
+     */
+    public void run(String processDefinitionId, String activityId, Runnable operation) {
+        execute(processDefinitionId, activityId, () -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    /**
+     * Returns the conflict counts of every activity that had a conflict, most conflicts first.
+     * @return the conflict counts
+     */
+    public List<ConflictStatsDto> getConflicts() {
+        return conflicts.values().stream()
+                .map(counts -> new ConflictStatsDto(counts.processDefinitionKey, counts.activityId,
+                        counts.conflicts.sum(), counts.retried.sum(), counts.exhausted.sum()))
+                .sorted(Comparator.comparingLong(ConflictStatsDto::getConflicts).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private void backOff(int attempt) {
+        long limit = Math.min(maxBackoffMs, backoffMs << Math.min(attempt - 1, 20));
+        try {
+            // Full jitter, so that the conflicting requests do not collide again
+            Thread.sleep(ThreadLocalRandom.current().nextLong(limit + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrentUpdateException("Interrupted while waiting to retry a concurrent update", e);
+        }
+    }
+
+    private ConflictCounts counts(String processDefinitionId, String activityId) {
+        // Only resolved on conflicts, the engine caches the definitions
+        String processDefinitionKey = processDefinitionId != null
+                ? repositoryService.getProcessDefinition(processDefinitionId).getKey() : NO_ACTIVITY;
+        String activity = activityId != null ? activityId : NO_ACTIVITY;
+        return conflicts.computeIfAbsent(List.of(processDefinitionKey, activity),
+                key -> new ConflictCounts(processDefinitionKey, activity));
+    }
+
+    private static OptimisticLockingException conflictOf(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockingException) {
+                return (OptimisticLockingException) cause;
+            }
+        }
+        return null;
+    }
+
+    private final class ConflictCounts {
+        private final String processDefinitionKey;
+        private final String activityId;
+        private final LongAdder conflicts = new LongAdder();
+        private final LongAdder retried = new LongAdder();
+        private final LongAdder exhausted = new LongAdder();
+
+        private ConflictCounts(String processDefinitionKey, String activityId) {
+            this.processDefinitionKey = processDefinitionKey;
+            this.activityId = activityId;
+        }
+
+        private void count(String outcome) {
+            meterRegistry.counter("engine.conflicts", "process", processDefinitionKey, "activity", activityId,
+                    "outcome", outcome).increment();
+        }
+    }
+}
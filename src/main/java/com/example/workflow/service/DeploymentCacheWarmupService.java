@@ -0,0 +1,134 @@
+/**
+ * DeploymentCacheWarmupService preloads the process engine deployment cache when the application starts.
+ * Without it, the first process start or model query of each workflow after a restart pays for
+ * BPMN parsing on the request path.
+ *
+ * The warm-up runs inside the ApplicationReadyEvent listener. Spring Boot only switches the
+ * readiness state to ACCEPTING_TRAFFIC once every ready listener has returned, so the readiness
+ * probe reports the instance as ready only after the warm-up finished.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.dto.WarmupReportDto;
+import com.example.workflow.repository.WorkflowRepository;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class DeploymentCacheWarmupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeploymentCacheWarmupService.class);
+
+    private final RepositoryService repositoryService;
+
+    @Autowired
+    private WorkflowRepository workflowRepository;
+
+    @Autowired
+    private ProcessDefinitionLookupCache processDefinitionLookupCache;
+
+    @Value("${flowvioo.app.warmupEnabled:true}")
+    private boolean warmupEnabled;
+
+    @Value("${flowvioo.app.warmupParallelism:4}")
+    private int warmupParallelism;
+
+    private volatile WarmupReportDto lastReport;
+
+    public DeploymentCacheWarmupService(RepositoryService repositoryService) {
+        this.repositoryService = repositoryService;
+    }
+
+    /**
+     * Runs the warm-up once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!warmupEnabled) {
+            logger.info("Deployment cache warm-up is disabled");
+            return;
+        }
+        warmUp();
+    }
+
+    /**
+     * Loads the process definitions and BPMN model instances of every workflow deployment into the engine caches.
+     * Deployments are processed in parallel; a deployment that fails to load is counted and skipped.
+     * @return the warm-up report
+     */
+    public WarmupReportDto warmUp() {
+        long start = System.currentTimeMillis();
+        List<String> deploymentIds = workflowRepository.findAllDeploymentIds();
+        AtomicInteger definitions = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, warmupParallelism));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String deploymentId : deploymentIds) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        definitions.addAndGet(warmUpDeployment(deploymentId));
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                        logger.warn("Failed to warm up deployment {}: {}", deploymentId, e.getMessage());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.warn("Deployment cache warm-up failed: {}", e.getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long durationMs = System.currentTimeMillis() - start;
+        lastReport = new WarmupReportDto(deploymentIds.size(), definitions.get(), failures.get(), durationMs);
+        logger.info("Warmed up {} process definitions from {} deployments in {} ms ({} failed)",
+                definitions.get(), deploymentIds.size(), durationMs, failures.get());
+        return lastReport;
+    }
+
+    /**
+     * Returns the report of the last warm-up.
+     * @return the last warm-up report, or null if no warm-up ran yet
+     */
+    public WarmupReportDto getLastReport() {
+        return lastReport;
+    }
+
+    private int warmUpDeployment(String deploymentId) {
+        List<ProcessDefinition> processDefinitions = repositoryService.createProcessDefinitionQuery()
+                .deploymentId(deploymentId)
+                .list();
+        for (ProcessDefinition processDefinition : processDefinitions) {
+            // Parses the BPMN into the deployment cache, then caches the model instance used by model queries
+            repositoryService.getProcessDefinition(processDefinition.getId());
+            repositoryService.getBpmnModelInstance(processDefinition.getId());
+        }
+        if (processDefinitions.size() == 1) {
+            processDefinitionLookupCache.get(deploymentId);
+        }
+        return processDefinitions.size();
+    }
+}
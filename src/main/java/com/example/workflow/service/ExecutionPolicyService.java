@@ -0,0 +1,159 @@
+/**
+ * ExecutionPolicyService applies the execution policy of a workflow to its BPMN model during enrichment.
+ * A policy marks element types as asynchronous continuations, so that e.g. completing a user task
+ * commits as soon as the task is done and the following service or send task runs on the job executor
+ * instead of in the caller's transaction. Service tasks can also be turned into external tasks, which
+ * the external task workers fetch and run outside of the engine transaction.
+ * Policies are stored on the workflow as a JSON list of rules.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.payload.request.ExecutionPolicyRule;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.impl.BpmnModelConstants;
+import org.camunda.bpm.model.bpmn.instance.BusinessRuleTask;
+import org.camunda.bpm.model.bpmn.instance.CallActivity;
+import org.camunda.bpm.model.bpmn.instance.EndEvent;
+import org.camunda.bpm.model.bpmn.instance.ExclusiveGateway;
+import org.camunda.bpm.model.bpmn.instance.FlowNode;
+import org.camunda.bpm.model.bpmn.instance.ScriptTask;
+import org.camunda.bpm.model.bpmn.instance.SendTask;
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.camunda.bpm.model.bpmn.instance.UserTask;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class ExecutionPolicyService {
+
+    public static final Map<String, Class<? extends FlowNode>> ELEMENT_TYPES = new LinkedHashMap<>();
+
+    static {
+        ELEMENT_TYPES.put("SERVICE_TASK", ServiceTask.class);
+        ELEMENT_TYPES.put("SEND_TASK", SendTask.class);
+        ELEMENT_TYPES.put("USER_TASK", UserTask.class);
+        ELEMENT_TYPES.put("SCRIPT_TASK", ScriptTask.class);
+        ELEMENT_TYPES.put("BUSINESS_RULE_TASK", BusinessRuleTask.class);
+        ELEMENT_TYPES.put("CALL_ACTIVITY", CallActivity.class);
+        ELEMENT_TYPES.put("EXCLUSIVE_GATEWAY", ExclusiveGateway.class);
+        ELEMENT_TYPES.put("END_EVENT", EndEvent.class);
+    }
+
+    private static final TypeReference<List<ExecutionPolicyRule>> RULES = new TypeReference<List<ExecutionPolicyRule>>() {};
+
+    private final ObjectMapper objectMapper;
+
+    public ExecutionPolicyService(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Validates policy rules and converts them to the JSON stored on the workflow.
+     * @param rules the policy rules
+     * @return the policy as JSON
+     * @throws IllegalArgumentException if a rule has an unknown element type, an invalid job priority
+     * or an external topic on another element type than SERVICE_TASK
+     */
+    public String write(List<ExecutionPolicyRule> rules) {
+        if (rules == null) {
+            throw new IllegalArgumentException("Execution policy cannot be null");
+        }
+        for (ExecutionPolicyRule rule : rules) {
+            validate(rule);
+        }
+        try {
+            return objectMapper.writeValueAsString(rules);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid execution policy: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the policy rules stored on a workflow.
+     * @param executionPolicy the policy as JSON, may be null
+     * @return the policy rules, empty if there is no policy
+     */
+    public List<ExecutionPolicyRule> read(String executionPolicy) {
+        if (executionPolicy == null || executionPolicy.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            return objectMapper.readValue(executionPolicy, RULES);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid execution policy: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies a policy to every element of the matching types in a BPMN model.
+     * Attributes a rule leaves null keep the value of the XML.
+     * @param modelInstance the BPMN model instance
+     * @param executionPolicy the policy as JSON, may be null
+     * @throws IllegalArgumentException if the policy is invalid
+     */
+    public void apply(BpmnModelInstance modelInstance, String executionPolicy) {
+        for (ExecutionPolicyRule rule : read(executionPolicy)) {
+            validate(rule);
+            for (FlowNode flowNode : modelInstance.getModelElementsByType(ELEMENT_TYPES.get(rule.getElementType()))) {
+                if (rule.getElementIds() != null && !rule.getElementIds().contains(flowNode.getId())) {
+                    continue;
+                }
+                if (rule.getAsyncBefore() != null) {
+                    flowNode.setCamundaAsyncBefore(rule.getAsyncBefore());
+                }
+                if (rule.getAsyncAfter() != null) {
+                    flowNode.setCamundaAsyncAfter(rule.getAsyncAfter());
+                }
+                if (rule.getExclusive() != null) {
+                    flowNode.setCamundaExclusive(rule.getExclusive());
+                }
+                if (rule.getJobPriority() != null) {
+                    flowNode.setCamundaJobPriority(rule.getJobPriority());
+                }
+                if (rule.getExternalTopic() != null) {
+                    makeExternal((ServiceTask) flowNode, rule.getExternalTopic());
+                }
+            }
+        }
+    }
+
+    private static void makeExternal(ServiceTask serviceTask, String topic) {
+        // The engine picks the first implementation attribute it finds, the delegate ones must go
+        serviceTask.removeAttributeNs(BpmnModelConstants.CAMUNDA_NS, BpmnModelConstants.CAMUNDA_ATTRIBUTE_CLASS);
+        serviceTask.removeAttributeNs(BpmnModelConstants.CAMUNDA_NS, BpmnModelConstants.CAMUNDA_ATTRIBUTE_EXPRESSION);
+        serviceTask.removeAttributeNs(BpmnModelConstants.CAMUNDA_NS, BpmnModelConstants.CAMUNDA_ATTRIBUTE_DELEGATE_EXPRESSION);
+        serviceTask.setCamundaType("external");
+        serviceTask.setCamundaTopic(topic);
+    }
+
+    private static void validate(ExecutionPolicyRule rule) {
+        if (rule.getElementType() == null || !ELEMENT_TYPES.containsKey(rule.getElementType())) {
+            throw new IllegalArgumentException("Unknown element type " + rule.getElementType()
+                    + ", expected one of " + ELEMENT_TYPES.keySet());
+        }
+        if (rule.getExternalTopic() != null
+                && (!"SERVICE_TASK".equals(rule.getElementType()) || rule.getExternalTopic().trim().isEmpty())) {
+            throw new IllegalArgumentException("An external topic must be a non empty topic on a SERVICE_TASK rule");
+        }
+        validateJobPriority(rule.getJobPriority());
+    }
+
+    private static void validateJobPriority(String jobPriority) {
+        if (jobPriority == null || jobPriority.startsWith("${") || jobPriority.startsWith("#{")) {
+            return;
+        }
+        try {
+            Long.parseLong(jobPriority);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Job priority must be a number or an expression: " + jobPriority);
+        }
+    }
+}
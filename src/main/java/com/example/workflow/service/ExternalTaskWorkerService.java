@@ -0,0 +1,258 @@
+/**
+ * ExternalTaskWorkerService runs the embedded external task workers of this node.
+ * Service tasks turned into external tasks by the execution policy are fetched and locked in
+ * batches for the topics of the ExternalTaskWorkerHandler beans, run on a dedicated executor
+ * outside of any engine transaction, and completed in bulk. Every node has its own worker ID and
+ * the engine only hands a locked task to one worker, so nodes can be added to scale this work
+ * independently of the API. Fetching polls the engine directly and backs off while there is no work.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.delegate.ExternalTaskWorkerHandler;
+import org.camunda.bpm.engine.ExternalTaskService;
+import org.camunda.bpm.engine.delegate.BpmnError;
+import org.camunda.bpm.engine.externaltask.ExternalTaskQueryBuilder;
+import org.camunda.bpm.engine.externaltask.LockedExternalTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class ExternalTaskWorkerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExternalTaskWorkerService.class);
+
+    private static final long MIN_IDLE_MS = 100;
+
+    private final ExternalTaskService externalTaskService;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, ExternalTaskWorkerHandler> handlers = new HashMap<>();
+    private final Queue<Result> results = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final String workerId;
+
+    @Value("${flowvioo.app.externalTaskWorkerEnabled:true}")
+    private boolean enabled;
+
+    @Value("${flowvioo.app.externalTaskWorkerThreads:4}")
+    private int threads;
+
+    @Value("${flowvioo.app.externalTaskFetchSize:20}")
+    private int fetchSize;
+
+    @Value("${flowvioo.app.externalTaskLockMs:60000}")
+    private long lockMs;
+
+    @Value("${flowvioo.app.externalTaskMaxIdleMs:5000}")
+    private long maxIdleMs;
+
+    @Value("${flowvioo.app.externalTaskRetries:3}")
+    private int retries;
+
+    @Value("${flowvioo.app.externalTaskRetryTimeoutMs:30000}")
+    private long retryTimeoutMs;
+
+    private ExecutorService handlerExecutor;
+    private Thread poller;
+    private volatile boolean running;
+
+    public ExternalTaskWorkerService(ExternalTaskService externalTaskService, PlatformTransactionManager transactionManager) {
+        this.externalTaskService = externalTaskService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workerId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @Autowired(required = false)
+    public void setHandlers(List<ExternalTaskWorkerHandler> handlerBeans) {
+        for (ExternalTaskWorkerHandler handler : handlerBeans) {
+            if (handlers.put(handler.getTopic(), handler) != null) {
+                throw new IllegalStateException("More than one external task handler for topic " + handler.getTopic());
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || handlers.isEmpty()) {
+            return;
+        }
+        handlerExecutor = Executors.newFixedThreadPool(Math.max(1, threads));
+        running = true;
+        poller = new Thread(this::poll, "external-task-poller");
+        poller.setDaemon(true);
+        poller.start();
+        logger.info("External task worker {} started for topics {}", workerId, handlers.keySet());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        poller.interrupt();
+        poller.join(TimeUnit.SECONDS.toMillis(10));
+        handlerExecutor.shutdown();
+        // Tasks still running keep their lock until it expires and are then fetched again
+        handlerExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        completeResults();
+    }
+
+    private void poll() {
+        long idleMs = MIN_IDLE_MS;
+        while (running) {
+            try {
+                completeResults();
+                // Keeps about two batches per thread in flight, so handler threads never wait on a fetch
+                int capacity = Math.min(fetchSize, Math.max(1, threads) * 2 - inFlight.get());
+                List<LockedExternalTask> tasks = capacity > 0 ? fetch(capacity) : new ArrayList<>();
+                for (LockedExternalTask task : tasks) {
+                    inFlight.incrementAndGet();
+                    handlerExecutor.execute(() -> run(task));
+                }
+                if (tasks.isEmpty()) {
+                    // Only back off when idle, results of running tasks must still be reported quickly
+                    Thread.sleep(inFlight.get() > 0 ? MIN_IDLE_MS : idleMs);
+                    idleMs = Math.min(idleMs * 2, maxIdleMs);
+                } else {
+                    idleMs = MIN_IDLE_MS;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.warn("External task worker {} failed to poll: {}", workerId, e.getMessage());
+                try {
+                    Thread.sleep(maxIdleMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private List<LockedExternalTask> fetch(int maxTasks) {
+        ExternalTaskQueryBuilder query = externalTaskService.fetchAndLock(maxTasks, workerId, true);
+        for (String topic : handlers.keySet()) {
+            query = query.topic(topic, lockMs);
+        }
+        return query.execute();
+    }
+
+    private void run(LockedExternalTask task) {
+        try {
+            Map<String, Object> variables = handlers.get(task.getTopicName()).handle(task);
+            results.add(Result.completed(task, variables));
+        } catch (BpmnError e) {
+            results.add(Result.bpmnError(task, e));
+        } catch (Exception e) {
+            results.add(Result.failed(task, e));
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Reports the finished tasks to the engine. Completions share one transaction; if one of them fails,
+     * e.g. because its lock expired, they are reported one by one so the others still complete.
+     */
+    private void completeResults() {
+        List<Result> batch = new ArrayList<>();
+        Result result;
+        while ((result = results.poll()) != null) {
+            batch.add(result);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(this::report));
+        } catch (RuntimeException e) {
+            for (Result single : batch) {
+                try {
+                    report(single);
+                } catch (RuntimeException singleFailure) {
+                    logger.warn("Could not report external task {}: {}", single.task.getId(), singleFailure.getMessage());
+                }
+            }
+        }
+    }
+
+    private void report(Result result) {
+        String taskId = result.task.getId();
+        if (result.bpmnError != null) {
+            externalTaskService.handleBpmnError(taskId, workerId, result.bpmnError.getErrorCode(), result.bpmnError.getMessage());
+        } else if (result.failure != null) {
+            int remaining = (result.task.getRetries() != null ? result.task.getRetries() : retries) - 1;
+            externalTaskService.handleFailure(taskId, workerId, result.failure.getMessage(), stackTrace(result.failure),
+                    Math.max(0, remaining), retryTimeoutMs);
+        } else {
+            externalTaskService.complete(taskId, workerId, result.variables);
+        }
+    }
+
+    private static String stackTrace(Exception e) {
+        StringWriter writer = new StringWriter();
+        e.printStackTrace(new PrintWriter(writer));
+        return writer.toString();
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "worker";
+        }
+    }
+
+    private static final class Result {
+        private final LockedExternalTask task;
+        private final Map<String, Object> variables;
+        private final BpmnError bpmnError;
+        private final Exception failure;
+
+        private Result(LockedExternalTask task, Map<String, Object> variables, BpmnError bpmnError, Exception failure) {
+            this.task = task;
+            this.variables = variables;
+            this.bpmnError = bpmnError;
+            this.failure = failure;
+        }
+
+        private static Result completed(LockedExternalTask task, Map<String, Object> variables) {
+            return new Result(task, variables, null, null);
+        }
+
+        private static Result bpmnError(LockedExternalTask task, BpmnError bpmnError) {
+            return new Result(task, null, bpmnError, null);
+        }
+
+        private static Result failed(LockedExternalTask task, Exception failure) {
+            return new Result(task, null, null, failure);
+        }
+    }
+}
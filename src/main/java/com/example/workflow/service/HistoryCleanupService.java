@@ -0,0 +1,103 @@
+/**
+ * HistoryCleanupService reports on the engine history cleanup.
+ * The cleanup itself is run by the engine job executor inside the batch window
+ * configured in application.yaml; it removes the history of finished instances
+ * whose workflow history time to live has passed. Cached activity heatmaps are dropped
+ * once the cleanup reports removed instances, so they stop counting deleted activities.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.dto.HistoryCleanupReportDto;
+import org.camunda.bpm.engine.HistoryService;
+import org.camunda.bpm.engine.ManagementService;
+import org.camunda.bpm.engine.management.Metrics;
+import org.camunda.bpm.engine.runtime.Job;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+public class HistoryCleanupService {
+
+    private static final String HISTORY_TABLE_PREFIX = "ACT_HI_";
+
+    private final HistoryService historyService;
+    private final ManagementService managementService;
+
+    @Autowired
+    private ActivityHeatmapService activityHeatmapService;
+
+    /* Removed process instances already seen by checkRemovals, -1 before the first check */
+    private long removedProcessInstances = -1;
+
+    public HistoryCleanupService(HistoryService historyService, ManagementService managementService) {
+        this.historyService = historyService;
+        this.managementService = managementService;
+    }
+
+    /**
+     * Returns the rows removed by the history cleanup so far, the current size of the history tables
+     * and the next scheduled cleanup run.
+     * @return the history cleanup report
+     */
+    public HistoryCleanupReportDto getReport() {
+        Map<String, Long> historyTableCounts = new TreeMap<>();
+        for (Map.Entry<String, Long> table : managementService.getTableCount().entrySet()) {
+            if (table.getKey().toUpperCase().startsWith(HISTORY_TABLE_PREFIX)) {
+                historyTableCounts.put(table.getKey(), table.getValue());
+            }
+        }
+
+        return new HistoryCleanupReportDto(
+                removed(Metrics.HISTORY_CLEANUP_REMOVED_PROCESS_INSTANCES),
+                removed(Metrics.HISTORY_CLEANUP_REMOVED_DECISION_INSTANCES),
+                removed(Metrics.HISTORY_CLEANUP_REMOVED_BATCH_OPERATIONS),
+                historyTableCounts,
+                nextRunAt());
+    }
+
+    /**
+     * Runs the history cleanup now instead of waiting for the batch window.
+     * @return the report after scheduling the cleanup
+     */
+    public HistoryCleanupReportDto cleanUpNow() {
+        historyService.cleanUpHistoryAsync(true);
+        return getReport();
+    }
+
+    /**
+     * Drops the cached activity heatmaps when the cleanup removed instances since the last check.
+     * The removals are only known once the engine reported its metrics, so heatmaps may lag behind until then.
+     */
+    @Scheduled(fixedDelayString = "${flowvioo.app.historyCleanupCheckMs:60000}")
+    public synchronized void checkRemovals() {
+        long removed = removed(Metrics.HISTORY_CLEANUP_REMOVED_PROCESS_INSTANCES);
+        if (removedProcessInstances >= 0 && removed > removedProcessInstances) {
+            activityHeatmapService.invalidateAll();
+        }
+        removedProcessInstances = removed;
+    }
+
+    private long removed(String metric) {
+        return managementService.createMetricsQuery()
+                .name(metric)
+                .sum();
+    }
+
+    private Date nextRunAt() {
+        Date nextRunAt = null;
+        List<Job> cleanupJobs = historyService.findHistoryCleanupJobs();
+        for (Job job : cleanupJobs) {
+            if (job.getDuedate() != null && (nextRunAt == null || job.getDuedate().before(nextRunAt))) {
+                nextRunAt = job.getDuedate();
+            }
+        }
+        return nextRunAt;
+    }
+}
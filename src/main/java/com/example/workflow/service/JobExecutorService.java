@@ -0,0 +1,216 @@
+/**
+ * JobExecutorService exposes the engine job executor of this node: the job metrics the engine records
+ * (acquisition attempts, acquired jobs, lock failures, rejected jobs, executed jobs) as Micrometer counters,
+ * the thread pool and queue of the executor as gauges, and a throughput sampled at a fixed interval.
+ * The pool sizes can be changed at runtime; the queue capacity and the acquisition settings come from
+ * camunda.bpm.job-execution in application.yaml and need a restart.
+ * Executed jobs are timed by priority band: high at or above jobHighPriorityThreshold, low below 0, normal
+ * otherwise. The latency from the due date to the start shows whether high priority work stays fast under load.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.configuration.PriorityJobExecutor;
+import com.example.workflow.dto.JobExecutorStatusDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.camunda.bpm.engine.impl.jobexecutor.JobExecutor;
+import org.camunda.bpm.engine.management.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class JobExecutorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobExecutorService.class);
+
+    private final MeterRegistry meterRegistry;
+    /* Counter of each engine job metric, by engine metric name */
+    private final Map<String, Counter> counters = new HashMap<>();
+
+    @Autowired(required = false)
+    @Qualifier("camundaTaskExecutor")
+    private TaskExecutor taskExecutor;
+
+    @Autowired(required = false)
+    private JobExecutor jobExecutor;
+
+    @Value("${flowvioo.app.jobHighPriorityThreshold:100}")
+    private long highPriorityThreshold;
+
+    /* Latency timers of each priority band, duration timers of each band and outcome */
+    private final Map<String, Timer> latencyTimers = new HashMap<>();
+    private final Map<String, Timer> durationTimers = new HashMap<>();
+
+    private long lastSampleNanos = System.nanoTime();
+    private double lastExecutedJobs;
+    private volatile double jobsPerSecond;
+
+    public JobExecutorService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        counters.put(Metrics.JOB_ACQUISITION_ATTEMPT, meterRegistry.counter("camunda.job.acquisition.attempts"));
+        counters.put(Metrics.JOB_ACQUIRED_SUCCESS, meterRegistry.counter("camunda.job.acquired", "result", "locked"));
+        counters.put(Metrics.JOB_ACQUIRED_FAILURE, meterRegistry.counter("camunda.job.acquired", "result", "lockFailure"));
+        counters.put(Metrics.JOB_EXECUTION_REJECTED, meterRegistry.counter("camunda.job.rejected"));
+        counters.put(Metrics.JOB_SUCCESSFUL, meterRegistry.counter("camunda.job.executed", "outcome", "successful"));
+        counters.put(Metrics.JOB_FAILED, meterRegistry.counter("camunda.job.executed", "outcome", "failed"));
+        counters.put(Metrics.JOB_LOCKED_EXCLUSIVE, meterRegistry.counter("camunda.job.locked.exclusive"));
+        for (String band : new String[]{"high", "normal", "low"}) {
+            latencyTimers.put(band, Timer.builder("camunda.job.latency").tag("priority", band)
+                    .publishPercentileHistogram().register(meterRegistry));
+            for (String outcome : new String[]{"successful", "failed"}) {
+                durationTimers.put(band + ":" + outcome, Timer.builder("camunda.job.duration").tag("priority", band)
+                        .tag("outcome", outcome).publishPercentileHistogram().register(meterRegistry));
+            }
+        }
+    }
+
+    @PostConstruct
+    public void registerGauges() {
+        Gauge.builder("camunda.job.executor.queue", this, service -> service.threadPool() != null
+                ? service.threadPool().getQueue().size() : 0).register(meterRegistry);
+        Gauge.builder("camunda.job.executor.active", this, service -> service.threadPool() != null
+                ? service.threadPool().getActiveCount() : 0).register(meterRegistry);
+        Gauge.builder("camunda.job.executor.pool.size", this, service -> service.threadPool() != null
+                ? service.threadPool().getPoolSize() : 0).register(meterRegistry);
+        Gauge.builder("camunda.job.executor.jobs.per.second", this, service -> service.jobsPerSecond).register(meterRegistry);
+    }
+
+    /**
+     * Counts an occurrence of an engine metric, called by JobExecutorMetricsEnginePlugin.
+     * Metrics other than the job metrics are ignored.
+     * @param metric the engine metric name
+     * @param times the number of occurrences
+     */
+    public void record(String metric, long times) {
+        Counter counter = counters.get(metric);
+        if (counter != null) {
+            counter.increment(times);
+        }
+    }
+
+    /**
+     * Times a job run by the job executor, called by JobExecutorMetricsEnginePlugin.
+     * @param priority the priority of the job
+     * @param dueDate the due date of the job, null if it was due when created
+     * @param startedAt the time the job started, in epoch milliseconds
+     * @param durationNanos the time the job ran, in nanoseconds
+     * @param failed whether the job failed
+     */
+    public void recordJob(long priority, Date dueDate, long startedAt, long durationNanos, boolean failed) {
+        String band = priority >= highPriorityThreshold ? "high" : priority < 0 ? "low" : "normal";
+        if (dueDate != null) {
+            latencyTimers.get(band).record(Math.max(0, startedAt - dueDate.getTime()), TimeUnit.MILLISECONDS);
+        }
+        durationTimers.get(band + (failed ? ":failed" : ":successful")).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Updates the throughput from the jobs executed since the last sample.
+     */
+    @Scheduled(fixedDelay = 10000)
+    public synchronized void sampleThroughput() {
+        long now = System.nanoTime();
+        double executedJobs = count(Metrics.JOB_SUCCESSFUL) + count(Metrics.JOB_FAILED);
+        double elapsedSeconds = (now - lastSampleNanos) / 1e9;
+        if (elapsedSeconds > 0) {
+            jobsPerSecond = (executedJobs - lastExecutedJobs) / elapsedSeconds;
+        }
+        lastSampleNanos = now;
+        lastExecutedJobs = executedJobs;
+    }
+
+    /**
+     * Returns the pool, queue and job counts of the job executor.
+     * @return the job executor status
+     */
+    public JobExecutorStatusDto getStatus() {
+        ThreadPoolExecutor pool = threadPool();
+        int queueDepth = 0;
+        int queueCapacity = 0;
+        if (pool != null) {
+            BlockingQueue<Runnable> queue = pool.getQueue();
+            queueDepth = queue.size();
+            queueCapacity = queueDepth + queue.remainingCapacity();
+        }
+        PriorityJobExecutor reserved = jobExecutor instanceof PriorityJobExecutor ? (PriorityJobExecutor) jobExecutor : null;
+        return new JobExecutorStatusDto(
+                pool != null ? pool.getCorePoolSize() : 0,
+                pool != null ? pool.getMaximumPoolSize() : 0,
+                pool != null ? pool.getPoolSize() : 0,
+                pool != null ? pool.getActiveCount() : 0,
+                queueDepth,
+                queueCapacity,
+                reserved != null ? reserved.getReservedThreads() : 0,
+                reserved != null ? reserved.getReservedActiveThreads() : 0,
+                (long) count(Metrics.JOB_ACQUISITION_ATTEMPT),
+                (long) count(Metrics.JOB_ACQUIRED_SUCCESS),
+                (long) count(Metrics.JOB_ACQUIRED_FAILURE),
+                (long) count(Metrics.JOB_EXECUTION_REJECTED),
+                (long) count(Metrics.JOB_SUCCESSFUL),
+                (long) count(Metrics.JOB_FAILED),
+                jobsPerSecond);
+    }
+
+    /**
+     * Changes the thread pool sizes of the job executor. Threads above a lowered size end once idle.
+     * @param corePoolSize the new core pool size, or null to keep it
+     * @param maxPoolSize the new maximum pool size, or null to keep it
+     * @return the job executor status after the change
+     * @throws IllegalArgumentException if the core size is below 1 or above the maximum size
+     * @throws IllegalStateException if the job executor does not run on a thread pool
+     */
+    public synchronized JobExecutorStatusDto resizePool(Integer corePoolSize, Integer maxPoolSize) {
+        if (!(taskExecutor instanceof ThreadPoolTaskExecutor)) {
+            throw new IllegalStateException("The job executor does not run on a resizable thread pool");
+        }
+        ThreadPoolTaskExecutor pool = (ThreadPoolTaskExecutor) taskExecutor;
+        int core = corePoolSize != null ? corePoolSize : pool.getCorePoolSize();
+        int max = maxPoolSize != null ? maxPoolSize : pool.getMaxPoolSize();
+        if (core < 1 || max < core) {
+            throw new IllegalArgumentException("The core pool size must be at least 1 and at most the maximum pool size");
+        }
+        // The pool rejects a core size above the maximum size at any moment, so the order depends on the direction
+        if (max >= pool.getMaxPoolSize()) {
+            pool.setMaxPoolSize(max);
+            pool.setCorePoolSize(core);
+        } else {
+            pool.setCorePoolSize(core);
+            pool.setMaxPoolSize(max);
+        }
+        logger.info("Job executor pool resized to {} core and {} maximum threads", core, max);
+        return getStatus();
+    }
+
+    private double count(String metric) {
+        return counters.get(metric).count();
+    }
+
+    private ThreadPoolExecutor threadPool() {
+        if (taskExecutor instanceof ThreadPoolTaskExecutor) {
+            try {
+                return ((ThreadPoolTaskExecutor) taskExecutor).getThreadPoolExecutor();
+            } catch (IllegalStateException notInitialized) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
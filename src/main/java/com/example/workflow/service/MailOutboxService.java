@@ -0,0 +1,256 @@
+/**
+ * MailOutboxService queues mails in the outbox table and sends them in the background.
+ * Send tasks only write an outbox row in their engine transaction; the dispatcher drains due
+ * messages in batches, handing each batch to the mail sender in one call so that it is sent
+ * over a single SMTP connection. Failed messages are retried with exponential backoff until
+ * the maximum number of attempts is reached. Delivery is at least once: a message claimed
+ * longer than the claim timeout ago, e.g. by a node that stopped while sending it, is sent again.
+ * The dispatcher runs on its own thread, so a slow SMTP server never holds up the scheduled tasks.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.entity.MailOutboxMessage;
+import com.example.workflow.repository.MailOutboxMessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class MailOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailOutboxService.class);
+
+    public static final String PENDING = "PENDING";
+    public static final String SENDING = "SENDING";
+    public static final String SENT = "SENT";
+    public static final String FAILED = "FAILED";
+
+    private static final long MAX_BACKOFF_MS = 3600000;
+
+    private final JavaMailSender javaMailSender;
+    private final Counter sentCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+    private final Timer dispatchTimer;
+    private final AtomicLong pending = new AtomicLong();
+
+    @Autowired
+    private MailOutboxMessageRepository mailOutboxMessageRepository;
+
+    @Value("${flowvioo.app.mailOutboxBatchSize:50}")
+    private int batchSize;
+
+    @Value("${flowvioo.app.mailOutboxMaxAttempts:5}")
+    private int maxAttempts;
+
+    @Value("${flowvioo.app.mailOutboxBackoffMs:30000}")
+    private long backoffMs;
+
+    @Value("${flowvioo.app.mailOutboxDispatchMs:2000}")
+    private long dispatchMs;
+
+    /* Longer than sending a whole batch can take with the SMTP timeouts */
+    @Value("${flowvioo.app.mailOutboxClaimTimeoutMs:600000}")
+    private long claimTimeoutMs;
+
+    private ScheduledExecutorService dispatcher;
+
+    public MailOutboxService(JavaMailSender javaMailSender, MeterRegistry meterRegistry) {
+        this.javaMailSender = javaMailSender;
+        this.sentCounter = meterRegistry.counter("mail.outbox.sent");
+        this.retriedCounter = meterRegistry.counter("mail.outbox.retried");
+        this.failedCounter = meterRegistry.counter("mail.outbox.failed");
+        this.dispatchTimer = meterRegistry.timer("mail.outbox.dispatch");
+        meterRegistry.gauge("mail.outbox.pending", pending);
+    }
+
+    /**
+     * Queues a mail. Called inside the engine transaction, the row is only visible once the process step commits.
+     * @param dedupKey identifies the producer of the mail; a second mail with the same key is ignored
+     * @param recipient the recipient address
+     * @param subject the subject
+     * @param body the text
+     * @return true if the mail was queued, false if a mail with the same key already was
+     */
+    public boolean enqueue(String dedupKey, String recipient, String subject, String body) {
+        if (mailOutboxMessageRepository.existsByDedupKey(dedupKey)) {
+            return false;
+        }
+        MailOutboxMessage message = new MailOutboxMessage();
+        message.setDedupKey(dedupKey);
+        message.setRecipient(recipient);
+        message.setSubject(subject);
+        message.setBody(body);
+        message.setStatus(PENDING);
+        message.setCreatedAt(new Date());
+        message.setNextAttemptAt(message.getCreatedAt());
+        mailOutboxMessageRepository.save(message);
+        return true;
+    }
+
+    /**
+     * Starts the dispatcher once the application is up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "mail-outbox"));
+        dispatcher.scheduleWithFixedDelay(() -> {
+            try {
+                dispatch();
+            } catch (RuntimeException e) {
+                // An exception would cancel the schedule
+                logger.error("Outbox dispatch failed: {}", e.getMessage(), e);
+            }
+        }, 0, dispatchMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    /**
+     * Sends the due messages, one batch per call of the mail sender, until none is due.
+     * Messages claimed longer than the claim timeout ago are requeued first.
+     */
+    public synchronized void dispatch() {
+        int requeued = mailOutboxMessageRepository.updateStaleClaims(SENDING, PENDING,
+                new Date(System.currentTimeMillis() - claimTimeoutMs));
+        if (requeued > 0) {
+            logger.warn("Requeued {} outbox mails whose sending was interrupted", requeued);
+        }
+        int dispatched;
+        do {
+            dispatched = dispatchTimer.record(this::dispatchBatch);
+        } while (dispatched == batchSize);
+        pending.set(mailOutboxMessageRepository.countByStatus(PENDING));
+    }
+
+    private int dispatchBatch() {
+        Date now = new Date();
+        List<MailOutboxMessage> batch = new ArrayList<>();
+        for (String id : mailOutboxMessageRepository.findDueIds(PENDING, now, PageRequest.of(0, batchSize))) {
+            // Claiming makes sure a message is sent by one dispatcher only when several nodes run
+            if (mailOutboxMessageRepository.claim(id, PENDING, SENDING, now) == 1) {
+                mailOutboxMessageRepository.findById(id).ifPresent(batch::add);
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        SimpleMailMessage[] mails = new SimpleMailMessage[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            mails[i] = toMail(batch.get(i));
+        }
+        Map<Object, Exception> failedMails = null;
+        MailException failure = null;
+        try {
+            javaMailSender.send(mails);
+        } catch (MailSendException e) {
+            failure = e;
+            failedMails = e.getFailedMessages();
+        } catch (MailException e) {
+            failure = e;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            MailOutboxMessage message = batch.get(i);
+            if (failure == null || (failedMails != null && !failedMails.isEmpty() && !failedMails.containsKey(mails[i]))) {
+                markSent(message);
+            } else {
+                Exception cause = failedMails != null && failedMails.containsKey(mails[i]) ? failedMails.get(mails[i]) : failure;
+                markFailed(message, cause);
+            }
+        }
+        mailOutboxMessageRepository.saveAll(batch);
+        return batch.size();
+    }
+
+    private void markSent(MailOutboxMessage message) {
+        message.setStatus(SENT);
+        message.setSentAt(new Date());
+        message.setAttempts(message.getAttempts() + 1);
+        sentCounter.increment();
+    }
+
+    private void markFailed(MailOutboxMessage message, Exception cause) {
+        int attempts = message.getAttempts() + 1;
+        message.setAttempts(attempts);
+        message.setLastError(truncate(cause.getMessage()));
+        if (attempts >= maxAttempts) {
+            message.setStatus(FAILED);
+            failedCounter.increment();
+            logger.error("Giving up outbox mail {} to {} after {} attempts: {}", message.getId(), message.getRecipient(),
+                    attempts, cause.getMessage());
+            return;
+        }
+        message.setStatus(PENDING);
+        message.setNextAttemptAt(new Date(System.currentTimeMillis() + backoff(attempts)));
+        retriedCounter.increment();
+    }
+
+    private long backoff(int attempts) {
+        // Doubles with every attempt: backoffMs, 2 * backoffMs, 4 * backoffMs, ...
+        long delay = backoffMs << Math.min(attempts - 1, 20);
+        return Math.min(delay, MAX_BACKOFF_MS);
+    }
+
+    private static SimpleMailMessage toMail(MailOutboxMessage message) {
+        SimpleMailMessage mail = new OutboxMail();
+        mail.setTo(message.getRecipient());
+        mail.setSubject(message.getSubject());
+        mail.setText(message.getBody());
+        return mail;
+    }
+
+    private static String truncate(String error) {
+        if (error == null || error.length() <= 2000) {
+            return error;
+        }
+        return error.substring(0, 2000);
+    }
+
+    /*
+     * The sender reports failures in a map keyed by the messages it was given. SimpleMailMessage compares by
+     * content, so two mails with the same recipient, subject and text would share one entry; outbox mails
+     * compare by identity so that each failure is matched to the message that caused it.
+     */
+    private static final class OutboxMail extends SimpleMailMessage {
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+}
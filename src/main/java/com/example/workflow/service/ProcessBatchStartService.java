@@ -0,0 +1,174 @@
+/**
+ * ProcessBatchStartService starts many process instances in one call.
+ * Requests are split into chunks that run concurrently on a bounded executor;
+ * each chunk writes its WorkflowProcessInstance rows with a single JDBC batch insert, falling back
+ * to single inserts if the batch fails.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.payload.request.ProcessStartRequest;
+import com.example.workflow.payload.response.BatchStartResponse;
+import com.example.workflow.service.ProcessDefinitionLookupCache.ProcessStartTarget;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.runtime.ProcessInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class ProcessBatchStartService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessBatchStartService.class);
+
+    private static final String INSERT_WORKFLOW_PROCESS_INSTANCE =
+            "insert into workflow_process_instance (id, process_instance_id, process_name, workflow_id, status) values (?, ?, ?, ?, ?)";
+
+    private final RuntimeService runtimeService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProcessDefinitionLookupCache processDefinitionLookupCache;
+
+    @Value("${flowvioo.app.batchStartChunkSize:200}")
+    private int chunkSize;
+
+    @Value("${flowvioo.app.batchStartThreads:4}")
+    private int threads;
+
+    @Value("${flowvioo.app.batchStartMaxRequests:10000}")
+    private int maxRequests;
+
+    private ThreadPoolExecutor executor;
+
+    public ProcessBatchStartService(RuntimeService runtimeService, JdbcTemplate jdbcTemplate) {
+        this.runtimeService = runtimeService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        // Bounded queue: when every worker is busy the submitting request thread runs the chunk itself
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Starts a process instance for each request.
+     * A failing start does not stop the others; its index is reported in the failures. An instance that was
+     * started but whose WorkflowProcessInstance could not be saved keeps its ID and is reported in the failures too.
+     * @param requests the start requests
+     * @return the process instance IDs in request order, with the failures by request index
+     * @throws IllegalArgumentException if there are no requests or more than the configured maximum
+     */
+    public BatchStartResponse startProcesses(List<ProcessStartRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("At least one start request is required");
+        }
+        if (requests.size() > maxRequests) {
+            throw new IllegalArgumentException("A batch cannot contain more than " + maxRequests + " start requests");
+        }
+
+        long start = System.currentTimeMillis();
+        String[] processInstanceIds = new String[requests.size()];
+        Map<Integer, String> failures = new ConcurrentSkipListMap<>();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < requests.size(); from += chunkSize) {
+            int chunkStart = from;
+            int chunkEnd = Math.min(from + chunkSize, requests.size());
+            futures.add(executor.submit(() -> startChunk(requests, chunkStart, chunkEnd, processInstanceIds, failures)));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while starting process instances", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Failed to start process instances: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        long durationMs = System.currentTimeMillis() - start;
+        long started = Arrays.stream(processInstanceIds).filter(Objects::nonNull).count();
+        logger.info("Started {} of {} process instances in {} ms", started, requests.size(), durationMs);
+        return new BatchStartResponse(Arrays.asList(processInstanceIds), failures, durationMs);
+    }
+
+    private void startChunk(List<ProcessStartRequest> requests, int from, int to,
+                            String[] processInstanceIds, Map<Integer, String> failures) {
+        List<Object[]> rows = new ArrayList<>(to - from);
+        List<Integer> rowIndexes = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            ProcessStartRequest request = requests.get(i);
+            if (request == null || request.getDeploymentId() == null || request.getDeploymentId().isEmpty()) {
+                failures.put(i, "Deployment ID is required");
+                continue;
+            }
+            try {
+                ProcessStartTarget target = processDefinitionLookupCache.get(request.getDeploymentId());
+                ProcessInstance processInstance = runtimeService.startProcessInstanceById(
+                        target.getProcessDefinitionId(), request.getBusinessKey(), request.getVariables());
+                processInstanceIds[i] = processInstance.getId();
+                rows.add(new Object[]{
+                        processInstance.getId(),
+                        processInstance.getProcessInstanceId(),
+                        target.getProcessName(),
+                        target.getWorkflowId(),
+                        ProcessService.initialStatus(processInstance)});
+                rowIndexes.add(i);
+            } catch (Exception e) {
+                failures.put(i, e.getMessage());
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(INSERT_WORKFLOW_PROCESS_INSTANCE, rows);
+        } catch (DataAccessException e) {
+            // The instances are started and committed already, their IDs must not be lost with the batch
+            logger.warn("Batch insert of {} workflow process instances failed, inserting them one by one: {}", rows.size(), e.getMessage());
+            insertOneByOne(rows, rowIndexes, failures);
+        }
+    }
+
+    private void insertOneByOne(List<Object[]> rows, List<Integer> rowIndexes, Map<Integer, String> failures) {
+        for (int row = 0; row < rows.size(); row++) {
+            Object[] values = rows.get(row);
+            try {
+                jdbcTemplate.update(INSERT_WORKFLOW_PROCESS_INSTANCE, values);
+            } catch (DuplicateKeyException e) {
+                // Inserted by the failed batch before it stopped
+            } catch (DataAccessException e) {
+                failures.put(rowIndexes.get(row), "Process instance " + values[1]
+                        + " was started, but its workflow process instance could not be saved: " + e.getMessage());
+            }
+        }
+    }
+}
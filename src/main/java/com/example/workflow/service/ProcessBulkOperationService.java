@@ -0,0 +1,199 @@
+/**
+ * ProcessBulkOperationService suspends, resumes or deletes every running process instance
+ * matching a filter. The engine work is handed to an asynchronous engine batch, whose jobs run
+ * on the job executor. The WorkflowProcessInstance rows follow as the batch jobs actually run,
+ * through the history events handled by ProcessStatusSyncService.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.dto.BatchStatusDto;
+import com.example.workflow.dto.BulkOperationDto;
+import com.example.workflow.payload.request.ProcessInstanceFilterRequest;
+import org.camunda.bpm.engine.HistoryService;
+import org.camunda.bpm.engine.ManagementService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.batch.Batch;
+import org.camunda.bpm.engine.batch.BatchStatistics;
+import org.camunda.bpm.engine.batch.history.HistoricBatch;
+import org.camunda.bpm.engine.history.HistoricProcessInstance;
+import org.camunda.bpm.engine.history.HistoricProcessInstanceQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public class ProcessBulkOperationService {
+
+    public static final String SUSPEND = "SUSPEND";
+    public static final String RESUME = "RESUME";
+    public static final String DELETE = "DELETE";
+
+    private static final int ID_PAGE_SIZE = 1000;
+
+    private final RuntimeService runtimeService;
+    private final HistoryService historyService;
+    private final ManagementService managementService;
+
+    @Autowired
+    private ProcessDefinitionLookupCache processDefinitionLookupCache;
+
+    @Value("${flowvioo.app.bulkOperationMaxInstances:100000}")
+    private int maxInstances;
+
+    public ProcessBulkOperationService(RuntimeService runtimeService, HistoryService historyService,
+                                       ManagementService managementService) {
+        this.runtimeService = runtimeService;
+        this.historyService = historyService;
+        this.managementService = managementService;
+    }
+
+    /**
+     * Suspends the running process instances matching a filter.
+     * @param filter the instance filter
+     * @return the submitted operation
+     * @throws IllegalArgumentException if the filter is empty or invalid, or selects too many instances
+     */
+    public BulkOperationDto suspend(ProcessInstanceFilterRequest filter) {
+        List<String> processInstanceIds = findProcessInstanceIds(filter);
+        if (processInstanceIds.isEmpty()) {
+            return new BulkOperationDto(null, SUSPEND, 0);
+        }
+        Batch batch = runtimeService.updateProcessInstanceSuspensionState()
+                .byProcessInstanceIds(processInstanceIds)
+                .suspendAsync();
+        return new BulkOperationDto(batch.getId(), SUSPEND, processInstanceIds.size());
+    }
+
+    /**
+     * Resumes the running process instances matching a filter.
+     * @param filter the instance filter
+     * @return the submitted operation
+     * @throws IllegalArgumentException if the filter is empty or invalid, or selects too many instances
+     */
+    public BulkOperationDto resume(ProcessInstanceFilterRequest filter) {
+        List<String> processInstanceIds = findProcessInstanceIds(filter);
+        if (processInstanceIds.isEmpty()) {
+            return new BulkOperationDto(null, RESUME, 0);
+        }
+        Batch batch = runtimeService.updateProcessInstanceSuspensionState()
+                .byProcessInstanceIds(processInstanceIds)
+                .activateAsync();
+        return new BulkOperationDto(batch.getId(), RESUME, processInstanceIds.size());
+    }
+
+    /**
+     * Deletes the running process instances matching a filter. Their WorkflowProcessInstance rows are removed
+     * as the batch jobs delete them.
+     * @param filter the instance filter
+     * @return the submitted operation
+     * @throws IllegalArgumentException if the filter is empty or invalid, or selects too many instances
+     */
+    public BulkOperationDto delete(ProcessInstanceFilterRequest filter) {
+        List<String> processInstanceIds = findProcessInstanceIds(filter);
+        if (processInstanceIds.isEmpty()) {
+            return new BulkOperationDto(null, DELETE, 0);
+        }
+        String deleteReason = filter.getDeleteReason() != null ? filter.getDeleteReason() : "Deleted by bulk operation";
+        Batch batch = runtimeService.deleteProcessInstancesAsync(processInstanceIds, deleteReason);
+        return new BulkOperationDto(batch.getId(), DELETE, processInstanceIds.size());
+    }
+
+    /**
+     * Returns the progress of an engine batch.
+     * A batch is removed from the runtime tables once all its jobs ran; it is then read from history.
+     * @param batchId the ID of the batch
+     * @return the batch progress, or empty if the batch does not exist
+     */
+    public Optional<BatchStatusDto> getBatchStatus(String batchId) {
+        BatchStatistics statistics = managementService.createBatchStatisticsQuery()
+                .batchId(batchId)
+                .singleResult();
+        if (statistics != null) {
+            return Optional.of(new BatchStatusDto(statistics.getId(), statistics.getType(), statistics.getTotalJobs(),
+                    statistics.getCompletedJobs(), statistics.getFailedJobs(), statistics.getRemainingJobs(),
+                    statistics.isSuspended(), false));
+        }
+        HistoricBatch historicBatch = historyService.createHistoricBatchQuery()
+                .batchId(batchId)
+                .singleResult();
+        if (historicBatch == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new BatchStatusDto(historicBatch.getId(), historicBatch.getType(), historicBatch.getTotalJobs(),
+                historicBatch.getTotalJobs(), 0, 0, false, historicBatch.getEndTime() != null));
+    }
+
+    private List<String> findProcessInstanceIds(ProcessInstanceFilterRequest filter) {
+        HistoricProcessInstanceQuery query = buildQuery(filter);
+        long count = query.count();
+        if (count > maxInstances) {
+            throw new IllegalArgumentException("The filter selects " + count + " process instances, the limit is " + maxInstances);
+        }
+
+        List<String> processInstanceIds = new ArrayList<>((int) count);
+        for (int first = 0; first < count; first += ID_PAGE_SIZE) {
+            for (HistoricProcessInstance processInstance : query.listPage(first, ID_PAGE_SIZE)) {
+                processInstanceIds.add(processInstance.getId());
+            }
+        }
+        return processInstanceIds;
+    }
+
+    private HistoricProcessInstanceQuery buildQuery(ProcessInstanceFilterRequest filter) {
+        if (filter == null || (filter.getProcessDefinitionId() == null && filter.getProcessDefinitionKey() == null
+                && filter.getDeploymentId() == null && filter.getStatus() == null
+                && filter.getStartedAfter() == null && filter.getStartedBefore() == null)) {
+            throw new IllegalArgumentException("At least one filter criterion is required");
+        }
+
+        // The history query covers every criterion, including the start date; only running instances are selected
+        HistoricProcessInstanceQuery query = historyService.createHistoricProcessInstanceQuery()
+                .unfinished()
+                .orderByProcessInstanceId()
+                .asc();
+        String processDefinitionId = filter.getProcessDefinitionId();
+        if (filter.getDeploymentId() != null) {
+            String deploymentDefinitionId;
+            try {
+                deploymentDefinitionId = processDefinitionLookupCache.get(filter.getDeploymentId()).getProcessDefinitionId();
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException(e.getMessage());
+            }
+            if (processDefinitionId != null && !processDefinitionId.equals(deploymentDefinitionId)) {
+                throw new IllegalArgumentException("Process definition " + processDefinitionId
+                        + " does not belong to deployment " + filter.getDeploymentId());
+            }
+            processDefinitionId = deploymentDefinitionId;
+        }
+        if (processDefinitionId != null) {
+            query.processDefinitionId(processDefinitionId);
+        }
+        if (filter.getProcessDefinitionKey() != null) {
+            query.processDefinitionKey(filter.getProcessDefinitionKey());
+        }
+        if (filter.getStatus() != null) {
+            switch (filter.getStatus()) {
+                case "ACTIVE":
+                    query.active();
+                    break;
+                case "SUSPENDED":
+                    query.suspended();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported status: " + filter.getStatus());
+            }
+        }
+        if (filter.getStartedAfter() != null) {
+            query.startedAfter(filter.getStartedAfter());
+        }
+        if (filter.getStartedBefore() != null) {
+            query.startedBefore(filter.getStartedBefore());
+        }
+        return query;
+    }
+}
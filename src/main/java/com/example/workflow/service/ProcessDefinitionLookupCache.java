@@ -0,0 +1,119 @@
+/**
+ * ProcessDefinitionLookupCache maps a deployment ID to what a process start needs:
+ * the process definition ID and name and the ID of the owning workflow.
+ * It saves a process definition query and a workflow lookup on every start.
+ * Entries are invalidated whenever a workflow is redeployed or deleted.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.repository.WorkflowRepository;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class ProcessDefinitionLookupCache {
+
+    private final RepositoryService repositoryService;
+    private final Map<String, ProcessStartTarget> targets = new ConcurrentHashMap<>();
+
+    @Autowired
+    private WorkflowRepository workflowRepository;
+
+    public ProcessDefinitionLookupCache(RepositoryService repositoryService) {
+        this.repositoryService = repositoryService;
+    }
+
+    /**
+     * Returns the start target of a deployment, loading it on first access.
+     * @param deploymentId the ID of the deployment
+     * @return the start target
+     * @throws RuntimeException if the deployment has no process definition
+     */
+    public ProcessStartTarget get(String deploymentId) {
+        ProcessStartTarget target = targets.get(deploymentId);
+        if (target == null) {
+            target = load(deploymentId);
+            targets.put(deploymentId, target);
+        }
+        return target;
+    }
+
+    /**
+     * Drops the entry of a deployment.
+     * @param deploymentId the ID of the deployment
+     */
+    public void invalidate(String deploymentId) {
+        if (deploymentId != null) {
+            targets.remove(deploymentId);
+        }
+    }
+
+    /**
+     * Drops every entry pointing to a process definition.
+     * @param processDefinitionId the ID of the process definition
+     */
+    public void invalidateProcessDefinition(String processDefinitionId) {
+        targets.values().removeIf(target -> target.getProcessDefinitionId().equals(processDefinitionId));
+    }
+
+    /**
+     * Drops every entry.
+     */
+    public void clear() {
+        targets.clear();
+    }
+
+    private ProcessStartTarget load(String deploymentId) {
+        ProcessDefinition processDefinition = repositoryService.createProcessDefinitionQuery()
+                .deploymentId(deploymentId)
+                .singleResult();
+        if (processDefinition == null) {
+            throw new RuntimeException("No process definition found for deployment ID: " + deploymentId);
+        }
+        return new ProcessStartTarget(
+                processDefinition.getId(),
+                processDefinition.getKey(),
+                processDefinition.getName(),
+                workflowRepository.findIdByDeploymentId(deploymentId));
+    }
+
+    /**
+     * What a process start needs to know about a deployment.
+     */
+    public static final class ProcessStartTarget {
+        private final String processDefinitionId;
+        private final String processDefinitionKey;
+        private final String processName;
+        /* null when the deployment does not belong to a workflow */
+        private final String workflowId;
+
+        public ProcessStartTarget(String processDefinitionId, String processDefinitionKey, String processName, String workflowId) {
+            this.processDefinitionId = processDefinitionId;
+            this.processDefinitionKey = processDefinitionKey;
+            this.processName = processName;
+            this.workflowId = workflowId;
+        }
+
+        public String getProcessDefinitionId() {
+            return processDefinitionId;
+        }
+
+        public String getProcessDefinitionKey() {
+            return processDefinitionKey;
+        }
+
+        public String getProcessName() {
+            return processName;
+        }
+
+        public String getWorkflowId() {
+            return workflowId;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * ProcessPurgeService deletes all process instances or all historic process instances
+ * without loading them into memory at once. IDs are read in ascending order with a keyset
+ * cursor, and each chunk of IDs is deleted in its own engine transaction. Chunks run in
+ * waves of parallel deletions; after each wave the cursor is stored in a PurgeCheckpoint,
+ * so an interrupted purge resumes after the last completed wave instead of starting over.
+ * IDs are UUIDs and do not sort in creation order, so instances created while the purge ran, or between
+ * an interruption and its resume, can sort behind the cursor. Once the cursor is exhausted the purge makes
+ * one more pass from the beginning to delete those; only instances created during that pass can remain.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.dto.PurgeReportDto;
+import com.example.workflow.entity.PurgeCheckpoint;
+import com.example.workflow.repository.PurgeCheckpointRepository;
+import com.example.workflow.repository.WorkflowProcessInstanceRepository;
+import org.camunda.bpm.engine.HistoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+@Service
+public class ProcessPurgeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessPurgeService.class);
+
+    public static final String RUNTIME = "RUNTIME";
+    public static final String HISTORY = "HISTORY";
+
+    private static final String RUNNING = "RUNNING";
+    private static final String COMPLETED = "COMPLETED";
+    private static final String FAILED = "FAILED";
+
+    /* Top level process instances only, sub process instances are deleted with their parent */
+    private static final String NEXT_PROCESS_INSTANCE_IDS =
+            "select ID_ from ACT_RU_EXECUTION where ID_ = PROC_INST_ID_ and SUPER_EXEC_ is null and ID_ > ? order by ID_ limit ?";
+    /* Running instances have no end time and cannot be removed from history */
+    private static final String NEXT_HISTORIC_PROCESS_INSTANCE_IDS =
+            "select ID_ from ACT_HI_PROCINST where END_TIME_ is not null and ID_ > ? order by ID_ limit ?";
+    private static final String DELETE_WORKFLOW_PROCESS_INSTANCES = "delete from workflow_process_instance limit ?";
+
+    private final RuntimeService runtimeService;
+    private final HistoryService historyService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PurgeCheckpointRepository purgeCheckpointRepository;
+
+    @Autowired
+    private WorkflowProcessInstanceRepository workflowProcessInstanceRepository;
+
+    @Autowired
+    private ActivityHeatmapService activityHeatmapService;
+
+    @Value("${flowvioo.app.purgeChunkSize:500}")
+    private int chunkSize;
+
+    @Value("${flowvioo.app.purgeParallelism:4}")
+    private int parallelism;
+
+    private ExecutorService executor;
+
+    public ProcessPurgeService(RuntimeService runtimeService, HistoryService historyService, JdbcTemplate jdbcTemplate) {
+        this.runtimeService = runtimeService;
+        this.historyService = historyService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Deletes every process instance, then every WorkflowProcessInstance row.
+     * Resumes an earlier purge that did not complete.
+     * @return the purge report
+     * @throws RuntimeException if a chunk cannot be deleted; the purge can be resumed by calling it again
+     */
+    public synchronized PurgeReportDto purgeProcessInstances() {
+        PurgeReportDto report = purge(RUNTIME, NEXT_PROCESS_INSTANCE_IDS, chunk -> {
+            runtimeService.deleteProcessInstancesIfExists(chunk, "Deleting all process instances", false, true, false);
+            workflowProcessInstanceRepository.deleteByProcessInstanceIds(chunk);
+        });
+        // Rows of instances that already ended are left, they are removed in bounded statements as well
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(DELETE_WORKFLOW_PROCESS_INSTANCES, chunkSize);
+        } while (deleted > 0);
+        return report;
+    }
+
+    /**
+     * Deletes every finished historic process instance with its history.
+     * Resumes an earlier purge that did not complete.
+     * @return the purge report
+     * @throws RuntimeException if a chunk cannot be deleted; the purge can be resumed by calling it again
+     */
+    public synchronized PurgeReportDto purgeHistory() {
+        try {
+            return purge(HISTORY, NEXT_HISTORIC_PROCESS_INSTANCE_IDS, historyService::deleteHistoricProcessInstancesIfExists);
+        } finally {
+            // Also after a failed wave, the chunks before it are gone
+            activityHeatmapService.invalidateAll();
+        }
+    }
+
+    /**
+     * Returns the progress of the last purge of a type.
+     * @param type RUNTIME or HISTORY
+     * @return the purge progress, or empty if no purge of this type ran yet
+     */
+    public Optional<PurgeReportDto> getProgress(String type) {
+        return purgeCheckpointRepository.findById(type).map(checkpoint -> {
+            long durationMs = checkpoint.getUpdatedAt().getTime() - checkpoint.getStartedAt().getTime();
+            return new PurgeReportDto(checkpoint.getId(), checkpoint.getStatus(), checkpoint.getDeleted(),
+                    checkpoint.getLastId(), durationMs, rate(checkpoint.getDeleted(), durationMs));
+        });
+    }
+
+    private PurgeReportDto purge(String type, String nextIdsQuery, Consumer<List<String>> deleteChunk) {
+        long start = System.currentTimeMillis();
+        PurgeCheckpoint checkpoint = purgeCheckpointRepository.findById(type)
+                .filter(existing -> !COMPLETED.equals(existing.getStatus()))
+                .orElseGet(() -> newCheckpoint(type));
+        if (checkpoint.getLastId() != null) {
+            logger.info("Resuming {} purge after ID {} ({} already deleted)", type, checkpoint.getLastId(), checkpoint.getDeleted());
+        }
+        checkpoint.setStatus(RUNNING);
+        checkpoint = purgeCheckpointRepository.save(checkpoint);
+        long deletedBefore = checkpoint.getDeleted();
+
+        try {
+            int waveSize = chunkSize * Math.max(1, parallelism);
+            boolean finalPass = false;
+            while (true) {
+                // The empty string sorts before every ID and starts the cursor at the beginning
+                String cursor = checkpoint.getLastId() != null ? checkpoint.getLastId() : "";
+                List<String> ids = jdbcTemplate.queryForList(nextIdsQuery, String.class, cursor, waveSize);
+                if (ids.isEmpty()) {
+                    if (finalPass || checkpoint.getLastId() == null) {
+                        break;
+                    }
+                    // Pick up the instances that were created behind the cursor
+                    finalPass = true;
+                    checkpoint.setLastId(null);
+                    checkpoint = purgeCheckpointRepository.save(checkpoint);
+                    continue;
+                }
+                deleteWave(ids, deleteChunk);
+
+                checkpoint.setLastId(ids.get(ids.size() - 1));
+                checkpoint.setDeleted(checkpoint.getDeleted() + ids.size());
+                checkpoint.setUpdatedAt(new Date());
+                checkpoint = purgeCheckpointRepository.save(checkpoint);
+            }
+            checkpoint.setStatus(COMPLETED);
+        } catch (RuntimeException e) {
+            checkpoint.setStatus(FAILED);
+            logger.error("{} purge failed after ID {}: {}", type, checkpoint.getLastId(), e.getMessage());
+            throw e;
+        } finally {
+            checkpoint.setUpdatedAt(new Date());
+            purgeCheckpointRepository.save(checkpoint);
+        }
+
+        long durationMs = System.currentTimeMillis() - start;
+        long deleted = checkpoint.getDeleted() - deletedBefore;
+        double rowsPerSecond = rate(deleted, durationMs);
+        logger.info("{} purge deleted {} process instances in {} ms ({} per second)", type, deleted, durationMs,
+                String.format("%.1f", rowsPerSecond));
+        return new PurgeReportDto(type, COMPLETED, checkpoint.getDeleted(), checkpoint.getLastId(), durationMs, rowsPerSecond);
+    }
+
+    private void deleteWave(List<String> ids, Consumer<List<String>> deleteChunk) {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<String> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            futures.add(executor.submit(() -> deleteChunk.accept(chunk)));
+        }
+        // Wait for the whole wave, the checkpoint may only move past IDs that are all deleted
+        RuntimeException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new RuntimeException("Interrupted while purging", e);
+            } catch (ExecutionException e) {
+                failure = new RuntimeException("Failed to delete a purge chunk: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static PurgeCheckpoint newCheckpoint(String type) {
+        PurgeCheckpoint checkpoint = new PurgeCheckpoint();
+        checkpoint.setId(type);
+        checkpoint.setStartedAt(new Date());
+        checkpoint.setUpdatedAt(checkpoint.getStartedAt());
+        return checkpoint;
+    }
+
+    private static double rate(long rows, long durationMs) {
+        return durationMs > 0 ? rows * 1000.0 / durationMs : rows;
+    }
+}
@@ -4,11 +4,16 @@
 
 package com.example.workflow.service;
 
+import com.example.workflow.dto.ConflictStatsDto;
+import com.example.workflow.dto.ExecutionHistoryPageDto;
 import com.example.workflow.dto.HistoricActivityInstanceDto;
 import com.example.workflow.dto.ProcessDefinitionDto;
+import com.example.workflow.dto.WorkflowProcessInstanceDto;
 import com.example.workflow.entity.WorkflowProcessInstance;
+import com.example.workflow.exception.ConcurrentUpdateException;
 import com.example.workflow.repository.WorkflowProcessInstanceRepository;
 import com.example.workflow.repository.WorkflowRepository;
+import com.example.workflow.service.ProcessDefinitionLookupCache.ProcessStartTarget;
 import javassist.NotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.camunda.bpm.engine.HistoryService;
@@ -16,16 +21,19 @@ import org.camunda.bpm.engine.RepositoryService;
 import org.camunda.bpm.engine.RuntimeService;
 
 import org.camunda.bpm.engine.history.HistoricActivityInstance;
+import org.camunda.bpm.engine.history.HistoricActivityInstanceQuery;
 import org.camunda.bpm.engine.history.HistoricProcessInstance;
 import org.camunda.bpm.engine.repository.ProcessDefinition;
-import org.camunda.bpm.engine.repository.ProcessDefinitionQuery;
 import org.camunda.bpm.engine.runtime.ProcessInstance;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 import static java.util.stream.Collectors.toList;
 
@@ -33,6 +41,9 @@ import static java.util.stream.Collectors.toList;
 @Service
 public class ProcessService {
 
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_HISTORY_PAGE_SIZE = 500;
+
     private  final RepositoryService repositoryService;
     private  final RuntimeService runtimeService;
     private  final HistoryService historyService;
@@ -50,6 +61,12 @@ public class ProcessService {
     private WorkflowProcessInstanceRepository workflowProcessInstanceRepository ;
     @Autowired
     WorkflowRepository workflowRepository;
+    @Autowired
+    private ProcessDefinitionLookupCache processDefinitionLookupCache;
+    @Autowired
+    private ProcessPurgeService processPurgeService;
+    @Autowired
+    private ConflictRetryService conflictRetryService;
     /**
      * Deploys a process definition given the process definition name and BPMN file.
      * @param processDefinitionName the name of the process definition
@@ -78,33 +95,33 @@ public class ProcessService {
      * @throws RuntimeException if the process instance cannot be started
      */
     public String startProcessByDeploymentId(String deploymentId) {
+        return startProcessByDeploymentId(deploymentId, null, null);
+    }
 
-
-        // Get the process definition for the given deployment ID
-        ProcessDefinitionQuery processDefinitionQuery = repositoryService.createProcessDefinitionQuery().deploymentId(deploymentId);
-        ProcessDefinition processDefinition = processDefinitionQuery.singleResult();
-        if (processDefinition == null) {
-            throw new RuntimeException("No process definition found for deployment ID: " + deploymentId);
-        }
+    /**
+     * Starts a process instance by deployment ID with a business key and process variables.
+     * @param deploymentId the ID of the deployment to start the process from
+     * @param businessKey the business key of the new instance, may be null
+     * @param variables the process variables of the new instance, may be null
+     * @return the ID of the started process instance
+     * @throws RuntimeException if the process instance cannot be started
+     */
+    public String startProcessByDeploymentId(String deploymentId, String businessKey, Map<String, Object> variables) {
+        // Resolve the process definition and owning workflow from the cache instead of querying them on every start
+        ProcessStartTarget target = processDefinitionLookupCache.get(deploymentId);
         // Start the process instance using the process definition ID
         try {
-            ProcessInstance processInstance = runtimeService.startProcessInstanceById(processDefinition.getId());
+            ProcessInstance processInstance = runtimeService.startProcessInstanceById(target.getProcessDefinitionId(), businessKey, variables);
             // creating WorkflowProcessInstance object, setting its properties using the process instance information, and save it
             WorkflowProcessInstance workflowProcessInstance = new WorkflowProcessInstance();
             workflowProcessInstance.setId(processInstance.getId());
             workflowProcessInstance.setProcessInstanceId(processInstance.getProcessInstanceId());
-            workflowProcessInstance.setProcessName(processDefinition.getName());
-            workflowProcessInstance.setWorkflow(workflowRepository.findWorkflowByDeploymentId(deploymentId));
-            if (processInstance.isEnded() || historyService.createHistoricProcessInstanceQuery()
-                    .processInstanceId(processInstance.getId())
-                    .finished()
-                    .count() > 0) {
-                workflowProcessInstance.setStatus("COMPLETED");
-            } else if (processInstance.isSuspended()) {
-                workflowProcessInstance.setStatus("SUSPENDED");
-            } else {
-                workflowProcessInstance.setStatus("ACTIVE");
+            workflowProcessInstance.setProcessName(target.getProcessName());
+            // Only a reference is needed for the foreign key, this does not load the workflow and its XML
+            if (target.getWorkflowId() != null) {
+                workflowProcessInstance.setWorkflow(workflowRepository.getById(target.getWorkflowId()));
             }
+            workflowProcessInstance.setStatus(initialStatus(processInstance));
             workflowProcessInstanceRepository.save(workflowProcessInstance);
             return processInstance.getId();
         } catch (Exception e) {
@@ -113,12 +130,28 @@ public class ProcessService {
     }
 
 
+    /**
+     * Gives the status of a process instance right after it was started.
+     * An instance that ran to its end synchronously is reported as ended by the start call itself.
+     * @param processInstance the started process instance
+     * @return the status to store on the WorkflowProcessInstance
+     */
+    static String initialStatus(ProcessInstance processInstance) {
+        if (processInstance.isEnded()) {
+            return "COMPLETED";
+        } else if (processInstance.isSuspended()) {
+            return "SUSPENDED";
+        }
+        return "ACTIVE";
+    }
+
     /**
      * Suspend a process instance by process instance ID.
      * @param processInstanceId the ID of the process instance to suspend the process from
      */
     public void suspendProcessInstance(String processInstanceId) {
-        runtimeService.suspendProcessInstanceById(processInstanceId);
+        conflictRetryService.run(processDefinitionIdOf(processInstanceId), null,
+                () -> runtimeService.suspendProcessInstanceById(processInstanceId));
         WorkflowProcessInstance instance = workflowProcessInstanceRepository.findByProcessInstanceId(processInstanceId);
         instance.setStatus("SUSPENDED");
         workflowProcessInstanceRepository.save(instance);
@@ -131,10 +164,13 @@ public class ProcessService {
      */
     public void resumeProcessInstanceById(String processInstanceId) {
         try {
-            runtimeService.activateProcessInstanceById(processInstanceId);
+            conflictRetryService.run(processDefinitionIdOf(processInstanceId), null,
+                    () -> runtimeService.activateProcessInstanceById(processInstanceId));
             WorkflowProcessInstance instance = workflowProcessInstanceRepository.findByProcessInstanceId(processInstanceId);
             instance.setStatus("ACTIVE");
             workflowProcessInstanceRepository.save(instance);
+        } catch (ConcurrentUpdateException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Failed to resume process instance with ID " + processInstanceId, e);
         }
@@ -145,12 +181,28 @@ public class ProcessService {
      * @param processInstanceId the ID of the process instance  which is suspended.
      */
     public void restartProcessInstanceById(String processInstanceId) {
-        runtimeService.activateProcessInstanceById(processInstanceId);
+        conflictRetryService.run(processDefinitionIdOf(processInstanceId), null,
+                () -> runtimeService.activateProcessInstanceById(processInstanceId));
         WorkflowProcessInstance instance = workflowProcessInstanceRepository.findByProcessInstanceId(processInstanceId);
         instance.setStatus("ACTIVE");
         workflowProcessInstanceRepository.save(instance);
     }
 
+    /**
+     * Returns the conflict counts of task and process instance operations, see ConflictRetryService.
+     * @return the conflict counts, most conflicts first
+     */
+    public List<ConflictStatsDto> getConflicts() {
+        return conflictRetryService.getConflicts();
+    }
+
+    private String processDefinitionIdOf(String processInstanceId) {
+        ProcessInstance processInstance = runtimeService.createProcessInstanceQuery()
+                .processInstanceId(processInstanceId)
+                .singleResult();
+        return processInstance != null ? processInstance.getProcessDefinitionId() : null;
+    }
+
     /**
      * Retrieves all deployed process definitions as a list of {@link ProcessDefinitionDto}.
      * @return a list of deployed process definitions
@@ -174,6 +226,7 @@ public class ProcessService {
         try {
             // Delete the process definition and all its versions
             repositoryService.deleteProcessDefinition(processDefinitionId, true);
+            processDefinitionLookupCache.invalidateProcessDefinition(processDefinitionId);
         } catch (Exception e) {
             throw new RuntimeException("Failed to delete process definition with id " + processDefinitionId, e);
         }
@@ -190,6 +243,7 @@ public class ProcessService {
                             .delete();
                 });
         workflowRepository.deleteAll();
+        processDefinitionLookupCache.clear();
     }
 
     /**
@@ -200,6 +254,42 @@ public class ProcessService {
         return workflowProcessInstanceRepository.findAll();
     }
 
+    /**
+     * Retrieves one page of workflow process instances, without the workflow XML.
+     * @param status the status to filter on, or null for any
+     * @param workflowId the ID of the workflow to filter on, or null for any
+     * @param processName the process name to filter on, or null for any
+     * @param page the page number, starting at 0
+     * @param size the page size, capped at MAX_PAGE_SIZE
+     * @return the requested page
+     */
+    public Page<WorkflowProcessInstanceDto> getWorkflowProcessInstances(String status, String workflowId, String processName,
+                                                                        int page, int size) {
+        // Offset paging reads and skips every earlier row and counts all matching rows, see the keyset variant below
+        PageRequest pageRequest = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE), Sort.by("id"));
+        return workflowProcessInstanceRepository.findInstances(status, workflowId, processName, pageRequest);
+    }
+
+    /**
+     * Retrieves the workflow process instances following a given ID in ID order, without the workflow XML.
+     * Unlike offset paging, the cost of a page does not grow with its position and no total is counted.
+     * Entries of an index are ordered by id within a key, so the rows come in index order without a filesort
+     * when both status and workflowId are given (status, workflow_id index), when only workflowId is given
+     * (its foreign key index), or when neither is (primary key). With a status alone the matching rows are sorted.
+     * @param status the status to filter on, or null for any
+     * @param workflowId the ID of the workflow to filter on, or null for any
+     * @param processName the process name to filter on, or null for any
+     * @param after the ID of the last instance of the previous page, empty for the first page
+     * @param size the page size, capped at MAX_PAGE_SIZE
+     * @return the next instances; the ID of the last one is the cursor for the following page
+     */
+    public List<WorkflowProcessInstanceDto> getWorkflowProcessInstancesAfter(String status, String workflowId, String processName,
+                                                                             String after, int size) {
+        // The empty string sorts before every ID
+        return workflowProcessInstanceRepository.findInstancesAfter(status, workflowId, processName,
+                after != null ? after : "", PageRequest.of(0, Math.min(Math.max(size, 1), MAX_PAGE_SIZE)));
+    }
+
     /**
      * Retrieves all process instances by process definition key.
      * @param processDefinitionKey the key of the process definition
@@ -238,22 +328,18 @@ public class ProcessService {
 
     /**
      * Deletes all process instances.
+     * The deletion runs in chunks and resumes where it stopped if it was interrupted.
      */
     public void deleteAllProcessInstances() {
-        List<ProcessInstance> processInstances = runtimeService.createProcessInstanceQuery().list();
-        for (ProcessInstance processInstance : processInstances) {
-            runtimeService.deleteProcessInstance(processInstance.getId(), "Deleting all process instances");
-        }
-        workflowProcessInstanceRepository.deleteAll();
+        processPurgeService.purgeProcessInstances();
     }
 
     /**
      * Deletes all historic process instances.
+     * The deletion runs in chunks and resumes where it stopped if it was interrupted.
      */
     public void deleteAllHistoricProcessInstances() {
-        List<HistoricProcessInstance> processInstances = historyService.createHistoricProcessInstanceQuery().list();
-        List<String> processInstanceIds = processInstances.stream().map(HistoricProcessInstance::getId).collect(Collectors.toList());
-        historyService.deleteHistoricProcessInstances(processInstanceIds);
+        processPurgeService.purgeHistory();
     }
 
     /**
@@ -286,5 +372,74 @@ public class ProcessService {
         return historicActivityInstanceDtos;
     }
 
+    /**
+     * Retrieves one page of the execution history of a process instance in a columnar layout.
+     * @param processInstanceId the ID of the process instance
+     * @param activityType the activity type to filter on, e.g. userTask, or null for all types
+     * @param latestFirst true to start with the most recent activities
+     * @param page the page number, starting at 0
+     * @param size the page size, capped at MAX_HISTORY_PAGE_SIZE
+     * @return the requested page
+     * @throws IllegalArgumentException if the page starts beyond the largest possible offset
+     */
+    public ExecutionHistoryPageDto getExecutionHistoryPage(String processInstanceId, String activityType, boolean latestFirst,
+                                                           int page, int size) {
+        page = Math.max(page, 0);
+        size = Math.min(Math.max(size, 1), MAX_HISTORY_PAGE_SIZE);
+        int firstResult;
+        try {
+            firstResult = Math.multiplyExact(page, size);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Page " + page + " of size " + size + " is out of range");
+        }
+
+        HistoricActivityInstanceQuery query = historyService.createHistoricActivityInstanceQuery()
+                .processInstanceId(processInstanceId);
+        if (activityType != null && !activityType.isEmpty()) {
+            query.activityType(activityType);
+        }
+        long total = query.count();
+        query.orderByHistoricActivityInstanceStartTime();
+        if (latestFirst) {
+            query.desc();
+        } else {
+            query.asc();
+        }
+        // Activities started in the same millisecond keep the order in which they occurred
+        query.orderPartiallyByOccurrence();
+        if (latestFirst) {
+            query.desc();
+        } else {
+            query.asc();
+        }
+        List<HistoricActivityInstance> activities = query.listPage(firstResult, size);
+
+        int count = activities.size();
+        String[] ids = new String[count];
+        String[] activityIds = new String[count];
+        String[] names = new String[count];
+        String[] types = new String[count];
+        long[] startOffsets = new long[count];
+        long[] endOffsets = new long[count];
+        long baseTime = Long.MAX_VALUE;
+        for (HistoricActivityInstance activity : activities) {
+            baseTime = Math.min(baseTime, activity.getStartTime().getTime());
+        }
+        if (count == 0) {
+            baseTime = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            HistoricActivityInstance activity = activities.get(i);
+            ids[i] = activity.getId();
+            activityIds[i] = activity.getActivityId();
+            names[i] = activity.getActivityName();
+            types[i] = activity.getActivityType();
+            startOffsets[i] = activity.getStartTime().getTime() - baseTime;
+            endOffsets[i] = activity.getEndTime() != null ? activity.getEndTime().getTime() - baseTime : -1;
+        }
+        return new ExecutionHistoryPageDto(processInstanceId, total, page, size, baseTime,
+                ids, activityIds, names, types, startOffsets, endOffsets);
+    }
+
 
 }
\ No newline at end of file
@@ -0,0 +1,244 @@
+/**
+ * ProcessStartTicketService runs process starts in the background.
+ * The start intent is stored as a ticket and the caller gets the ticket right away;
+ * the start itself, including any service or send task before the first wait state,
+ * runs on a dedicated executor. Tickets that could not be queued, or that were still
+ * pending when the application stopped, are picked up by a periodic sweep.
+ * A ticket is claimed by the node that runs it; a claim is only given up by that node
+ * after a restart, or by any node once it is older than the claim timeout.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.dto.ProcessStartTicketDto;
+import com.example.workflow.entity.ProcessStartTicket;
+import com.example.workflow.payload.request.ProcessStartRequest;
+import com.example.workflow.repository.ProcessStartTicketRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class ProcessStartTicketService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessStartTicketService.class);
+
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String STARTED = "STARTED";
+    public static final String FAILED = "FAILED";
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    private ProcessStartTicketRepository processStartTicketRepository;
+
+    @Autowired
+    private ProcessService processService;
+
+    @Value("${flowvioo.app.asyncStartThreads:4}")
+    private int threads;
+
+    @Value("${flowvioo.app.asyncStartQueueCapacity:1000}")
+    private int queueCapacity;
+
+    @Value("${flowvioo.app.asyncStartSweepBatchSize:100}")
+    private int sweepBatchSize;
+
+    @Value("${flowvioo.app.asyncStartClaimTimeoutMs:600000}")
+    private long claimTimeoutMs;
+
+    /* Must differ between the nodes of a cluster and stay the same across restarts of a node */
+    @Value("${flowvioo.app.nodeId:}")
+    private String nodeId;
+
+    private ThreadPoolExecutor executor;
+    /* IDs of the tickets waiting in the executor queue, so that the sweep does not queue them twice */
+    private final Set<String> queuedTicketIds = ConcurrentHashMap.newKeySet();
+
+    public ProcessStartTicketService(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (nodeId == null || nodeId.isEmpty()) {
+            nodeId = hostName();
+        }
+        // A full queue rejects the task; the ticket stays PENDING and the sweep submits it later
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Stores a start request as a PENDING ticket and queues its execution.
+     * @param request the start request
+     * @return the created ticket
+     * @throws IllegalArgumentException if the variables cannot be serialized
+     */
+    public ProcessStartTicketDto submit(ProcessStartRequest request) {
+        ProcessStartTicket ticket = new ProcessStartTicket();
+        ticket.setDeploymentId(request.getDeploymentId());
+        ticket.setBusinessKey(request.getBusinessKey());
+        ticket.setVariables(writeVariables(request.getVariables()));
+        ticket.setStatus(PENDING);
+        ticket.setCreatedAt(new Date());
+        ticket = processStartTicketRepository.save(ticket);
+
+        enqueue(ticket.getId());
+        return ProcessStartTicketDto.of(ticket);
+    }
+
+    /**
+     * Returns a ticket.
+     * @param ticketId the ID of the ticket
+     * @return the ticket, or empty if it does not exist
+     */
+    public Optional<ProcessStartTicketDto> getTicket(String ticketId) {
+        return processStartTicketRepository.findById(ticketId).map(ProcessStartTicketDto::of);
+    }
+
+    /**
+     * Tickets this node left RUNNING in a previous run were interrupted at an unknown point,
+     * the instance may or may not exist, so they are failed instead of started twice.
+     * Tickets claimed by other nodes are left to them, or to the stale claim check of the sweep.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        int interrupted = processStartTicketRepository.updateStatusByOwner(RUNNING, FAILED, nodeId,
+                "Interrupted by an application restart", new Date());
+        if (interrupted > 0) {
+            logger.warn("Marked {} interrupted process start tickets as failed", interrupted);
+        }
+        sweep();
+    }
+
+    /**
+     * Fails the claims older than the claim timeout, whose node stopped without coming back,
+     * and queues the PENDING tickets that are not running yet, oldest first.
+     */
+    @Scheduled(fixedDelayString = "${flowvioo.app.asyncStartSweepMs:10000}")
+    public void sweep() {
+        Date now = new Date();
+        int stale = processStartTicketRepository.updateStaleClaims(RUNNING, FAILED,
+                new Date(now.getTime() - claimTimeoutMs), "Interrupted, the claiming node did not finish it", now);
+        if (stale > 0) {
+            logger.warn("Marked {} stale process start tickets as failed", stale);
+        }
+        int capacity = Math.min(sweepBatchSize, executor.getQueue().remainingCapacity());
+        if (capacity <= 0) {
+            return;
+        }
+        List<String> ticketIds = processStartTicketRepository.findIdsByStatus(PENDING, PageRequest.of(0, capacity));
+        for (String ticketId : ticketIds) {
+            if (!enqueue(ticketId)) {
+                break;
+            }
+        }
+    }
+
+    private boolean enqueue(String ticketId) {
+        if (!queuedTicketIds.add(ticketId)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> run(ticketId));
+            return true;
+        } catch (RejectedExecutionException e) {
+            queuedTicketIds.remove(ticketId);
+            logger.debug("Process start queue is full, ticket {} stays pending", ticketId);
+            return false;
+        }
+    }
+
+    private void run(String ticketId) {
+        queuedTicketIds.remove(ticketId);
+        // Claiming the ticket makes sure it is started only once when the sweep and a submit race
+        if (processStartTicketRepository.claim(ticketId, PENDING, RUNNING, nodeId, new Date()) == 0) {
+            return;
+        }
+        ProcessStartTicket ticket = processStartTicketRepository.findById(ticketId).orElse(null);
+        if (ticket == null) {
+            return;
+        }
+        String processInstanceId = null;
+        String error = null;
+        try {
+            processInstanceId = processService.startProcessByDeploymentId(
+                    ticket.getDeploymentId(), ticket.getBusinessKey(), readVariables(ticket.getVariables()));
+        } catch (Exception e) {
+            logger.warn("Process start ticket {} failed: {}", ticketId, e.getMessage());
+            error = truncate(e.getMessage());
+        }
+        // Only while the claim still holds, a ticket the stale sweep gave up on keeps its outcome
+        if (processStartTicketRepository.finish(ticketId, RUNNING, error == null ? STARTED : FAILED, nodeId,
+                processInstanceId, error, new Date()) == 0) {
+            logger.warn("Process start ticket {} was no longer claimed by node {} when it finished, process instance: {}",
+                    ticketId, nodeId, processInstanceId);
+        }
+    }
+
+    private String writeVariables(Map<String, Object> variables) {
+        if (variables == null || variables.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(variables);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Process variables cannot be serialized: " + e.getOriginalMessage());
+        }
+    }
+
+    private Map<String, Object> readVariables(String variables) throws JsonProcessingException {
+        if (variables == null) {
+            return null;
+        }
+        return objectMapper.readValue(variables, new TypeReference<Map<String, Object>>() {});
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * ProcessStatisticsService keeps live instance counts and cycle times per process definition key.
+ * Counters are LongAdders updated from the process instance history events, so concurrent
+ * engine threads do not contend on them; reading the statistics never touches the database.
+ * The counters are rebuilt from the engine history at startup.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.dto.ProcessStatisticsDto;
+import org.camunda.bpm.engine.history.HistoricProcessInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+@Service
+public class ProcessStatisticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessStatisticsService.class);
+
+    private static final String AGGREGATE_BY_KEY_AND_STATE =
+            "select PROC_DEF_KEY_, STATE_, count(*), coalesce(sum(DURATION_), 0) from ACT_HI_PROCINST group by PROC_DEF_KEY_, STATE_";
+    private static final String RUNNING_INSTANCES =
+            "select ID_, STATE_ from ACT_HI_PROCINST where END_TIME_ is null";
+
+    private volatile Map<String, Counters> countersByKey = new ConcurrentHashMap<>();
+    /* State of every running instance, needed to know which counter a suspension or an end moves away from */
+    private volatile Map<String, String> runningStates = new ConcurrentHashMap<>();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Applies a process instance lifecycle event to the counters.
+     * @param processInstanceId the ID of the process instance
+     * @param processDefinitionKey the key of its process definition
+     * @param state the engine state of the instance after the event
+     * @param durationMs the duration of the instance when it ended, null otherwise
+     */
+    public void onProcessInstanceEvent(String processInstanceId, String processDefinitionKey, String state, Long durationMs) {
+        if (processDefinitionKey == null || state == null) {
+            return;
+        }
+        Counters counters = countersByKey.computeIfAbsent(processDefinitionKey, key -> new Counters());
+        switch (state) {
+            case HistoricProcessInstance.STATE_ACTIVE:
+            case HistoricProcessInstance.STATE_SUSPENDED:
+                String previous = runningStates.put(processInstanceId, state);
+                if (!state.equals(previous)) {
+                    counters.running(previous).decrement();
+                    counters.running(state).increment();
+                }
+                break;
+            case HistoricProcessInstance.STATE_COMPLETED:
+            case HistoricProcessInstance.STATE_INTERNALLY_TERMINATED:
+                counters.running(runningStates.remove(processInstanceId)).decrement();
+                counters.completed.increment();
+                if (durationMs != null) {
+                    counters.totalCycleTimeMs.add(durationMs);
+                }
+                break;
+            default:
+                // Deleted instances only leave the running counters
+                counters.running(runningStates.remove(processInstanceId)).decrement();
+        }
+    }
+
+    /**
+     * Returns the statistics of every process definition key.
+     * @return the statistics, one entry per key
+     */
+    public List<ProcessStatisticsDto> getStatistics() {
+        List<ProcessStatisticsDto> statistics = new ArrayList<>();
+        countersByKey.forEach((key, counters) -> statistics.add(counters.toDto(key)));
+        return statistics;
+    }
+
+    /**
+     * Returns the statistics of one process definition key.
+     * @param processDefinitionKey the key of the process definition
+     * @return the statistics, or empty if the key has no instances
+     */
+    public Optional<ProcessStatisticsDto> getStatistics(String processDefinitionKey) {
+        return Optional.ofNullable(countersByKey.get(processDefinitionKey)).map(counters -> counters.toDto(processDefinitionKey));
+    }
+
+    /**
+     * Rebuilds the counters from the engine history with one aggregate query.
+     * Also needed after history was removed by a purge or the history cleanup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Map<String, Counters> rebuilt = new ConcurrentHashMap<>();
+        jdbcTemplate.query(AGGREGATE_BY_KEY_AND_STATE, resultSet -> {
+            Counters counters = rebuilt.computeIfAbsent(resultSet.getString(1), key -> new Counters());
+            String state = resultSet.getString(2);
+            long count = resultSet.getLong(3);
+            if (HistoricProcessInstance.STATE_ACTIVE.equals(state) || HistoricProcessInstance.STATE_SUSPENDED.equals(state)) {
+                counters.running(state).add(count);
+            } else if (HistoricProcessInstance.STATE_COMPLETED.equals(state)
+                    || HistoricProcessInstance.STATE_INTERNALLY_TERMINATED.equals(state)) {
+                counters.completed.add(count);
+                counters.totalCycleTimeMs.add(resultSet.getLong(4));
+            }
+        });
+        Map<String, String> states = new ConcurrentHashMap<>();
+        jdbcTemplate.query(RUNNING_INSTANCES, resultSet -> {
+            states.put(resultSet.getString(1), resultSet.getString(2));
+        });
+
+        runningStates = states;
+        countersByKey = rebuilt;
+        logger.info("Rebuilt process statistics for {} process definition keys in {} ms",
+                rebuilt.size(), System.currentTimeMillis() - start);
+    }
+
+    private static final class Counters {
+        private final LongAdder active = new LongAdder();
+        private final LongAdder suspended = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder totalCycleTimeMs = new LongAdder();
+        /* Absorbs moves away from a state that is not tracked, e.g. the start of a new instance */
+        private final LongAdder unknown = new LongAdder();
+
+        private LongAdder running(String state) {
+            if (HistoricProcessInstance.STATE_ACTIVE.equals(state)) {
+                return active;
+            } else if (HistoricProcessInstance.STATE_SUSPENDED.equals(state)) {
+                return suspended;
+            }
+            return unknown;
+        }
+
+        private ProcessStatisticsDto toDto(String processDefinitionKey) {
+            long completedCount = completed.sum();
+            long averageCycleTimeMs = completedCount > 0 ? totalCycleTimeMs.sum() / completedCount : 0;
+            return new ProcessStatisticsDto(processDefinitionKey, Math.max(0, active.sum()), Math.max(0, suspended.sum()),
+                    completedCount, averageCycleTimeMs);
+        }
+    }
+}
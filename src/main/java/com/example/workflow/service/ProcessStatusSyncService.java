@@ -0,0 +1,162 @@
+/**
+ * ProcessStatusSyncService keeps the status of WorkflowProcessInstance rows in line with the engine.
+ * Status changes are queued by the history event handler after each engine commit and written
+ * in the background with one set-based update per status and chunk; rows of deleted instances are removed. At startup the table is
+ * reconciled against the engine history, which covers changes still queued when the application stopped.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.repository.WorkflowProcessInstanceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+@Service
+public class ProcessStatusSyncService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessStatusSyncService.class);
+
+    /* Queued for deleted instances, whose rows are removed instead of updated */
+    public static final String DELETED = "DELETED";
+
+    private static final int UPDATE_CHUNK_SIZE = 1000;
+
+    /* One statement per engine state, each only touching rows that disagree with the history */
+    private static final String RECONCILE_STATUS =
+            "update workflow_process_instance w join ACT_HI_PROCINST h on h.PROC_INST_ID_ = w.process_instance_id "
+            + "set w.status = ? where h.STATE_ = ? and (w.status is null or w.status <> ?)";
+    /* Rows of instances deleted while their change was still queued */
+    private static final String RECONCILE_DELETED =
+            "delete w from workflow_process_instance w join ACT_HI_PROCINST h on h.PROC_INST_ID_ = w.process_instance_id "
+            + "where h.STATE_ = 'EXTERNALLY_TERMINATED'";
+    /* Status of each engine state, as mapped by ProcessStatusHistoryEventHandler */
+    private static final Map<String, String> RECONCILED_STATES = new LinkedHashMap<>();
+
+    static {
+        RECONCILED_STATES.put("ACTIVE", "ACTIVE");
+        RECONCILED_STATES.put("SUSPENDED", "SUSPENDED");
+        RECONCILED_STATES.put("COMPLETED", "COMPLETED");
+        RECONCILED_STATES.put("INTERNALLY_TERMINATED", "COMPLETED");
+    }
+
+    private final Queue<StatusChange> queue = new ConcurrentLinkedQueue<>();
+    /* Changes whose row did not exist yet, e.g. an instance that moved on before its start was saved; only used by flush */
+    private final Map<String, StatusChange> unmatched = new LinkedHashMap<>();
+
+    @Autowired
+    private WorkflowProcessInstanceRepository workflowProcessInstanceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${flowvioo.app.statusSyncRetryMs:30000}")
+    private long retryMs;
+
+    /**
+     * Queues a status change. Safe to call from any thread.
+     * @param processInstanceId the ID of the process instance
+     * @param status the new status
+     */
+    public void enqueue(String processInstanceId, String status) {
+        queue.add(new StatusChange(processInstanceId, status, System.currentTimeMillis()));
+    }
+
+    /**
+     * Writes the queued status changes. Only the last change of each instance is written.
+     */
+    @Scheduled(fixedDelayString = "${flowvioo.app.statusSyncFlushMs:500}")
+    public synchronized void flush() {
+        // Retried changes go first, so that a newer change of the same instance overrides them
+        Map<String, StatusChange> latest = new LinkedHashMap<>(unmatched);
+        unmatched.clear();
+        StatusChange change;
+        while ((change = queue.poll()) != null) {
+            latest.put(change.processInstanceId, change);
+        }
+        if (latest.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<String>> idsByStatus = new LinkedHashMap<>();
+        for (StatusChange latestChange : latest.values()) {
+            idsByStatus.computeIfAbsent(latestChange.status, status -> new ArrayList<>()).add(latestChange.processInstanceId);
+        }
+        for (Map.Entry<String, List<String>> entry : idsByStatus.entrySet()) {
+            List<String> ids = entry.getValue();
+            for (int from = 0; from < ids.size(); from += UPDATE_CHUNK_SIZE) {
+                List<String> chunk = ids.subList(from, Math.min(from + UPDATE_CHUNK_SIZE, ids.size()));
+                if (DELETED.equals(entry.getKey())) {
+                    // Rows already removed by whoever deleted the instance are not waited for
+                    workflowProcessInstanceRepository.deleteByProcessInstanceIds(chunk);
+                    continue;
+                }
+                int updated = workflowProcessInstanceRepository.updateStatusByProcessInstanceIds(chunk, entry.getKey());
+                if (updated < chunk.size()) {
+                    keepUnmatched(chunk, latest);
+                }
+            }
+        }
+    }
+
+    /**
+     * Corrects the status of every row that disagrees with the engine history
+     * and removes the rows of deleted instances.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        int corrected = 0;
+        for (Map.Entry<String, String> state : RECONCILED_STATES.entrySet()) {
+            corrected += jdbcTemplate.update(RECONCILE_STATUS, state.getValue(), state.getKey(), state.getValue());
+        }
+        corrected += jdbcTemplate.update(RECONCILE_DELETED);
+        if (corrected > 0) {
+            logger.info("Reconciled the status of {} workflow process instances with the engine history", corrected);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void keepUnmatched(List<String> chunk, Map<String, StatusChange> latest) {
+        Set<String> existing = new HashSet<>(workflowProcessInstanceRepository.findExistingProcessInstanceIds(chunk));
+        long now = System.currentTimeMillis();
+        for (String processInstanceId : chunk) {
+            StatusChange change = latest.get(processInstanceId);
+            // Rows of instances started outside of this application never appear, give up on them after a while
+            if (!existing.contains(processInstanceId) && now - change.queuedAt < retryMs) {
+                unmatched.put(processInstanceId, change);
+            }
+        }
+    }
+
+    private static final class StatusChange {
+        private final String processInstanceId;
+        private final String status;
+        private final long queuedAt;
+
+        private StatusChange(String processInstanceId, String status, long queuedAt) {
+            this.processInstanceId = processInstanceId;
+            this.status = status;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
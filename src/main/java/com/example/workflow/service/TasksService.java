@@ -12,14 +12,17 @@ import com.example.workflow.dto.*;
 
 import com.example.workflow.entity.Form;
 import com.example.workflow.entity.Workflow;
+import com.example.workflow.exception.TaskNotFoundException;
 import com.example.workflow.repository.FormRepository;
 import com.example.workflow.repository.WorkflowRepository;
+import com.example.workflow.util.GatewayDefaults;
 import lombok.RequiredArgsConstructor;
 import org.camunda.bpm.engine.*;
 import org.camunda.bpm.engine.repository.Deployment;
 import org.camunda.bpm.engine.repository.ProcessDefinition;
 
 import org.camunda.bpm.engine.task.Task;
+import org.camunda.bpm.engine.variable.Variables;
 import org.camunda.bpm.model.bpmn.Bpmn;
 import org.camunda.bpm.model.bpmn.BpmnModelInstance;
 import org.camunda.bpm.model.bpmn.instance.*;
@@ -28,9 +31,11 @@ import org.camunda.bpm.model.bpmn.instance.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -51,6 +56,27 @@ public class TasksService {
     @Autowired
     private FormRepository formRepository;
 
+    @Autowired
+    private WorkflowVersionService workflowVersionService;
+
+    @Autowired
+    private BpmnModelCache bpmnModelCache;
+
+    @Autowired
+    private ProcessDefinitionLookupCache processDefinitionLookupCache;
+
+    @Autowired
+    private ConflictRetryService conflictRetryService;
+
+    @Autowired
+    private WorkflowPatchService workflowPatchService;
+
+    @Autowired
+    private WorkflowMigrationService workflowMigrationService;
+
+    @Autowired
+    private WorkflowDeploymentSettings workflowDeploymentSettings;
+
     private String updatedDeploymentId = null;
 
     public TasksService(
@@ -117,8 +143,12 @@ public class TasksService {
      * @param taskId the ID of the task to claim.
      */
     public void claimTask(String taskId) {
-        String userId = taskService.createTaskQuery().taskId(taskId).singleResult().getAssignee();
-        taskService.claim(taskId, userId);
+        Task task = taskService.createTaskQuery().taskId(taskId).singleResult();
+        if (task == null) {
+            throw new TaskNotFoundException(taskId);
+        }
+        conflictRetryService.run(task.getProcessDefinitionId(), task.getTaskDefinitionKey(),
+                () -> taskService.claim(taskId, task.getAssignee()));
     }
 
     /**
@@ -127,14 +157,31 @@ public class TasksService {
      * @param input     the value of the selected radio button.
      */
     public void completeTask(String taskId, Integer input) {
-        // Claim the user task
-        taskService.claim(taskId,null);
+        Task task = taskService.createTaskQuery().taskId(taskId).singleResult();
+        if (task == null) {
+            // A repeated request for a task that is already completed has nothing left to do
+            if (isCompleted(taskId)) {
+                return;
+            }
+            throw new TaskNotFoundException(taskId);
+        }
 
-        // Set the "input" process variable to the selected value
-        runtimeService.setVariable(taskService.createTaskQuery().taskId(taskId).singleResult().getProcessInstanceId(), "input", input);
+        // Parallel branches completing at the same time conflict on their parent execution, run again then
+        conflictRetryService.run(task.getProcessDefinitionId(), task.getTaskDefinitionKey(), () -> {
+            if (taskService.createTaskQuery().taskId(taskId).count() == 0 && isCompleted(taskId)) {
+                return;
+            }
+            // Sets the "input" process variable to the selected value and completes the task in one transaction,
+            // so a retry never finds the variable set on a task that is still open
+            taskService.complete(taskId, Variables.putValue(GatewayDefaults.INPUT_VARIABLE, input));
+        });
+    }
 
-        // Complete the user task
-        taskService.complete(taskId);
+    private boolean isCompleted(String taskId) {
+        return historyService.createHistoricTaskInstanceQuery()
+                .taskId(taskId)
+                .taskDeleteReason("completed")
+                .count() > 0;
     }
 
     /**
@@ -281,10 +328,10 @@ public class TasksService {
         // Get all gateways from BpmnModelInstance
         Collection<Gateway> gateways = modelInstance.getModelElementsByType(Gateway.class);
 
-        // Iterate through gateways and get all outgoing sequence flows with condition expressions
+        // Iterate through gateways and get all outgoing sequence flows with conditions, including the default ones attached at parse time
         for (Gateway gateway : gateways) {
             for (SequenceFlow sequenceFlow : gateway.getOutgoing()) {
-                if (sequenceFlow.getConditionExpression() != null) {
+                if (GatewayDefaults.effectiveCondition(sequenceFlow) != null) {
                     gatewaySequenceFlows.add(GatewaySequenceFlowDto.of(sequenceFlow));
                 }
             }
@@ -329,6 +376,17 @@ public class TasksService {
     public void updateTask(String deploymentId, String taskId,String formKey,String assignee ) {
         // String assignee, String candidateUsers ,
         try {
+            // Store the element patches accepted so far and edit the deployment that holds them
+            String workflowId = workflowRepository.findIdByDeploymentId(deploymentId);
+            Workflow storedWorkflow = null;
+            if (workflowId != null) {
+                workflowPatchService.flush(workflowId);
+                storedWorkflow = workflowRepository.findById(workflowId).orElse(null);
+                if (storedWorkflow != null) {
+                    deploymentId = storedWorkflow.getDeploymentId();
+                }
+            }
+
             // Retrieve the process definition by deployment ID
             ProcessDefinition processDefinition = processEngine.getRepositoryService()
                     .createProcessDefinitionQuery()
@@ -340,7 +398,10 @@ public class TasksService {
                 throw new IllegalArgumentException("Invalid deployment ID: " + deploymentId);
             }
 
-            BpmnModelInstance bpmnModelInstance = processEngine.getRepositoryService().getBpmnModelInstance(processDefinition.getId());
+            // Edit the stored XML of a workflow, the deployed one also carries the settings of the workflow
+            BpmnModelInstance bpmnModelInstance = storedWorkflow != null && storedWorkflow.getXmlContent() != null
+                    ? Bpmn.readModelFromStream(new ByteArrayInputStream(storedWorkflow.getXmlContent().getBytes(StandardCharsets.UTF_8)))
+                    : processEngine.getRepositoryService().getBpmnModelInstance(processDefinition.getId());
             // Retrieve the user task by ID
             UserTask userTask = bpmnModelInstance.getModelElementById(taskId);
 
@@ -378,7 +439,7 @@ public class TasksService {
                         int count = 0;
                         for (SequenceFlow outgoingFlow : gateway.getOutgoing()) {
                             String value = String.valueOf(count);
-                            String label = outgoingFlow.getName();
+                            String label = GatewayDefaults.name(outgoingFlow.getName(), count);
                             // String expression = String.valueOf(outgoingFlow.getConditionExpression());
                             JsonObject valueJson = new JsonObject();
                             valueJson.addProperty("value", value);
@@ -400,7 +461,7 @@ public class TasksService {
                     int count = 0;
                     for (SequenceFlow outgoingFlow : gateway.getOutgoing()) {
                         String value = String.valueOf(count);
-                        String label = outgoingFlow.getName();
+                        String label = GatewayDefaults.name(outgoingFlow.getName(), count);
                         JsonObject valueJson = new JsonObject();
                         valueJson.addProperty("value", value);
                         valueJson.addProperty("label", label);
@@ -430,21 +491,14 @@ public class TasksService {
             userTask.setCamundaAssignee(assignee);
             //userTask.setCamundaCandidateUsers(candidateUsers);
             userTask.setCamundaFormKey(formKey);
-            // Deploy the updated process definition
-            Deployment deployment = processEngine.getRepositoryService().createDeployment()
-                    .addModelInstance(processDefinition.getResourceName(), bpmnModelInstance)
-                    .deploy();
-
             // Convert the updated BPMN model instance to XML string
             ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             Bpmn.writeModelToStream(outputStream, bpmnModelInstance);
             String updatedXmlContent = outputStream.toString();
 
             // Get workflow by deploymentId to update the deploymentId
-            Workflow workflow = null;
-            if (workflowRepository.findWorkflowByDeploymentId(deploymentId)!= null) {
-                workflow = workflowRepository.findWorkflowByDeploymentId(deploymentId);
-            } else {
+            Workflow workflow = storedWorkflow;
+            if (workflow == null) {
                 workflow = workflowRepository.findWorkflowByDeploymentId(updatedDeploymentId);
             }
 
@@ -453,6 +507,12 @@ public class TasksService {
                 throw new IllegalArgumentException("Invalid workflow: null");
             }
 
+            // Deploy the updated process definition
+            Deployment deployment = processEngine.getRepositoryService().createDeployment()
+                    .source(WorkflowService.DEPLOYMENT_SOURCE)
+                    .addString(processDefinition.getResourceName(), workflowDeploymentSettings.deploymentXml(workflow, updatedXmlContent))
+                    .deploy();
+
             /* Save BPMN XML file to /resources/static/bpmn folder
             String fileName = workflow.getXmlName() + ".xml";
             File bpmnFile = new File("src/main/resources/static/bpmns", fileName);
@@ -460,10 +520,13 @@ public class TasksService {
             Bpmn.writeModelToFile(bpmnFile, bpmnModelInstance);
             writer.close();*/
 
+            processDefinitionLookupCache.invalidate(workflow.getDeploymentId());
             updatedDeploymentId = deployment.getId();
             workflow.setDeploymentId(updatedDeploymentId);
             workflow.setXmlContent(updatedXmlContent);
-            workflowRepository.save(workflow);
+            workflowVersionService.recordVersion(workflowRepository.save(workflow));
+            bpmnModelCache.invalidate(workflow.getId());
+            workflowMigrationService.onRedeploy(workflow.getId());
 
         } catch (Exception e) {
             // Handle any exceptions that occur during the process
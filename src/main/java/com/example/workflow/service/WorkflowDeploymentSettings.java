@@ -0,0 +1,112 @@
+/**
+ * WorkflowDeploymentSettings applies the settings kept on a workflow - history time to live, job priority
+ * and execution policy - to the XML that is deployed for it. The stored XML stays as it was modeled,
+ * so changing or removing a setting takes effect on the next deployment instead of lingering in the model.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.entity.Workflow;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+@Component
+public class WorkflowDeploymentSettings {
+
+    @Autowired
+    private ExecutionPolicyService executionPolicyService;
+
+    /**
+     * Returns the XML to deploy for a workflow from its stored XML.
+     * @param workflow the workflow holding the settings
+     * @param xmlContent the stored XML of the workflow
+     * @return the XML with the settings applied, or the stored XML if the workflow has none
+     * @throws IllegalArgumentException if a setting is invalid
+     */
+    public String deploymentXml(Workflow workflow, String xmlContent) {
+        return deploymentXml(xmlContent, workflow.getHistoryTimeToLive(), workflow.getJobPriority(),
+                workflow.getExecutionPolicy());
+    }
+
+    /**
+     * Returns the XML to deploy for a workflow from its stored XML.
+     * @param xmlContent the stored XML of the workflow
+     * @param historyTimeToLive the history time to live in days, may be null
+     * @param jobPriority the job priority of the workflow, may be null
+     * @param executionPolicy the execution policy as JSON, may be null
+     * @return the XML with the settings applied, or the stored XML if none applies
+     * @throws IllegalArgumentException if a setting is invalid
+     */
+    public String deploymentXml(String xmlContent, Integer historyTimeToLive, Long jobPriority, String executionPolicy) {
+        BpmnModelInstance modelInstance = Bpmn.readModelFromStream(
+                new ByteArrayInputStream(xmlContent.getBytes(StandardCharsets.UTF_8)));
+        boolean modified = false;
+        if (historyTimeToLive != null) {
+            applyHistoryTimeToLive(modelInstance, historyTimeToLive);
+            modified = true;
+        }
+        if (applyJobPriority(modelInstance, jobPriority)) {
+            modified = true;
+        }
+        if (executionPolicy != null) {
+            // Mark the element types selected by the execution policy as asynchronous continuations
+            executionPolicyService.apply(modelInstance, executionPolicy);
+            modified = true;
+        }
+        return modified ? Bpmn.convertToString(modelInstance) : xmlContent;
+    }
+
+    /**
+     * Sets the job priority of a workflow on its processes, the priority of every job without one of its own,
+     * and the task priority of its external tasks. Service tasks modeled with a task priority and no job priority
+     * also get it as job priority, so their asynchronous continuations are ordered like their external tasks.
+     * Rules of the execution policy are applied afterwards and win over both.
+     * @param modelInstance the BPMN model instance
+     * @param jobPriority the job priority, may be null
+     * @return true if the model was changed
+     */
+    private boolean applyJobPriority(BpmnModelInstance modelInstance, Long jobPriority) {
+        boolean modified = false;
+        if (jobPriority != null) {
+            // Fully qualified, it would clash with java.lang.Process
+            for (org.camunda.bpm.model.bpmn.instance.Process process :
+                    modelInstance.getModelElementsByType(org.camunda.bpm.model.bpmn.instance.Process.class)) {
+                process.setCamundaJobPriority(String.valueOf(jobPriority));
+                process.setCamundaTaskPriority(String.valueOf(jobPriority));
+            }
+            modified = true;
+        }
+        for (ServiceTask serviceTask : modelInstance.getModelElementsByType(ServiceTask.class)) {
+            if (serviceTask.getCamundaTaskPriority() != null && serviceTask.getCamundaJobPriority() == null) {
+                serviceTask.setCamundaJobPriority(serviceTask.getCamundaTaskPriority());
+                modified = true;
+            }
+        }
+        return modified;
+    }
+
+    /**
+     * Sets the history time to live on every process of a BPMN model.
+     * The history cleanup removes the history of a finished instance once this many days passed.
+     * Without a value, the processes keep the time to live of the XML, or the engine default if there is none.
+     * @param modelInstance the BPMN model instance
+     * @param historyTimeToLive the time to live in days
+     * @throws IllegalArgumentException if the time to live is negative
+     */
+    private void applyHistoryTimeToLive(BpmnModelInstance modelInstance, int historyTimeToLive) {
+        if (historyTimeToLive < 0) {
+            throw new IllegalArgumentException("History time to live cannot be negative");
+        }
+        // Fully qualified, it would clash with java.lang.Process
+        for (org.camunda.bpm.model.bpmn.instance.Process process :
+                modelInstance.getModelElementsByType(org.camunda.bpm.model.bpmn.instance.Process.class)) {
+            process.setCamundaHistoryTimeToLive(historyTimeToLive);
+        }
+    }
+}
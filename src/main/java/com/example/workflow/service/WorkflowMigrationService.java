@@ -0,0 +1,264 @@
+/**
+ * WorkflowMigrationService moves the running instances of a workflow from its older process
+ * definition versions to the current one, so that old versions can be undeployed.
+ * Older versions are the process definitions of the deployments recorded in the version history of
+ * the workflow. The process definition key alone is not enough, other workflows and auto-deployed
+ * models can use the same BPMN process ID. Activities are mapped by equal IDs and every old version
+ * is migrated by its own asynchronous engine batch.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.dto.DefinitionMigrationDto;
+import com.example.workflow.dto.MigrationReportDto;
+import com.example.workflow.entity.Workflow;
+import com.example.workflow.repository.WorkflowRepository;
+import com.example.workflow.repository.WorkflowVersionRepository;
+import org.camunda.bpm.engine.ManagementService;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.batch.Batch;
+import org.camunda.bpm.engine.batch.BatchStatistics;
+import org.camunda.bpm.engine.migration.MigrationPlan;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.camunda.bpm.engine.runtime.Job;
+import org.camunda.bpm.engine.runtime.ProcessInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class WorkflowMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkflowMigrationService.class);
+
+    /* Caps the instance IDs and errors listed per old version */
+    private static final int MAX_LISTED = 100;
+
+    private final RepositoryService repositoryService;
+    private final RuntimeService runtimeService;
+    private final ManagementService managementService;
+    /* Last migration started per workflow */
+    private final Map<String, List<SourceMigration>> migrations = new ConcurrentHashMap<>();
+
+    @Autowired
+    private WorkflowRepository workflowRepository;
+
+    @Autowired
+    private WorkflowVersionRepository workflowVersionRepository;
+
+    @Autowired
+    private ProcessDefinitionLookupCache processDefinitionLookupCache;
+
+    @Value("${flowvioo.app.autoMigrateInstances:false}")
+    private boolean autoMigrateInstances;
+
+    public WorkflowMigrationService(RepositoryService repositoryService, RuntimeService runtimeService,
+                                    ManagementService managementService) {
+        this.repositoryService = repositoryService;
+        this.runtimeService = runtimeService;
+        this.managementService = managementService;
+    }
+
+    /**
+     * Called after a workflow was redeployed; migrates its instances when automatic migration is enabled.
+     * A failing migration never fails the redeployment, it is only logged.
+     * @param workflowId the ID of the redeployed workflow
+     */
+    public void onRedeploy(String workflowId) {
+        if (!autoMigrateInstances) {
+            return;
+        }
+        try {
+            migrate(workflowId);
+        } catch (RuntimeException e) {
+            logger.warn("Automatic instance migration of workflow {} failed: {}", workflowId, e.getMessage());
+        }
+    }
+
+    /**
+     * Starts the migration of the running instances of every older version of a workflow to its current version.
+     * @param workflowId the ID of the workflow
+     * @return the migration report, or empty if the workflow does not exist or is not deployed
+     */
+    public Optional<MigrationReportDto> migrate(String workflowId) {
+        Optional<ProcessDefinition> target = currentDefinition(workflowId);
+        if (!target.isPresent()) {
+            return Optional.empty();
+        }
+        ProcessDefinition targetDefinition = target.get();
+
+        List<SourceMigration> sourceMigrations = new ArrayList<>();
+        for (ProcessDefinition source : olderDefinitions(workflowId, targetDefinition)) {
+            long instances = runtimeService.createProcessInstanceQuery()
+                    .processDefinitionId(source.getId())
+                    .count();
+            if (instances == 0) {
+                continue;
+            }
+            SourceMigration sourceMigration = new SourceMigration(source, instances);
+            try {
+                MigrationPlan plan = runtimeService.createMigrationPlan(source.getId(), targetDefinition.getId())
+                        .mapEqualActivities()
+                        .updateEventTriggers()
+                        .build();
+                Batch batch = runtimeService.newMigration(plan)
+                        .processInstanceQuery(runtimeService.createProcessInstanceQuery().processDefinitionId(source.getId()))
+                        .executeAsync();
+                sourceMigration.batchId = batch.getId();
+                sourceMigration.batchJobDefinitionId = batch.getBatchJobDefinitionId();
+            } catch (RuntimeException e) {
+                // Typically an activity of the old version that no longer exists in the current one
+                sourceMigration.planError = e.getMessage();
+            }
+            sourceMigrations.add(sourceMigration);
+        }
+
+        migrations.put(workflowId, sourceMigrations);
+        return Optional.of(toReport(workflowId, targetDefinition.getId(), sourceMigrations));
+    }
+
+    /**
+     * Returns the progress of the last migration of a workflow.
+     * @param workflowId the ID of the workflow
+     * @return the migration report, or empty if no migration was started for the workflow
+     */
+    public Optional<MigrationReportDto> getMigrationStatus(String workflowId) {
+        List<SourceMigration> sourceMigrations = migrations.get(workflowId);
+        Optional<ProcessDefinition> target = currentDefinition(workflowId);
+        if (sourceMigrations == null || !target.isPresent()) {
+            return Optional.empty();
+        }
+        return Optional.of(toReport(workflowId, target.get().getId(), sourceMigrations));
+    }
+
+    /**
+     * Undeploys the older versions of a workflow that have no running instance left.
+     * Their history is kept.
+     * @param workflowId the ID of the workflow
+     * @return the IDs of the undeployed deployments, or empty if the workflow does not exist or is not deployed
+     */
+    public Optional<List<String>> undeployEmptyVersions(String workflowId) {
+        Optional<ProcessDefinition> target = currentDefinition(workflowId);
+        if (!target.isPresent()) {
+            return Optional.empty();
+        }
+
+        List<String> undeployed = new ArrayList<>();
+        for (ProcessDefinition source : olderDefinitions(workflowId, target.get())) {
+            // A deployment can still be the current one of another workflow, e.g. after a copy
+            if (workflowRepository.existsByDeploymentId(source.getDeploymentId())) {
+                continue;
+            }
+            long instances = runtimeService.createProcessInstanceQuery()
+                    .processDefinitionId(source.getId())
+                    .count();
+            if (instances > 0) {
+                continue;
+            }
+            try {
+                // Without cascade the engine refuses the deletion if an instance started in the meantime
+                repositoryService.deleteDeployment(source.getDeploymentId(), false);
+                processDefinitionLookupCache.invalidate(source.getDeploymentId());
+                undeployed.add(source.getDeploymentId());
+            } catch (RuntimeException e) {
+                logger.warn("Could not undeploy deployment {} of workflow {}: {}", source.getDeploymentId(), workflowId, e.getMessage());
+            }
+        }
+        return Optional.of(undeployed);
+    }
+
+    private Optional<ProcessDefinition> currentDefinition(String workflowId) {
+        Optional<Workflow> workflow = workflowRepository.findById(workflowId);
+        if (!workflow.isPresent() || workflow.get().getDeploymentId() == null) {
+            return Optional.empty();
+        }
+        String processDefinitionId = processDefinitionLookupCache.get(workflow.get().getDeploymentId()).getProcessDefinitionId();
+        return Optional.ofNullable(repositoryService.getProcessDefinition(processDefinitionId));
+    }
+
+    private List<ProcessDefinition> olderDefinitions(String workflowId, ProcessDefinition target) {
+        List<ProcessDefinition> older = new ArrayList<>();
+        for (String deploymentId : workflowVersionRepository.findDeploymentIdsByWorkflowId(workflowId)) {
+            if (deploymentId.equals(target.getDeploymentId())) {
+                continue;
+            }
+            for (ProcessDefinition definition : repositoryService.createProcessDefinitionQuery()
+                    .deploymentId(deploymentId)
+                    .processDefinitionKey(target.getKey())
+                    .list()) {
+                if (definition.getVersion() < target.getVersion()) {
+                    older.add(definition);
+                }
+            }
+        }
+        older.sort(Comparator.comparingInt(ProcessDefinition::getVersion));
+        return older;
+    }
+
+    private MigrationReportDto toReport(String workflowId, String targetProcessDefinitionId, List<SourceMigration> sourceMigrations) {
+        List<DefinitionMigrationDto> sources = new ArrayList<>();
+        for (SourceMigration sourceMigration : sourceMigrations) {
+            sources.add(toDto(sourceMigration));
+        }
+        return new MigrationReportDto(workflowId, targetProcessDefinitionId, sources);
+    }
+
+    private DefinitionMigrationDto toDto(SourceMigration sourceMigration) {
+        String sourceId = sourceMigration.source.getId();
+        long remaining = runtimeService.createProcessInstanceQuery().processDefinitionId(sourceId).count();
+        List<String> remainingIds = new ArrayList<>();
+        if (remaining > 0) {
+            for (ProcessInstance processInstance : runtimeService.createProcessInstanceQuery()
+                    .processDefinitionId(sourceId)
+                    .listPage(0, MAX_LISTED)) {
+                remainingIds.add(processInstance.getId());
+            }
+        }
+
+        boolean finished = true;
+        List<String> failures = new ArrayList<>();
+        if (sourceMigration.batchId != null) {
+            BatchStatistics statistics = managementService.createBatchStatisticsQuery()
+                    .batchId(sourceMigration.batchId)
+                    .singleResult();
+            // A batch leaves the runtime tables once all its jobs succeeded
+            finished = statistics == null || statistics.getRemainingJobs() == statistics.getFailedJobs();
+            if (statistics != null && statistics.getFailedJobs() > 0) {
+                for (Job job : managementService.createJobQuery()
+                        .jobDefinitionId(sourceMigration.batchJobDefinitionId)
+                        .withException()
+                        .listPage(0, MAX_LISTED)) {
+                    failures.add(job.getExceptionMessage());
+                }
+            }
+        }
+
+        return new DefinitionMigrationDto(sourceId, sourceMigration.source.getVersion(), sourceMigration.batchId,
+                sourceMigration.instances, remaining, finished, sourceMigration.planError,
+                remainingIds.isEmpty() ? Collections.emptyList() : remainingIds, failures);
+    }
+
+    private static final class SourceMigration {
+        private final ProcessDefinition source;
+        private final long instances;
+        private String batchId;
+        private String batchJobDefinitionId;
+        private String planError;
+
+        private SourceMigration(ProcessDefinition source, long instances) {
+            this.source = source;
+            this.instances = instances;
+        }
+    }
+}
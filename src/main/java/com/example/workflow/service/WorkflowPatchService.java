@@ -0,0 +1,359 @@
+/**
+ * WorkflowPatchService applies element level changes to the cached BPMN model of a workflow.
+ * Changes are applied in memory right away; the model is serialized and deployed once
+ * after a short delay, so that several patches arriving close together share one deployment.
+ * A patch mutates the cached model in place under its lock; when an operation fails the operations
+ * already applied by the request are undone, so a failing request never drops the accepted patches of earlier ones.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.entity.Workflow;
+import com.example.workflow.payload.request.ElementOperationRequest;
+import com.example.workflow.payload.response.ElementPatchResponse;
+import com.example.workflow.repository.WorkflowRepository;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.repository.Deployment;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.impl.BpmnModelConstants;
+import org.camunda.bpm.model.bpmn.instance.BaseElement;
+import org.camunda.bpm.model.bpmn.instance.ConditionExpression;
+import org.camunda.bpm.model.bpmn.instance.ExtensionElements;
+import org.camunda.bpm.model.bpmn.instance.FlowElement;
+import org.camunda.bpm.model.bpmn.instance.SequenceFlow;
+import org.camunda.bpm.model.bpmn.instance.camunda.CamundaExecutionListener;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class WorkflowPatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkflowPatchService.class);
+
+    private static final String CAMUNDA_PREFIX = "camunda:";
+
+    private final RepositoryService repositoryService;
+    private final ScheduledExecutorService deployScheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Map<String, ScheduledFuture<?>> pendingDeployments = new ConcurrentHashMap<>();
+
+    @Autowired
+    private WorkflowRepository workflowRepository;
+    @Autowired
+    private WorkflowVersionService workflowVersionService;
+    @Autowired
+    private BpmnModelCache bpmnModelCache;
+    @Autowired
+    private ProcessDefinitionLookupCache processDefinitionLookupCache;
+    @Autowired
+    private WorkflowMigrationService workflowMigrationService;
+    @Autowired
+    private WorkflowDeploymentSettings workflowDeploymentSettings;
+
+    @Value("${flowvioo.app.patchDeployDelayMs:500}")
+    private long deployDelayMs;
+
+    public WorkflowPatchService(RepositoryService repositoryService) {
+        this.repositoryService = repositoryService;
+    }
+
+    /**
+     * Applies a list of element operations to the cached model of a workflow and schedules its deployment.
+     * The whole list is validated before anything is applied, so an invalid operation leaves the model untouched.
+     * @param workflowId the ID of the workflow to patch
+     * @param operations the operations to apply, in order
+     * @return the patch result, or null if the workflow does not exist
+     * @throws IllegalArgumentException if an operation is invalid
+     */
+    public ElementPatchResponse patchElements(String workflowId, List<ElementOperationRequest> operations) {
+        BpmnModelInstance modelInstance = cachedModel(workflowId);
+        if (modelInstance == null) {
+            return null;
+        }
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("At least one operation is required");
+        }
+
+        while (true) {
+            synchronized (modelInstance) {
+                // Dropped by a full update or a failed deployment meanwhile, patch the model that replaced it
+                if (bpmnModelCache.getIfPresent(workflowId) == modelInstance) {
+                    // Validate the whole request first so that a bad operation leaves the model untouched
+                    for (ElementOperationRequest operation : operations) {
+                        validate(modelInstance, operation);
+                    }
+                    applyAll(modelInstance, operations);
+                    bpmnModelCache.modified(workflowId);
+                    break;
+                }
+            }
+            modelInstance = cachedModel(workflowId);
+            if (modelInstance == null) {
+                return null;
+            }
+        }
+
+        pendingDeployments.computeIfAbsent(workflowId, id -> deployScheduler.schedule(
+                () -> deploy(id), deployDelayMs, TimeUnit.MILLISECONDS));
+        return new ElementPatchResponse(workflowId, operations.size(), deployDelayMs);
+    }
+
+    /* Returns the cached model of a workflow, reading the workflow only when the model is not cached yet */
+    private BpmnModelInstance cachedModel(String workflowId) {
+        BpmnModelInstance modelInstance = bpmnModelCache.getIfPresent(workflowId);
+        if (modelInstance != null) {
+            return modelInstance;
+        }
+        return workflowRepository.findById(workflowId).map(bpmnModelCache::get).orElse(null);
+    }
+
+    /* Applies the operations in order, undoing the applied ones in reverse order if one of them fails */
+    private void applyAll(BpmnModelInstance modelInstance, List<ElementOperationRequest> operations) {
+        Deque<Runnable> undos = new ArrayDeque<>();
+        try {
+            for (ElementOperationRequest operation : operations) {
+                undos.push(apply(modelInstance, operation));
+            }
+        } catch (RuntimeException e) {
+            while (!undos.isEmpty()) {
+                undos.pop().run();
+            }
+            throw e;
+        }
+    }
+
+    private void validate(BpmnModelInstance modelInstance, ElementOperationRequest operation) {
+        if (operation.getOp() == null) {
+            throw new IllegalArgumentException("Operation type is required for element " + operation.getElementId());
+        }
+        ModelElementInstance element = modelInstance.getModelElementById(operation.getElementId());
+        if (element == null) {
+            throw new IllegalArgumentException("Element not found: " + operation.getElementId());
+        }
+
+        switch (operation.getOp()) {
+            case SET_ATTRIBUTE:
+                String attribute = operation.getAttribute();
+                if (attribute == null || attribute.isEmpty() || "id".equals(attribute) || CAMUNDA_PREFIX.equals(attribute)) {
+                    throw new IllegalArgumentException("Invalid attribute: " + attribute);
+                }
+                break;
+            case RENAME:
+                if (!(element instanceof FlowElement)) {
+                    throw new IllegalArgumentException("Element " + operation.getElementId() + " cannot be renamed");
+                }
+                break;
+            case SET_CONDITION:
+                if (!(element instanceof SequenceFlow)) {
+                    throw new IllegalArgumentException("Element " + operation.getElementId() + " is not a sequence flow");
+                }
+                break;
+            case ADD_LISTENER:
+                if (!(element instanceof BaseElement)) {
+                    throw new IllegalArgumentException("Element " + operation.getElementId() + " cannot have listeners");
+                }
+                if (operation.getEvent() == null || operation.getEvent().isEmpty()) {
+                    throw new IllegalArgumentException("Listener event is required for element " + operation.getElementId());
+                }
+                if ((operation.getListenerClass() == null) == (operation.getDelegateExpression() == null)) {
+                    throw new IllegalArgumentException("Exactly one of listenerClass or delegateExpression is required");
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported operation: " + operation.getOp());
+        }
+    }
+
+    /* Applies an operation and returns the action that restores the element as it was */
+    private Runnable apply(BpmnModelInstance modelInstance, ElementOperationRequest operation) {
+        ModelElementInstance element = modelInstance.getModelElementById(operation.getElementId());
+        switch (operation.getOp()) {
+            case SET_ATTRIBUTE:
+                return setAttribute(element, operation.getAttribute(), operation.getValue());
+            case RENAME:
+                return setAttribute(element, "name", operation.getValue());
+            case SET_CONDITION:
+                return setCondition(modelInstance, (SequenceFlow) element, operation.getValue());
+            case ADD_LISTENER:
+                return addListener(modelInstance, (BaseElement) element, operation);
+            default:
+                throw new IllegalArgumentException("Unsupported operation: " + operation.getOp());
+        }
+    }
+
+    private Runnable setAttribute(ModelElementInstance element, String attribute, String value) {
+        String previous;
+        if (attribute.startsWith(CAMUNDA_PREFIX)) {
+            String localName = attribute.substring(CAMUNDA_PREFIX.length());
+            previous = element.getAttributeValueNs(BpmnModelConstants.CAMUNDA_NS, localName);
+            if (value == null) {
+                element.removeAttributeNs(BpmnModelConstants.CAMUNDA_NS, localName);
+            } else {
+                element.setAttributeValueNs(BpmnModelConstants.CAMUNDA_NS, localName, value);
+            }
+        } else {
+            previous = element.getAttributeValue(attribute);
+            if (value == null) {
+                element.removeAttribute(attribute);
+            } else {
+                element.setAttributeValue(attribute, value);
+            }
+        }
+        return () -> setAttribute(element, attribute, previous);
+    }
+
+    private Runnable setCondition(BpmnModelInstance modelInstance, SequenceFlow sequenceFlow, String expression) {
+        ConditionExpression previous = sequenceFlow.getConditionExpression();
+        if (expression == null || expression.isEmpty()) {
+            sequenceFlow.setConditionExpression(null);
+        } else {
+            ConditionExpression conditionExpression = modelInstance.newInstance(ConditionExpression.class);
+            conditionExpression.setTextContent(expression);
+            sequenceFlow.setConditionExpression(conditionExpression);
+        }
+        return () -> sequenceFlow.setConditionExpression(previous);
+    }
+
+    private Runnable addListener(BpmnModelInstance modelInstance, BaseElement element, ElementOperationRequest operation) {
+        String event = operation.getEvent();
+        ExtensionElements extensionElements = element.getExtensionElements();
+        if (extensionElements == null) {
+            ExtensionElements created = modelInstance.newInstance(ExtensionElements.class);
+            element.setExtensionElements(created);
+            Runnable undo = () -> element.removeChildElement(created);
+            try {
+                addListener(modelInstance, created, operation);
+            } catch (RuntimeException e) {
+                undo.run();
+                throw e;
+            }
+            return undo;
+        }
+
+        // Adding the same listener twice is a no-op
+        List<CamundaExecutionListener> listeners = extensionElements.getElementsQuery()
+                .filterByType(CamundaExecutionListener.class)
+                .list();
+        for (CamundaExecutionListener listener : listeners) {
+            if (event.equals(listener.getCamundaEvent())
+                    && Objects.equals(operation.getListenerClass(), listener.getCamundaClass())
+                    && Objects.equals(operation.getDelegateExpression(), listener.getCamundaDelegateExpression())) {
+                return () -> { };
+            }
+        }
+
+        CamundaExecutionListener listener = addListener(modelInstance, extensionElements, operation);
+        return () -> extensionElements.removeChildElement(listener);
+    }
+
+    private CamundaExecutionListener addListener(BpmnModelInstance modelInstance, ExtensionElements extensionElements,
+                                                 ElementOperationRequest operation) {
+        CamundaExecutionListener listener = modelInstance.newInstance(CamundaExecutionListener.class);
+        listener.setCamundaEvent(operation.getEvent());
+        if (operation.getListenerClass() != null) {
+            listener.setCamundaClass(operation.getListenerClass());
+        } else {
+            listener.setCamundaDelegateExpression(operation.getDelegateExpression());
+        }
+        extensionElements.addChildElement(listener);
+        return listener;
+    }
+
+    /**
+     * Deploys the pending patches of a workflow right away instead of after the delay.
+     * Called before the workflow is replaced by a full update, which would otherwise drop them.
+     * @param workflowId the ID of the workflow
+     */
+    public void flush(String workflowId) {
+        ScheduledFuture<?> pending = pendingDeployments.get(workflowId);
+        if (pending == null) {
+            return;
+        }
+        if (pending.cancel(false)) {
+            deploy(workflowId);
+            return;
+        }
+        // Already running on the scheduler, wait until it is stored
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException e) {
+            logger.warn("Pending deployment of workflow {} did not complete: {}", workflowId, e.getMessage());
+        }
+    }
+
+    /* Synchronized so that a flush and a scheduled deployment never store the same workflow concurrently */
+    private synchronized void deploy(String workflowId) {
+        pendingDeployments.remove(workflowId);
+        // The model was dropped by a full update in the meantime, the stored XML is already current
+        BpmnModelInstance modelInstance = bpmnModelCache.getIfPresent(workflowId);
+        if (modelInstance == null) {
+            return;
+        }
+        try {
+            Optional<Workflow> optionalWorkflow = workflowRepository.findById(workflowId);
+            if (!optionalWorkflow.isPresent()) {
+                bpmnModelCache.invalidate(workflowId);
+                return;
+            }
+            Workflow workflow = optionalWorkflow.get();
+            String previousDeploymentId = workflow.getDeploymentId();
+
+            // Serialize under the lock, the string is the stable snapshot the deployment is built from
+            String updatedXmlContent;
+            synchronized (modelInstance) {
+                updatedXmlContent = Bpmn.convertToString(modelInstance);
+            }
+
+            Deployment deployment = repositoryService.createDeployment()
+                    .name(UUID.randomUUID() + "_" + workflow.getName())
+                    .source(WorkflowService.DEPLOYMENT_SOURCE)
+                    .addString(workflow.getXmlName(), workflowDeploymentSettings.deploymentXml(workflow, updatedXmlContent))
+                    .deploy();
+
+            if (workflowRepository.updateDeployment(workflowId, previousDeploymentId, updatedXmlContent, deployment.getId()) == 0) {
+                // A full update stored its XML since the workflow was read, it replaces the patches
+                repositoryService.deleteDeployment(deployment.getId(), false);
+                bpmnModelCache.invalidate(workflowId, modelInstance);
+                logger.warn("Patches of workflow {} were replaced by a concurrent update", workflowId);
+                return;
+            }
+
+            processDefinitionLookupCache.invalidate(previousDeploymentId);
+            workflow.setXmlContent(updatedXmlContent);
+            workflow.setDeploymentId(deployment.getId());
+            workflowVersionService.recordVersion(workflow);
+            workflowMigrationService.onRedeploy(workflowId);
+        } catch (Exception e) {
+            // Keep the stored XML authoritative when the patched model cannot be deployed
+            bpmnModelCache.invalidate(workflowId, modelInstance);
+            logger.error("Failed to deploy patched workflow {}: {}", workflowId, e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deployScheduler.shutdown();
+    }
+}
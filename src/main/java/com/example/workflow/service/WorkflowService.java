@@ -4,7 +4,10 @@
 
 package com.example.workflow.service;
 
+import com.example.workflow.dto.WorkflowVersionDto;
 import com.example.workflow.entity.Workflow;
+import com.example.workflow.listener.WorkflowDefaultsParseListener;
+import com.example.workflow.payload.request.ExecutionPolicyRule;
 import com.example.workflow.repository.WorkflowRepository;
 import lombok.RequiredArgsConstructor;
 
@@ -17,6 +20,7 @@ import org.camunda.bpm.engine.repository.ProcessDefinition;
 import org.camunda.bpm.model.bpmn.Bpmn;
 import org.camunda.bpm.model.bpmn.BpmnModelInstance;
 import org.camunda.bpm.model.bpmn.instance.*;
+import org.camunda.bpm.model.bpmn.instance.camunda.CamundaConnector;
 import org.camunda.bpm.model.bpmn.instance.camunda.CamundaExecutionListener;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -28,6 +32,9 @@ import java.util.*;
 @Service
 public class WorkflowService {
 
+    /* Source of every deployment made for a workflow; WorkflowDefaultsParseListener only applies its defaults to these */
+    public static final String DEPLOYMENT_SOURCE = "flowvioo-workflow";
+
     private final RepositoryService repositoryService;
     @Autowired
     public WorkflowService(RepositoryService repositoryService) {
@@ -35,6 +42,20 @@ public class WorkflowService {
     }
     @Autowired
     private WorkflowRepository workflowRepository;
+    @Autowired
+    private WorkflowVersionService workflowVersionService;
+    @Autowired
+    private BpmnModelCache bpmnModelCache;
+    @Autowired
+    private ProcessDefinitionLookupCache processDefinitionLookupCache;
+    @Autowired
+    private WorkflowMigrationService workflowMigrationService;
+    @Autowired
+    private ExecutionPolicyService executionPolicyService;
+    @Autowired
+    private WorkflowDeploymentSettings workflowDeploymentSettings;
+    @Autowired
+    private WorkflowPatchService workflowPatchService;
 
 
     /**
@@ -76,85 +97,22 @@ public class WorkflowService {
         BpmnModelInstance modelInstance = Bpmn.readModelFromStream(
                 new ByteArrayInputStream(workflow.getXmlContent().getBytes(StandardCharsets.UTF_8)));
 
+        // Completion listeners and gateway conditions are attached when the engine parses the deployment,
+        // only what the parser cannot default is written to the XML
+        boolean modified = applyModelDefaults(modelInstance);
 
-        // Inject condition expressions into sequence flows that come just after a gateway
-        Collection<ExclusiveGateway> gateways = modelInstance.getModelElementsByType(ExclusiveGateway.class);
-        for (ExclusiveGateway gateway : gateways) {
-            int pathCounter = 0;
-            List<SequenceFlow> outgoingFlows = new ArrayList<>(gateway.getOutgoing());
-            if (outgoingFlows.size() > 1) {
-                for (SequenceFlow outgoingFlow : outgoingFlows) {
-                    if (outgoingFlow.getTarget() instanceof FlowNode) {
-                        FlowNode targetNode = outgoingFlow.getTarget();
-                        if (targetNode.getIncoming().stream().anyMatch(incoming -> incoming.getSource() == gateway)) {
-                            // Create and set condition expression for sequence flow
-                            ConditionExpression conditionExpression = modelInstance.newInstance(ConditionExpression.class);
-                            conditionExpression.setTextContent("${input == " + pathCounter++ + "}");
-                            outgoingFlow.setConditionExpression(conditionExpression);
-                            // Set name of sequence flow
-                            if (outgoingFlow.getName() == null || outgoingFlow.getName().isEmpty()) {
-                                outgoingFlow.setName("Flow " + pathCounter);
-                                outgoingFlow.builder().name(outgoingFlow.getName()).done();
-                            }
-                        }
-                    }
-                }
-            }
-        }
-
-        // Inject default delegate expression for service tasks without one
-        Collection<ServiceTask> serviceTasks = modelInstance.getModelElementsByType(ServiceTask.class);
-        for (ServiceTask serviceTask : serviceTasks) {
-            if (serviceTask.getCamundaDelegateExpression() == null) {
-                serviceTask.setCamundaDelegateExpression("#{defaultCamundaDelegateClass}");
-            }
-        }
-
-        // Inject default delegate expression for send tasks without one and set variables
-        Collection<SendTask> sendTasks = modelInstance.getModelElementsByType(SendTask.class);
-        for (SendTask sendTask : sendTasks) {
-            sendTask.setCamundaDelegateExpression("${defaultSendMailDelegateClass}");
-        }
-
-        // Check if every gateway is preceded by a user task
-        for (FlowElement element : modelInstance.getModelElementsByType(FlowElement.class)) {
-            if (element instanceof Gateway) {
-                Collection<SequenceFlow> incomingFlows = ((Gateway) element).getIncoming();
-                boolean hasUserTaskBefore = false;
-                for (SequenceFlow incomingFlow : incomingFlows) {
-                    if (incomingFlow.getSource() instanceof UserTask) {
-                        hasUserTaskBefore = true;
-                        break;
-                    }
-                }
-                if (!hasUserTaskBefore) {
-                    throw new RuntimeException("Gateway " + element.getId() + " must be preceded by a User Task.");
-                }
-            }
-        }
-
-
-        // Set the execution listener for every end event in the BPMN
-        Collection<EndEvent> endEvents = modelInstance.getModelElementsByType(EndEvent.class);
-        for (EndEvent endEvent : endEvents) {
-            CamundaExecutionListener executionListener = modelInstance.newInstance(CamundaExecutionListener.class);
-            executionListener.setCamundaClass("com.example.workflow.listener.ProcessCompletionListener");
-            endEvent.builder().camundaExecutionListenerClass("end", executionListener.getCamundaClass());
-        }
-
-        // Convert the updated BPMN model instance to XML string
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        Bpmn.writeModelToStream(outputStream, modelInstance);
-        String updatedXmlContent = outputStream.toString();
+        // Keep the XML as it was sent unless a default had to be written
+        String updatedXmlContent = modified ? Bpmn.convertToString(modelInstance) : workflow.getXmlContent();
 
         // Set the updated XML content to the workflow entity
         workflow.setXmlContent(updatedXmlContent);
 
-        // Deploy process definition
+        // Deploy process definition, with the settings of the workflow applied to the deployed copy only
         String deploymentName = UUID.randomUUID() + "_" + workflow.getName();
         Deployment deployment = repositoryService.createDeployment()
                 .name(deploymentName)
-                .addString(workflow.getXmlName(), updatedXmlContent)
+                .source(DEPLOYMENT_SOURCE)
+                .addString(workflow.getXmlName(), workflowDeploymentSettings.deploymentXml(workflow, updatedXmlContent))
                 .deploy();
 
         // Get the process definition from the deployment
@@ -172,8 +130,79 @@ public class WorkflowService {
         Bpmn.writeModelToFile(bpmnFile, modelInstance);
         writer.close();*/
 
-        // Save workflow entity to database
-        return workflowRepository.save(workflow);
+        // Save workflow entity to database and record its first version
+        Workflow savedWorkflow = workflowRepository.save(workflow);
+        workflowVersionService.recordVersion(savedWorkflow);
+        bpmnModelCache.invalidate(savedWorkflow.getId());
+        return savedWorkflow;
+    }
+
+    /**
+     * Validates a BPMN model and writes the defaults the engine parser cannot supply.
+     * The input conditions of gateway flows are attached at parse time by WorkflowDefaultsParseListener
+     * and never written to the XML, so they cannot be duplicated. The settings of the workflow are applied
+     * to the deployed XML only, by WorkflowDeploymentSettings.
+     * @param modelInstance the BPMN model instance
+     * @return true if the model was changed and must be serialized again
+     * @throws RuntimeException if a gateway is not preceded by a user task
+     */
+    private boolean applyModelDefaults(BpmnModelInstance modelInstance) {
+        // Check if every gateway is preceded by a user task
+        for (Gateway gateway : modelInstance.getModelElementsByType(Gateway.class)) {
+            boolean hasUserTaskBefore = false;
+            for (SequenceFlow incomingFlow : gateway.getIncoming()) {
+                if (incomingFlow.getSource() instanceof UserTask) {
+                    hasUserTaskBefore = true;
+                    break;
+                }
+            }
+            if (!hasUserTaskBefore) {
+                throw new RuntimeException("Gateway " + gateway.getId() + " must be preceded by a User Task.");
+            }
+        }
+
+        boolean modified = false;
+        // The parser rejects service and send tasks without an implementation, they get the default delegates
+        for (ServiceTask serviceTask : modelInstance.getModelElementsByType(ServiceTask.class)) {
+            if (!hasImplementation(serviceTask, serviceTask.getCamundaClass(), serviceTask.getCamundaExpression(),
+                    serviceTask.getCamundaDelegateExpression(), serviceTask.getCamundaType())) {
+                serviceTask.setCamundaDelegateExpression("#{defaultCamundaDelegateClass}");
+                modified = true;
+            }
+        }
+        for (SendTask sendTask : modelInstance.getModelElementsByType(SendTask.class)) {
+            if (!hasImplementation(sendTask, sendTask.getCamundaClass(), sendTask.getCamundaExpression(),
+                    sendTask.getCamundaDelegateExpression(), sendTask.getCamundaType())) {
+                sendTask.setCamundaDelegateExpression("${defaultSendMailDelegateClass}");
+                modified = true;
+            }
+        }
+
+        // Older versions wrote the completion listener into the XML, once more on every update
+        for (EndEvent endEvent : modelInstance.getModelElementsByType(EndEvent.class)) {
+            ExtensionElements extensionElements = endEvent.getExtensionElements();
+            if (extensionElements == null) {
+                continue;
+            }
+            for (CamundaExecutionListener listener : extensionElements.getElementsQuery()
+                    .filterByType(CamundaExecutionListener.class).list()) {
+                if (WorkflowDefaultsParseListener.LEGACY_COMPLETION_LISTENER.equals(listener.getCamundaClass())) {
+                    extensionElements.getElements().remove(listener);
+                    modified = true;
+                }
+            }
+        }
+        return modified;
+    }
+
+    private static boolean hasImplementation(BaseElement task, String className, String expression,
+                                             String delegateExpression, String type) {
+        if (className != null || expression != null || delegateExpression != null || type != null) {
+            return true;
+        }
+        ExtensionElements extensionElements = task.getExtensionElements();
+        return extensionElements != null
+                && !extensionElements.getElementsQuery().filterByType(CamundaConnector.class).list().isEmpty();
     }
 
     /**
@@ -204,6 +233,9 @@ public class WorkflowService {
      * @throws IOException if there is an error reading or writing the BPMN model XML content
      */
     public Workflow updateWorkflowBpmn(String id, Workflow workflow) throws IOException {
+        // Store the element patches accepted so far, the full update replaces the cached model
+        workflowPatchService.flush(id);
+
         // Check if the workflow exists and retrieve its XML content
         Optional<Workflow> optionalWorkflow = workflowRepository.findById(id);
         if (!optionalWorkflow.isPresent()) {
@@ -212,85 +244,31 @@ public class WorkflowService {
         }
         Workflow existingWorkflow = optionalWorkflow.get();
 
-        // Inject condition expressions into sequence flows that come just after a gateway
         BpmnModelInstance modelInstance = Bpmn.readModelFromStream(
                 new ByteArrayInputStream(workflow.getXmlContent().getBytes(StandardCharsets.UTF_8)));
 
-        Collection<ExclusiveGateway> gateways = modelInstance.getModelElementsByType(ExclusiveGateway.class);
-        for (ExclusiveGateway gateway : gateways) {
-            int pathCounter = 0;
-            List<SequenceFlow> outgoingFlows = new ArrayList<>(gateway.getOutgoing());
-            if (outgoingFlows.size() > 1) {
-                for (SequenceFlow outgoingFlow : outgoingFlows) {
-                    if (outgoingFlow.getTarget() instanceof FlowNode) {
-                        FlowNode targetNode = outgoingFlow.getTarget();
-                        if (targetNode.getIncoming().stream().anyMatch(incoming -> incoming.getSource() == gateway)) {
-                            ConditionExpression conditionExpression = modelInstance.newInstance(ConditionExpression.class);
-                            conditionExpression.setTextContent("${input == " + pathCounter++ + "}");
-                            outgoingFlow.setConditionExpression(conditionExpression);
-                            if (outgoingFlow.getName() == null) {
-                                outgoingFlow.setName("Flow " + pathCounter); // Set name of sequence flow
-                            }
-                            outgoingFlow.builder()
-                                    .name(outgoingFlow.getName())
-                                    .done();
-                        }
-                    }
-                }
-            }
-        }
-
-        // Inject default delegate expression for service tasks without one
-        Collection<ServiceTask> serviceTasks = modelInstance.getModelElementsByType(ServiceTask.class);
-        for (ServiceTask serviceTask : serviceTasks) {
-            serviceTask.setCamundaDelegateExpression("#{defaultCamundaDelegateClass}");
-        }
-
-        // Inject default delegate expression for send tasks without one and set variables
-        Collection<SendTask> sendTasks = modelInstance.getModelElementsByType(SendTask.class);
-        for (SendTask sendTask : sendTasks) {
-            sendTask.setCamundaDelegateExpression("${defaultSendMailDelegateClass}");
-        }
-
-        // Check if every gateway is preceded by a user task
-        for (FlowElement element : modelInstance.getModelElementsByType(FlowElement.class)) {
-            if (element instanceof Gateway) {
-                Collection<SequenceFlow> incomingFlows = ((Gateway) element).getIncoming();
-                boolean hasUserTaskBefore = false;
-                for (SequenceFlow incomingFlow : incomingFlows) {
-                    if (incomingFlow.getSource() instanceof UserTask) {
-                        hasUserTaskBefore = true;
-                        break;
-                    }
-                }
-                if (!hasUserTaskBefore) {
-                    throw new RuntimeException("Gateway " + element.getId() + " must be preceded by a User Task.");
-                }
-            }
-        }
-
-
-
-        // Set the execution listener for every end event in the BPMN
-        Collection<EndEvent> endEvents = modelInstance.getModelElementsByType(EndEvent.class);
-        for (EndEvent endEvent : endEvents) {
-            CamundaExecutionListener executionListener = modelInstance.newInstance(CamundaExecutionListener.class);
-            if (executionListener.getCamundaClass() == null || executionListener.getCamundaClass() != "com.example.workflow.listener.ProcessCompletionListener" ){
-                executionListener.setCamundaClass("com.example.workflow.listener.ProcessCompletionListener");
-                endEvent.builder().camundaExecutionListenerClass("end", executionListener.getCamundaClass());
-            }
-        }
+        // Keep the stored history time to live, job priority and execution policy when the update does not give them
+        Integer historyTimeToLive = workflow.getHistoryTimeToLive() != null
+                ? workflow.getHistoryTimeToLive() : existingWorkflow.getHistoryTimeToLive();
+        Long jobPriority = workflow.getJobPriority() != null
+                ? workflow.getJobPriority() : existingWorkflow.getJobPriority();
+        String executionPolicy = workflow.getExecutionPolicy() != null
+                ? workflow.getExecutionPolicy() : existingWorkflow.getExecutionPolicy();
+        boolean modified = applyModelDefaults(modelInstance);
 
-        // Convert the updated BPMN model instance to XML string
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        Bpmn.writeModelToStream(outputStream, modelInstance);
-        String updatedXmlContent = outputStream.toString();
+        // Keep the XML as it was sent unless a default had to be written
+        String updatedXmlContent = modified ? Bpmn.convertToString(modelInstance) : workflow.getXmlContent();
+        String deploymentXmlContent = workflowDeploymentSettings.deploymentXml(updatedXmlContent, historyTimeToLive,
+                jobPriority, executionPolicy);
 
         if (optionalWorkflow.isPresent()) {
             // Update the existing workflow with the new values
             existingWorkflow.setName(workflow.getName());
             existingWorkflow.setXmlContent(updatedXmlContent);
             existingWorkflow.setXmlName(workflow.getXmlName());
+            existingWorkflow.setHistoryTimeToLive(historyTimeToLive);
+            existingWorkflow.setExecutionPolicy(executionPolicy);
+            existingWorkflow.setJobPriority(jobPriority);
 
             // Check if there is already a deployment with the same name and xml content
             DeploymentQuery deploymentQuery = repositoryService.createDeploymentQuery()
@@ -303,8 +281,9 @@ public class WorkflowService {
                 // Update the existing deployment with the new resources
                 repositoryService.createDeployment()
                         .name(deploymentUpdate.getName())
+                        .source(DEPLOYMENT_SOURCE)
                         .addDeploymentResources(deploymentUpdate.getId())
-                        .addString(workflow.getXmlName(), updatedXmlContent)
+                        .addString(workflow.getXmlName(), deploymentXmlContent)
                         .deploy();
             } else {
                 // Generate a unique identifier
@@ -312,11 +291,13 @@ public class WorkflowService {
 
                 deploymentUpdate = repositoryService.createDeployment()
                         .name(uniqueId + "_" + workflow.getName())
-                        .addString(workflow.getXmlName(), updatedXmlContent)
+                        .source(DEPLOYMENT_SOURCE)
+                        .addString(workflow.getXmlName(), deploymentXmlContent)
                         .deploy();
             }
 
             // Set the deployment ID of the existing workflow to the new deployment ID
+            processDefinitionLookupCache.invalidate(existingWorkflow.getDeploymentId());
             existingWorkflow.setDeploymentId(deploymentUpdate.getId());
 
             /* Save BPMN XML file to resources/static/bpmn folder
@@ -326,7 +307,11 @@ public class WorkflowService {
             Bpmn.writeModelToFile(bpmnFile, modelInstance);
             writer.close();*/
 
-            return workflowRepository.save(existingWorkflow);
+            Workflow savedWorkflow = workflowRepository.save(existingWorkflow);
+            workflowVersionService.recordVersion(savedWorkflow);
+            bpmnModelCache.invalidate(id);
+            workflowMigrationService.onRedeploy(id);
+            return savedWorkflow;
         } else {
             return null;
         }
@@ -337,7 +322,64 @@ public class WorkflowService {
      * @param id The ID of the workflow to delete.
      */
     public void deleteWorkflow(String id) {
+        workflowRepository.findById(id).ifPresent(workflow -> processDefinitionLookupCache.invalidate(workflow.getDeploymentId()));
         workflowRepository.deleteById(id);
+        workflowVersionService.deleteVersions(id);
+        bpmnModelCache.invalidate(id);
+    }
+
+    /**
+     * Replaces the execution policy of a workflow and redeploys it with the policy applied.
+     * The policy is only applied to the deployed XML, so removing a rule restores the modeled attributes.
+     * @param id The ID of the workflow.
+     * @param rules The new policy rules, empty for no policy.
+     * @return The redeployed workflow, or null if it does not exist.
+     * @throws IllegalArgumentException If a rule is invalid.
+     * @throws IOException If there is an error reading or writing the BPMN model XML content.
+     */
+    public Workflow updateExecutionPolicy(String id, List<ExecutionPolicyRule> rules) throws IOException {
+        String executionPolicy = executionPolicyService.write(rules);
+        Optional<Workflow> optionalWorkflow = workflowRepository.findById(id);
+        if (!optionalWorkflow.isPresent()) {
+            return null;
+        }
+        Workflow existingWorkflow = optionalWorkflow.get();
+
+        // Redeploy the stored XML through the regular update, which applies the new policy
+        Workflow update = new Workflow();
+        update.setName(existingWorkflow.getName());
+        update.setXmlName(existingWorkflow.getXmlName());
+        update.setXmlContent(existingWorkflow.getXmlContent());
+        update.setExecutionPolicy(executionPolicy);
+        return updateWorkflowBpmn(id, update);
+    }
+
+    /**
+     * Returns the execution policy of a workflow.
+     * @param id The ID of the workflow.
+     * @return The policy rules, or empty if the workflow does not exist.
+     */
+    public Optional<List<ExecutionPolicyRule>> getExecutionPolicy(String id) {
+        return workflowRepository.findById(id).map(workflow -> executionPolicyService.read(workflow.getExecutionPolicy()));
+    }
+
+    /**
+     * Lists the stored versions of a workflow.
+     * @param id The ID of the workflow.
+     * @return The versions of the workflow, oldest first.
+     */
+    public List<WorkflowVersionDto> getWorkflowVersions(String id) {
+        return workflowVersionService.getVersions(id);
+    }
+
+    /**
+     * Reconstructs the BPMN XML of a given workflow version.
+     * @param id The ID of the workflow.
+     * @param versionNumber The version to reconstruct.
+     * @return The XML content of the version, or empty if it does not exist.
+     */
+    public Optional<String> getWorkflowVersionXml(String id, int versionNumber) {
+        return workflowVersionService.getVersionContent(id, versionNumber);
     }
 
 }
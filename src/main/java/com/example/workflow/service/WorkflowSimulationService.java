@@ -0,0 +1,439 @@
+/**
+ * WorkflowSimulationService walks the BPMN model of a workflow without the engine, to try out its branches
+ * without deploying it or writing any runtime or history data.
+ * The cached model is compiled once into an immutable graph of flow nodes; exclusive gateways pick their
+ * flow by the "input" value the task forms would submit, parallel and inclusive gateways fork into every
+ * flow and join once all their incoming flows arrived. A single run follows given inputs; random walks pick
+ * the gateway flows at random, run in parallel, and estimate how often each path and branch is taken.
+ * Only the top level of the process is walked, sub processes and boundary events are passed over.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.dto.BranchCoverageDto;
+import com.example.workflow.dto.SimulatedPathDto;
+import com.example.workflow.dto.SimulatedUserTaskDto;
+import com.example.workflow.dto.SimulationDeadEndDto;
+import com.example.workflow.dto.SimulationEstimateDto;
+import com.example.workflow.dto.SimulationResultDto;
+import com.example.workflow.entity.Workflow;
+import com.example.workflow.listener.InputIndexCondition;
+import com.example.workflow.repository.WorkflowRepository;
+import com.example.workflow.util.GatewayDefaults;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.instance.EndEvent;
+import org.camunda.bpm.model.bpmn.instance.EventBasedGateway;
+import org.camunda.bpm.model.bpmn.instance.ExclusiveGateway;
+import org.camunda.bpm.model.bpmn.instance.FlowElement;
+import org.camunda.bpm.model.bpmn.instance.FlowNode;
+import org.camunda.bpm.model.bpmn.instance.InclusiveGateway;
+import org.camunda.bpm.model.bpmn.instance.ParallelGateway;
+import org.camunda.bpm.model.bpmn.instance.SequenceFlow;
+import org.camunda.bpm.model.bpmn.instance.StartEvent;
+import org.camunda.bpm.model.bpmn.instance.UserTask;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+@Service
+public class WorkflowSimulationService {
+
+    private static final int MAX_REPORTED_PATHS = 20;
+
+    /* Compiled graph of each workflow, valid as long as the cache holds the same model instance at the same revision */
+    private final Map<String, Graph> graphs = new ConcurrentHashMap<>();
+
+    @Autowired
+    private WorkflowRepository workflowRepository;
+    @Autowired
+    private BpmnModelCache bpmnModelCache;
+
+    @Value("${flowvioo.app.simulationMaxSteps:1000}")
+    private int maxSteps;
+
+    @Value("${flowvioo.app.simulationMaxWalks:100000}")
+    private int maxWalks;
+
+    @Value("${flowvioo.app.simulationThreads:4}")
+    private int threads;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(Math.max(1, threads));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Simulates one run of a workflow, choosing the gateway flows by the given inputs.
+     * @param workflowId the ID of the workflow
+     * @param inputs the input values for the gateways with more than one outgoing flow, in the order they are reached
+     * @return the simulated run, or empty if the workflow does not exist
+     * @throws IllegalArgumentException if the workflow has no BPMN or no start event
+     */
+    public Optional<SimulationResultDto> simulate(String workflowId, List<Integer> inputs) {
+        Optional<Workflow> workflow = workflowRepository.findById(workflowId);
+        if (!workflow.isPresent()) {
+            return Optional.empty();
+        }
+        Graph graph = graph(workflow.get());
+        Iterator<Integer> remaining = (inputs != null ? inputs : Collections.<Integer>emptyList()).iterator();
+        Walk walk = walk(graph, (gateway, current) -> {
+            if (!remaining.hasNext()) {
+                current.deadEnd(gateway, "No input left for the gateway");
+                return null;
+            }
+            Integer input = remaining.next();
+            Flow flow = input != null ? gateway.flowsByInput.get(input.longValue()) : null;
+            if (flow == null) {
+                flow = gateway.defaultFlow;
+            }
+            if (flow == null) {
+                current.deadEnd(gateway, "No outgoing flow for input " + input);
+            }
+            return flow;
+        }, true);
+
+        int unusedInputs = 0;
+        while (remaining.hasNext()) {
+            remaining.next();
+            unusedInputs++;
+        }
+        return Optional.of(new SimulationResultDto(walk.isCompleted(), walk.path, walk.userTasks, walk.deadEnds, unusedInputs));
+    }
+
+    /**
+     * Simulates random walks through a workflow, each gateway choosing one of its outgoing flows with equal chance,
+     * and estimates how often each path and branch is taken.
+     * @param workflowId the ID of the workflow
+     * @param walks the number of walks
+     * @return the estimate, or empty if the workflow does not exist
+     * @throws IllegalArgumentException if the number of walks is out of range, or the workflow has no BPMN or no start event
+     */
+    public Optional<SimulationEstimateDto> estimate(String workflowId, int walks) {
+        if (walks < 1 || walks > maxWalks) {
+            throw new IllegalArgumentException("The number of walks must be between 1 and " + maxWalks);
+        }
+        Optional<Workflow> workflow = workflowRepository.findById(workflowId);
+        if (!workflow.isPresent()) {
+            return Optional.empty();
+        }
+        Graph graph = graph(workflow.get());
+
+        // Each task walks its share with its own random generator and tally, merged at the end
+        int tasks = Math.min(Math.max(1, threads), walks);
+        List<Future<Tally>> futures = new ArrayList<>();
+        for (int task = 0; task < tasks; task++) {
+            int share = walks / tasks + (task < walks % tasks ? 1 : 0);
+            futures.add(executor.submit(() -> {
+                SplittableRandom random = new SplittableRandom();
+                Tally tally = new Tally();
+                for (int i = 0; i < share; i++) {
+                    tally.add(walk(graph, (gateway, current) ->
+                            gateway.outgoing.get(random.nextInt(gateway.outgoing.size())), false));
+                }
+                return tally;
+            }));
+        }
+        Tally total = new Tally();
+        try {
+            for (Future<Tally> future : futures) {
+                total.merge(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation failed", e.getCause());
+        }
+
+        List<SimulatedPathDto> paths = total.paths.entrySet().stream()
+                .sorted(Map.Entry.<List<String>, Long>comparingByValue().reversed())
+                .limit(MAX_REPORTED_PATHS)
+                .map(path -> new SimulatedPathDto(path.getKey(), path.getValue(), (double) path.getValue() / walks))
+                .collect(Collectors.toList());
+        List<BranchCoverageDto> branches = new ArrayList<>();
+        int covered = 0;
+        for (Flow flow : graph.branches) {
+            long count = total.branches.getOrDefault(flow, 0L);
+            if (count > 0) {
+                covered++;
+            }
+            branches.add(new BranchCoverageDto(flow.source.id, flow.id, flow.name, count, (double) count / walks));
+        }
+        double branchCoverage = graph.branches.isEmpty() ? 1.0 : (double) covered / graph.branches.size();
+        return Optional.of(new SimulationEstimateDto(walks, total.completed, branchCoverage, paths, branches, total.deadEnds));
+    }
+
+    private Graph graph(Workflow workflow) {
+        BpmnModelInstance model = bpmnModelCache.get(workflow);
+        // Read before compiling, a patch applied meanwhile only causes one more compilation
+        long revision = bpmnModelCache.revision(workflow.getId());
+        Graph graph = graphs.get(workflow.getId());
+        if (graph == null || graph.model != model || graph.revision != revision) {
+            graph = compile(model, revision);
+            graphs.put(workflow.getId(), graph);
+        }
+        return graph;
+    }
+
+    private static Graph compile(BpmnModelInstance model, long revision) {
+        // The cached model is shared with the element level edits
+        synchronized (model) {
+            StartEvent startEvent = null;
+            for (StartEvent candidate : model.getModelElementsByType(StartEvent.class)) {
+                if (candidate.getParentElement() instanceof org.camunda.bpm.model.bpmn.instance.Process) {
+                    startEvent = candidate;
+                    break;
+                }
+            }
+            if (startEvent == null) {
+                throw new IllegalArgumentException("The workflow has no start event");
+            }
+            org.camunda.bpm.model.bpmn.instance.Process process =
+                    (org.camunda.bpm.model.bpmn.instance.Process) startEvent.getParentElement();
+
+            Map<String, Node> nodes = new LinkedHashMap<>();
+            for (FlowElement element : process.getFlowElements()) {
+                if (element instanceof FlowNode) {
+                    nodes.put(element.getId(), new Node((FlowNode) element));
+                }
+            }
+            List<Flow> branches = new ArrayList<>();
+            for (FlowElement element : process.getFlowElements()) {
+                if (!(element instanceof FlowNode)) {
+                    continue;
+                }
+                Node node = nodes.get(element.getId());
+                int index = 0;
+                for (SequenceFlow sequenceFlow : ((FlowNode) element).getOutgoing()) {
+                    Node target = sequenceFlow.getTarget() != null ? nodes.get(sequenceFlow.getTarget().getId()) : null;
+                    if (target == null) {
+                        index++;
+                        continue;
+                    }
+                    Flow flow = new Flow(sequenceFlow.getId(), GatewayDefaults.name(sequenceFlow.getName(), index), node, target);
+                    node.outgoing.add(flow);
+                    target.incoming++;
+                    if (node.kind == Kind.CHOICE) {
+                        Long input = element instanceof EventBasedGateway
+                                ? Long.valueOf(index) : InputIndexCondition.parseIndex(GatewayDefaults.effectiveCondition(sequenceFlow));
+                        if (input != null) {
+                            node.flowsByInput.putIfAbsent(input, flow);
+                        }
+                        if (element instanceof ExclusiveGateway && ((ExclusiveGateway) element).getDefault() == sequenceFlow) {
+                            node.defaultFlow = flow;
+                        }
+                    }
+                    index++;
+                }
+                if (node.kind == Kind.CHOICE && node.outgoing.size() > 1) {
+                    branches.addAll(node.outgoing);
+                }
+            }
+            return new Graph(model, revision, nodes.get(startEvent.getId()), branches);
+        }
+    }
+
+    private Walk walk(Graph graph, Chooser chooser, boolean detailed) {
+        Walk walk = new Walk(detailed);
+        Deque<Node> tokens = new ArrayDeque<>();
+        Map<Node, Integer> arrivals = new HashMap<>();
+        tokens.add(graph.start);
+        int steps = 0;
+        while (!tokens.isEmpty()) {
+            Node node = tokens.poll();
+            if (++steps > maxSteps) {
+                walk.deadEnd(node, "Stopped after " + maxSteps + " steps, the path may loop forever");
+                arrivals.clear();
+                break;
+            }
+            if (node.kind == Kind.FORK_JOIN && node.incoming > 1) {
+                int arrived = arrivals.merge(node, 1, Integer::sum);
+                if (arrived < node.incoming) {
+                    continue;
+                }
+                arrivals.remove(node);
+            }
+            walk.visit(node);
+            if (node.kind == Kind.END) {
+                walk.endReached = true;
+            } else if (node.outgoing.isEmpty()) {
+                walk.deadEnd(node, "No outgoing flow");
+            } else if (node.kind == Kind.CHOICE && node.outgoing.size() > 1) {
+                Flow flow = chooser.choose(node, walk);
+                if (flow != null) {
+                    walk.decisions.add(flow);
+                    walk.take(flow);
+                    tokens.add(flow.target);
+                }
+            } else {
+                for (Flow flow : node.outgoing) {
+                    walk.take(flow);
+                    tokens.add(flow.target);
+                }
+            }
+        }
+        for (Map.Entry<Node, Integer> waiting : arrivals.entrySet()) {
+            walk.deadEnd(waiting.getKey(), "Waiting for " + (waiting.getKey().incoming - waiting.getValue()) + " more incoming flows");
+        }
+        return walk;
+    }
+
+    private enum Kind {
+        USER_TASK, END, CHOICE, FORK_JOIN, OTHER
+    }
+
+    private interface Chooser {
+        /* Returns the flow the gateway takes, or null after recording a dead end */
+        Flow choose(Node gateway, Walk walk);
+    }
+
+    private static final class Graph {
+        private final BpmnModelInstance model;
+        private final long revision;
+        private final Node start;
+        /* Outgoing flows of the gateways that choose between more than one flow */
+        private final List<Flow> branches;
+
+        private Graph(BpmnModelInstance model, long revision, Node start, List<Flow> branches) {
+            this.model = model;
+            this.revision = revision;
+            this.start = start;
+            this.branches = branches;
+        }
+    }
+
+    private static final class Node {
+        private final String id;
+        private final String name;
+        private final String formKey;
+        private final Kind kind;
+        private final List<Flow> outgoing = new ArrayList<>();
+        private final Map<Long, Flow> flowsByInput = new HashMap<>();
+        private Flow defaultFlow;
+        private int incoming;
+
+        private Node(FlowNode flowNode) {
+            this.id = flowNode.getId();
+            this.name = flowNode.getName();
+            this.formKey = flowNode instanceof UserTask ? ((UserTask) flowNode).getCamundaFormKey() : null;
+            if (flowNode instanceof UserTask) {
+                kind = Kind.USER_TASK;
+            } else if (flowNode instanceof EndEvent) {
+                kind = Kind.END;
+            } else if (flowNode instanceof ExclusiveGateway || flowNode instanceof EventBasedGateway) {
+                kind = Kind.CHOICE;
+            } else if (flowNode instanceof ParallelGateway || flowNode instanceof InclusiveGateway) {
+                kind = Kind.FORK_JOIN;
+            } else {
+                kind = Kind.OTHER;
+            }
+        }
+    }
+
+    private static final class Flow {
+        private final String id;
+        private final String name;
+        private final Node source;
+        private final Node target;
+
+        private Flow(String id, String name, Node source, Node target) {
+            this.id = id;
+            this.name = name;
+            this.source = source;
+            this.target = target;
+        }
+    }
+
+    private static final class Walk {
+        private final boolean detailed;
+        private final List<String> path = new ArrayList<>();
+        private final List<SimulatedUserTaskDto> userTasks = new ArrayList<>();
+        private final List<SimulationDeadEndDto> deadEnds = new ArrayList<>();
+        private final List<Flow> decisions = new ArrayList<>();
+        private boolean endReached;
+
+        private Walk(boolean detailed) {
+            this.detailed = detailed;
+        }
+
+        private void visit(Node node) {
+            if (detailed) {
+                path.add(node.id);
+                if (node.kind == Kind.USER_TASK) {
+                    userTasks.add(new SimulatedUserTaskDto(node.id, node.name, node.formKey));
+                }
+            }
+        }
+
+        private void take(Flow flow) {
+            if (detailed) {
+                path.add(flow.id);
+            }
+        }
+
+        private void deadEnd(Node node, String reason) {
+            deadEnds.add(new SimulationDeadEndDto(node.id, reason));
+        }
+
+        private boolean isCompleted() {
+            return endReached && deadEnds.isEmpty();
+        }
+    }
+
+    private static final class Tally {
+        private long completed;
+        private final Map<List<String>, Long> paths = new HashMap<>();
+        private final Map<Flow, Long> branches = new HashMap<>();
+        private final Map<String, Long> deadEnds = new HashMap<>();
+
+        private void add(Walk walk) {
+            if (walk.isCompleted()) {
+                completed++;
+            }
+            List<String> decisions = walk.decisions.stream().map(flow -> flow.id).collect(Collectors.toList());
+            paths.merge(decisions, 1L, Long::sum);
+            // Counted once per walk, so that loops do not count more than the walks that took them
+            for (Flow flow : new HashSet<>(walk.decisions)) {
+                branches.merge(flow, 1L, Long::sum);
+            }
+            for (String elementId : walk.deadEnds.stream().map(SimulationDeadEndDto::getElementId).collect(Collectors.toSet())) {
+                deadEnds.merge(elementId, 1L, Long::sum);
+            }
+        }
+
+        private void merge(Tally other) {
+            completed += other.completed;
+            other.paths.forEach((path, count) -> paths.merge(path, count, Long::sum));
+            other.branches.forEach((flow, count) -> branches.merge(flow, count, Long::sum));
+            other.deadEnds.forEach((elementId, count) -> deadEnds.merge(elementId, count, Long::sum));
+        }
+    }
+}
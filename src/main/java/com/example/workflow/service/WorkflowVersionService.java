@@ -0,0 +1,155 @@
+/**
+ * WorkflowVersionService keeps the history of the BPMN XML of every workflow.
+ * The first version is stored in full, later versions as compressed deltas
+ * against their predecessor, with a full snapshot every few versions so that
+ * reconstructing any version never replays more than a bounded number of deltas.
+ */
+
+package com.example.workflow.service;
+
+import com.example.workflow.dto.WorkflowVersionDto;
+import com.example.workflow.entity.Workflow;
+import com.example.workflow.entity.WorkflowVersion;
+import com.example.workflow.repository.WorkflowVersionRepository;
+import com.example.workflow.util.XmlDiff;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+@Service
+public class WorkflowVersionService {
+
+    private final WorkflowVersionRepository workflowVersionRepository;
+
+    @Value("${flowvioo.app.workflowVersionSnapshotInterval:10}")
+    private int snapshotInterval;
+
+    public WorkflowVersionService(WorkflowVersionRepository workflowVersionRepository) {
+        this.workflowVersionRepository = workflowVersionRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (snapshotInterval < 1) {
+            throw new IllegalStateException("flowvioo.app.workflowVersionSnapshotInterval must be at least 1, was " + snapshotInterval);
+        }
+    }
+
+    /**
+     * Records the current XML content of a workflow as a new version.
+     * Nothing is recorded when neither the content nor the deployment changed since the last version.
+     * @param workflow the saved workflow
+     * @return the recorded version, or the latest one if the content is unchanged
+     */
+    @Transactional
+    public WorkflowVersionDto recordVersion(Workflow workflow) {
+        String xmlContent = workflow.getXmlContent();
+        if (workflow.getId() == null || xmlContent == null) {
+            throw new IllegalArgumentException("Workflow must be saved and have XML content");
+        }
+
+        // The first version is recorded when the workflow is created, before anyone else can save it;
+        // later saves wait here for each other instead of both taking latest + 1
+        WorkflowVersion latest = workflowVersionRepository.findFirstByWorkflowIdOrderByVersionNumberDesc(workflow.getId());
+        WorkflowVersion version = new WorkflowVersion();
+        version.setWorkflowId(workflow.getId());
+        version.setDeploymentId(workflow.getDeploymentId());
+        version.setContentSize(xmlContent.getBytes(StandardCharsets.UTF_8).length);
+        version.setCreatedAt(new Date());
+
+        byte[] full = XmlDiff.compress(xmlContent);
+        if (latest == null) {
+            version.setVersionNumber(1);
+            version.setSnapshot(true);
+            version.setContent(full);
+        } else {
+            String previous = reconstruct(workflow.getId(), latest.getVersionNumber());
+            // A redeployment of unchanged content is still recorded, the deployments of a workflow are taken from here
+            if (previous.equals(xmlContent) && Objects.equals(latest.getDeploymentId(), workflow.getDeploymentId())) {
+                return toDto(latest);
+            }
+            int versionNumber = latest.getVersionNumber() + 1;
+            version.setVersionNumber(versionNumber);
+            byte[] delta = XmlDiff.compress(XmlDiff.diff(previous, xmlContent));
+            // Take a snapshot periodically, or whenever the delta would not be smaller than the full text
+            if ((versionNumber - 1) % snapshotInterval == 0 || delta.length >= full.length) {
+                version.setSnapshot(true);
+                version.setContent(full);
+            } else {
+                version.setSnapshot(false);
+                version.setContent(delta);
+            }
+        }
+        version.setStoredSize(version.getContent().length);
+        return toDto(workflowVersionRepository.save(version));
+    }
+
+    /**
+     * Lists the versions of a workflow without their content.
+     * @param workflowId the ID of the workflow
+     * @return the versions ordered by version number
+     */
+    public List<WorkflowVersionDto> getVersions(String workflowId) {
+        return workflowVersionRepository.findVersionsByWorkflowId(workflowId);
+    }
+
+    /**
+     * Reconstructs the XML content of a given version.
+     * @param workflowId    the ID of the workflow
+     * @param versionNumber the version to reconstruct
+     * @return the XML content, or empty if the version does not exist
+     */
+    public Optional<String> getVersionContent(String workflowId, int versionNumber) {
+        WorkflowVersion latest = workflowVersionRepository.findTopByWorkflowIdOrderByVersionNumberDesc(workflowId);
+        if (latest == null || versionNumber < 1 || versionNumber > latest.getVersionNumber()) {
+            return Optional.empty();
+        }
+        return Optional.of(reconstruct(workflowId, versionNumber));
+    }
+
+    /**
+     * Deletes every stored version of a workflow.
+     * @param workflowId the ID of the workflow
+     */
+    @Transactional
+    public void deleteVersions(String workflowId) {
+        workflowVersionRepository.deleteByWorkflowId(workflowId);
+    }
+
+    private String reconstruct(String workflowId, int versionNumber) {
+        WorkflowVersion snapshot = workflowVersionRepository
+                .findTopByWorkflowIdAndSnapshotTrueAndVersionNumberLessThanEqualOrderByVersionNumberDesc(workflowId, versionNumber);
+        if (snapshot == null) {
+            throw new IllegalStateException("No snapshot found for workflow " + workflowId + " version " + versionNumber);
+        }
+        String content = XmlDiff.decompress(snapshot.getContent());
+        if (snapshot.getVersionNumber() == versionNumber) {
+            return content;
+        }
+        List<WorkflowVersion> deltas = workflowVersionRepository
+                .findByWorkflowIdAndVersionNumberBetweenOrderByVersionNumberAsc(workflowId, snapshot.getVersionNumber() + 1, versionNumber);
+        for (WorkflowVersion delta : deltas) {
+            content = delta.isSnapshot()
+                    ? XmlDiff.decompress(delta.getContent())
+                    : XmlDiff.apply(content, XmlDiff.decompress(delta.getContent()));
+        }
+        return content;
+    }
+
+    private WorkflowVersionDto toDto(WorkflowVersion version) {
+        return new WorkflowVersionDto(
+                version.getVersionNumber(),
+                version.isSnapshot(),
+                version.getContentSize(),
+                version.getStoredSize(),
+                version.getDeploymentId(),
+                version.getCreatedAt());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.workflow.util;
+
+/**
+ * Histogram of durations in milliseconds with logarithmic buckets.
+ * Each bucket is 10% wider than the previous one, so a percentile read from it is within
+ * 10% of the exact value while the histogram keeps a fixed size, whatever the number of
+ * recorded durations. Not thread safe.
+ */
+public class DurationHistogram {
+
+    private static final double GROWTH = 1.1;
+    private static final double LOG_GROWTH = Math.log(GROWTH);
+    /* Covers durations up to about 3 years */
+    private static final int BUCKETS = 300;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+
+    /**
+     * Records one duration.
+     * @param durationMs the duration in milliseconds, negative values count as 0
+     */
+    public void record(long durationMs) {
+        long duration = Math.max(0, durationMs);
+        counts[bucket(duration)]++;
+        count++;
+        sum += duration;
+        max = Math.max(max, duration);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return the mean duration in milliseconds, 0 when nothing was recorded
+     */
+    public long getMean() {
+        return count > 0 ? sum / count : 0;
+    }
+
+    /**
+     * Returns a percentile of the recorded durations.
+     * @param percentile the percentile, between 0 and 100
+     * @return the upper bound of the bucket holding the percentile, capped at the maximum; 0 when nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * Math.min(Math.max(percentile, 0), 100) / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(rank, 1)) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int bucket(long duration) {
+        if (duration < 1) {
+            return 0;
+        }
+        int bucket = 1 + (int) (Math.log(duration) / LOG_GROWTH);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket == 0) {
+            return 0;
+        }
+        return (long) Math.ceil(Math.pow(GROWTH, bucket));
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Default conditions and names of the flows leaving an exclusive gateway.
+ * The flow at position N of the gateway's outgoing flows is taken when the process variable
+ * "input" equals N, which is the value of the matching radio button of the task form.
+ * Flows with their own condition and the default flow of the gateway keep theirs.
+ */
+
+package com.example.workflow.util;
+
+import org.camunda.bpm.model.bpmn.instance.ExclusiveGateway;
+import org.camunda.bpm.model.bpmn.instance.FlowNode;
+import org.camunda.bpm.model.bpmn.instance.SequenceFlow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class GatewayDefaults {
+
+    public static final String INPUT_VARIABLE = "input";
+
+    private GatewayDefaults() {
+    }
+
+    /**
+     * Returns the default condition of the flow at a position of its gateway's outgoing flows.
+     * @param index the position of the flow, starting at 0
+     * @return the condition expression
+     */
+    public static String condition(int index) {
+        return "${" + INPUT_VARIABLE + " == " + index + "}";
+    }
+
+    /**
+     * Returns the name of a flow, or its default name if it has none.
+     * @param name the name of the flow, may be null
+     * @param index the position of the flow, starting at 0
+     * @return the name to display
+     */
+    public static String name(String name, int index) {
+        return name == null || name.isEmpty() ? "Flow " + (index + 1) : name;
+    }
+
+    /**
+     * Tells whether a flow gets a default condition.
+     * @param outgoingFlows the number of flows leaving the gateway
+     * @param hasCondition whether the flow has its own condition
+     * @param isDefaultFlow whether the flow is the default flow of the gateway
+     * @return true if the flow gets a default condition
+     */
+    public static boolean needsCondition(int outgoingFlows, boolean hasCondition, boolean isDefaultFlow) {
+        return outgoingFlows > 1 && !hasCondition && !isDefaultFlow;
+    }
+
+    /**
+     * Returns the effective condition of a flow of a BPMN model: its own one, or the default one
+     * the engine attaches at parse time.
+     * @param sequenceFlow the sequence flow
+     * @return the condition expression, or null if the flow has none
+     */
+    public static String effectiveCondition(SequenceFlow sequenceFlow) {
+        if (sequenceFlow.getConditionExpression() != null) {
+            return sequenceFlow.getConditionExpression().getTextContent();
+        }
+        FlowNode source = sequenceFlow.getSource();
+        if (!(source instanceof ExclusiveGateway)) {
+            return null;
+        }
+        List<SequenceFlow> outgoingFlows = new ArrayList<>(source.getOutgoing());
+        boolean isDefaultFlow = ((ExclusiveGateway) source).getDefault() == sequenceFlow;
+        if (!needsCondition(outgoingFlows.size(), false, isDefaultFlow)) {
+            return null;
+        }
+        return condition(outgoingFlows.indexOf(sequenceFlow));
+    }
+}
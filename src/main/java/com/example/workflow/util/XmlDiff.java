@@ -0,0 +1,223 @@
+/**
+ * Line based diff utility used to store BPMN XML versions as compact deltas.
+ * A delta is a small edit script against a base text: copy lines, skip lines
+ * or insert new lines. Deltas and full texts are stored gzip compressed.
+ */
+
+package com.example.workflow.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public final class XmlDiff {
+
+    /* Above this many cells the middle section is replaced as a whole instead of running the LCS table */
+    private static final long MAX_LCS_CELLS = 4_000_000L;
+
+    private XmlDiff() {
+    }
+
+    /**
+     * Computes the edit script that turns the base text into the target text.
+     * @param base   the previous version
+     * @param target the new version
+     * @return the delta as an edit script, see {@link #apply(String, String)}
+     */
+    public static String diff(String base, String target) {
+        String[] a = base.split("\n", -1);
+        String[] b = target.split("\n", -1);
+
+        // Trim the common prefix and suffix, most edits only touch a few lines in the middle
+        int prefix = 0;
+        while (prefix < a.length && prefix < b.length && a[prefix].equals(b[prefix])) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < a.length - prefix && suffix < b.length - prefix
+                && a[a.length - 1 - suffix].equals(b[b.length - 1 - suffix])) {
+            suffix++;
+        }
+
+        Script script = new Script();
+        script.copy(prefix);
+
+        int aEnd = a.length - suffix;
+        int bEnd = b.length - suffix;
+        int n = aEnd - prefix;
+        int m = bEnd - prefix;
+        if ((long) n * m > MAX_LCS_CELLS) {
+            script.skip(n);
+            for (int j = prefix; j < bEnd; j++) {
+                script.insert(b[j]);
+            }
+        } else {
+            diffMiddle(a, prefix, aEnd, b, prefix, bEnd, script);
+        }
+
+        script.copy(suffix);
+        return script.toString();
+    }
+
+    /**
+     * Applies an edit script produced by {@link #diff(String, String)} to the base text.
+     * @param base  the text the delta was computed against
+     * @param delta the edit script
+     * @return the reconstructed target text
+     */
+    public static String apply(String base, String delta) {
+        String[] a = base.split("\n", -1);
+        String[] ops = delta.split("\n", -1);
+        List<String> out = new ArrayList<>(a.length);
+        int position = 0;
+        int i = 0;
+        while (i < ops.length && !ops[i].isEmpty()) {
+            char op = ops[i].charAt(0);
+            int count = Integer.parseInt(ops[i].substring(1));
+            i++;
+            switch (op) {
+                case '=':
+                    for (int k = 0; k < count; k++) {
+                        out.add(a[position++]);
+                    }
+                    break;
+                case '-':
+                    position += count;
+                    break;
+                case '+':
+                    for (int k = 0; k < count; k++) {
+                        out.add(ops[i++]);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid delta operation: " + op);
+            }
+        }
+        return String.join("\n", out);
+    }
+
+    /**
+     * Gzip compresses a text.
+     * @param text the text to compress
+     * @return the compressed bytes
+     */
+    public static byte[] compress(String text) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decompresses bytes produced by {@link #compress(String)}.
+     * @param data the compressed bytes
+     * @return the original text
+     */
+    public static String decompress(byte[] data) {
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = gzip.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void diffMiddle(String[] a, int aStart, int aEnd, String[] b, int bStart, int bEnd, Script script) {
+        int n = aEnd - aStart;
+        int m = bEnd - bStart;
+        // lcs[i][j] is the LCS length of a[aStart + i ..] and b[bStart + j ..]
+        int[][] lcs = new int[n + 1][m + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            for (int j = m - 1; j >= 0; j--) {
+                lcs[i][j] = a[aStart + i].equals(b[bStart + j])
+                        ? lcs[i + 1][j + 1] + 1
+                        : Math.max(lcs[i + 1][j], lcs[i][j + 1]);
+            }
+        }
+        int i = 0;
+        int j = 0;
+        while (i < n && j < m) {
+            if (a[aStart + i].equals(b[bStart + j])) {
+                script.copy(1);
+                i++;
+                j++;
+            } else if (lcs[i + 1][j] >= lcs[i][j + 1]) {
+                script.skip(1);
+                i++;
+            } else {
+                script.insert(b[bStart + j]);
+                j++;
+            }
+        }
+        script.skip(n - i);
+        while (j < m) {
+            script.insert(b[bStart + j++]);
+        }
+    }
+
+    /**
+     * Accumulates operations and merges consecutive operations of the same kind.
+     */
+    private static final class Script {
+        private final StringBuilder text = new StringBuilder();
+        private final List<String> inserted = new ArrayList<>();
+        private char pending;
+        private int count;
+
+        void copy(int lines) {
+            add('=', lines);
+        }
+
+        void skip(int lines) {
+            add('-', lines);
+        }
+
+        void insert(String line) {
+            add('+', 1);
+            inserted.add(line);
+        }
+
+        private void add(char op, int lines) {
+            if (lines == 0) {
+                return;
+            }
+            if (op != pending) {
+                flush();
+                pending = op;
+            }
+            count += lines;
+        }
+
+        private void flush() {
+            if (count > 0) {
+                text.append(pending).append(count).append('\n');
+                for (String line : inserted) {
+                    text.append(line).append('\n');
+                }
+            }
+            inserted.clear();
+            count = 0;
+        }
+
+        @Override
+        public String toString() {
+            flush();
+            return text.toString();
+        }
+    }
+}
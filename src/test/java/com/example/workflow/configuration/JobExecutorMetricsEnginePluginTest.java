@@ -0,0 +1,78 @@
+package com.example.workflow.configuration;
+
+import com.example.workflow.service.JobExecutorService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.ProcessEngineConfiguration;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.cfg.StandaloneInMemProcessEngineConfiguration;
+import org.camunda.bpm.engine.impl.jobexecutor.DefaultJobExecutor;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobExecutorMetricsEnginePluginTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ProcessEngine processEngine;
+
+    @BeforeEach
+    void setUp() {
+        JobExecutorService jobExecutorService = new JobExecutorService(meterRegistry);
+        ReflectionTestUtils.setField(jobExecutorService, "highPriorityThreshold", 100L);
+
+        DefaultJobExecutor jobExecutor = new DefaultJobExecutor();
+        jobExecutor.setWaitTimeInMillis(50);
+        jobExecutor.setMaxWait(100);
+
+        ProcessEngineConfigurationImpl configuration = new StandaloneInMemProcessEngineConfiguration();
+        configuration.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=1000");
+        configuration.setDatabaseSchemaUpdate(ProcessEngineConfiguration.DB_SCHEMA_UPDATE_CREATE_DROP);
+        configuration.setJobExecutor(jobExecutor);
+        configuration.setJobExecutorActivate(true);
+        configuration.setProcessEnginePlugins(Collections.singletonList(new JobExecutorMetricsEnginePlugin(jobExecutorService)));
+        processEngine = configuration.buildProcessEngine();
+    }
+
+    @AfterEach
+    void tearDown() {
+        processEngine.close();
+    }
+
+    private Timer timer(String name) {
+        return meterRegistry.find(name).tag("priority", "normal").timers().stream()
+                .filter(timer -> !"failed".equals(timer.getId().getTag("outcome")))
+                .findFirst().orElseThrow(IllegalStateException::new);
+    }
+
+    @Test
+    void jobExecutor_TimerJobRun_LatencyAndDurationRecorded() throws InterruptedException {
+        // Arrange
+        processEngine.getRepositoryService().createDeployment()
+                .addModelInstance("timer.bpmn", Bpmn.createExecutableProcess("timer")
+                        .startEvent()
+                        .intermediateCatchEvent().timerWithDuration("PT0S")
+                        .endEvent()
+                        .done())
+                .deploy();
+
+        // Act
+        processEngine.getRuntimeService().startProcessInstanceByKey("timer");
+        long deadline = System.currentTimeMillis() + 10000;
+        while (timer("camunda.job.duration").count() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        // Assert
+        assertEquals(1, timer("camunda.job.latency").count());
+        assertEquals(1, timer("camunda.job.duration").count());
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.workflow.listener;
+
+import org.camunda.bpm.engine.impl.Condition;
+import org.camunda.bpm.engine.impl.bpmn.helper.BpmnProperties;
+import org.camunda.bpm.engine.impl.bpmn.parser.BpmnParse;
+import org.camunda.bpm.engine.impl.pvm.PvmTransition;
+import org.camunda.bpm.engine.impl.pvm.process.ActivityImpl;
+import org.camunda.bpm.engine.impl.pvm.process.ProcessDefinitionImpl;
+import org.camunda.bpm.engine.impl.pvm.process.TransitionImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class InputGatewayActivityBehaviorTest {
+
+    private ProcessDefinitionImpl processDefinition;
+    private ActivityImpl gateway;
+
+    @BeforeEach
+    void setUp() {
+        processDefinition = new ProcessDefinitionImpl("p");
+        gateway = processDefinition.createActivity("gateway");
+    }
+
+    private TransitionImpl flow(String id, Condition condition) {
+        TransitionImpl transition = gateway.createOutgoingTransition(id);
+        transition.setDestination(processDefinition.createActivity(id + "Target"));
+        if (condition != null) {
+            transition.setProperty(BpmnParse.PROPERTYNAME_CONDITION, condition);
+        }
+        return transition;
+    }
+
+    private static InputIndexCondition index(long index) {
+        return new InputIndexCondition(index, mock(Condition.class));
+    }
+
+    @Test
+    void indexFlows_DefaultFlowWithoutCondition_Skipped() {
+        // Arrange
+        TransitionImpl first = flow("first", index(0));
+        TransitionImpl second = flow("second", index(1));
+        flow("fallback", null);
+        gateway.setProperty(BpmnProperties.DEFAULT.getName(), "fallback");
+
+        // Act
+        Map<Long, PvmTransition> flows = InputGatewayActivityBehavior.indexFlows(gateway);
+
+        // Assert
+        assertEquals(2, flows.size());
+        assertSame(first, flows.get(0L));
+        assertSame(second, flows.get(1L));
+    }
+
+    @Test
+    void indexFlows_FlowWithoutConditionNotDefault_NoShortcut() {
+        // Arrange
+        flow("first", index(0));
+        flow("always", null);
+
+        // Act
+        Map<Long, PvmTransition> flows = InputGatewayActivityBehavior.indexFlows(gateway);
+
+        // Assert
+        assertTrue(flows.isEmpty());
+    }
+
+    @Test
+    void indexFlows_OtherCondition_NoShortcut() {
+        // Arrange
+        flow("first", index(0));
+        flow("approved", mock(Condition.class));
+
+        // Act
+        Map<Long, PvmTransition> flows = InputGatewayActivityBehavior.indexFlows(gateway);
+
+        // Assert
+        assertTrue(flows.isEmpty());
+    }
+
+    @Test
+    void indexFlows_DuplicateIndex_FirstFlowWins() {
+        // Arrange
+        TransitionImpl first = flow("first", index(0));
+        flow("duplicate", index(0));
+        TransitionImpl second = flow("second", index(1));
+
+        // Act
+        Map<Long, PvmTransition> flows = InputGatewayActivityBehavior.indexFlows(gateway);
+
+        // Assert
+        assertSame(first, flows.get(0L));
+        assertSame(second, flows.get(1L));
+        assertEquals(2, flows.size());
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.workflow.listener;
+
+import org.camunda.bpm.engine.impl.Condition;
+import org.camunda.bpm.engine.impl.context.Context;
+import org.camunda.bpm.engine.impl.pvm.runtime.ExecutionImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the evaluation of a generated gateway condition "${input == 1}" by InputIndexCondition
+ * with its evaluation by JUEL. Not run by the test phase; start it with main from the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputIndexConditionBenchmark {
+
+    /* Form radio buttons submit their values as strings, the REST API as numbers */
+    @Param({"number", "string"})
+    private String inputType;
+
+    private Condition uelCondition;
+    private Condition inputIndexCondition;
+    private ExecutionImpl execution;
+
+    @Setup
+    public void setUp() {
+        // The context is thread local, so it is set on the thread running the benchmark
+        JuelConditions juel = new JuelConditions();
+        Context.setProcessEngineConfiguration(juel);
+        uelCondition = juel.uelCondition("${input == 1}");
+        inputIndexCondition = new InputIndexCondition(1, uelCondition);
+        execution = JuelConditions.execution("number".equals(inputType) ? (Object) 1 : "1", true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Context.removeProcessEngineConfiguration();
+    }
+
+    @Benchmark
+    public boolean juel() {
+        return uelCondition.evaluate(execution, execution);
+    }
+
+    @Benchmark
+    public boolean inputIndex() {
+        return inputIndexCondition.evaluate(execution, execution);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(InputIndexConditionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
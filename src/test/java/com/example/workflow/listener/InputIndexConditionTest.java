@@ -0,0 +1,117 @@
+package com.example.workflow.listener;
+
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+import org.camunda.bpm.engine.impl.Condition;
+import org.camunda.bpm.engine.impl.context.Context;
+import org.camunda.bpm.engine.impl.pvm.runtime.ExecutionImpl;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class InputIndexConditionTest {
+
+    private final Condition fallback = mock(Condition.class);
+    private final DelegateExecution execution = mock(DelegateExecution.class);
+
+    @Test
+    void parseIndex_GeneratedCondition_ReturnsIndex() {
+        // Act & Assert
+        assertEquals(2L, InputIndexCondition.parseIndex("${input == 2}"));
+        assertEquals(0L, InputIndexCondition.parseIndex(" ${ input==0 } "));
+        assertNull(InputIndexCondition.parseIndex("${input == 2 && approved}"));
+        assertNull(InputIndexCondition.parseIndex("${amount == 2}"));
+        assertNull(InputIndexCondition.parseIndex(null));
+    }
+
+    @Test
+    void evaluate_NumberOrStringInput_ComparesWithoutFallback() {
+        // Arrange
+        InputIndexCondition condition = new InputIndexCondition(1, fallback);
+
+        // Act & Assert
+        when(execution.getVariable("input")).thenReturn(1);
+        assertTrue(condition.evaluate(execution));
+        when(execution.getVariable("input")).thenReturn(1L);
+        assertTrue(condition.evaluate(execution));
+        // Form radio buttons submit their values as strings
+        when(execution.getVariable("input")).thenReturn("1");
+        assertTrue(condition.evaluate(execution));
+        when(execution.getVariable("input")).thenReturn("0");
+        assertFalse(condition.evaluate(execution));
+        verifyNoInteractions(fallback);
+    }
+
+    @Test
+    void evaluate_NullInput_IsFalseWithoutFallback() {
+        // Arrange
+        InputIndexCondition condition = new InputIndexCondition(0, fallback);
+        when(execution.getVariable("input")).thenReturn(null);
+        when(execution.hasVariable("input")).thenReturn(true);
+
+        // Act
+        boolean result = condition.evaluate(execution);
+
+        // Assert
+        assertFalse(result);
+        verifyNoInteractions(fallback);
+    }
+
+    @Test
+    void evaluate_MissingOrUncomparableInput_UsesFallback() {
+        // Arrange
+        InputIndexCondition condition = new InputIndexCondition(1, fallback);
+        when(fallback.evaluate(any(), any())).thenReturn(true);
+
+        // Act & Assert
+        when(execution.getVariable("input")).thenReturn(null);
+        when(execution.hasVariable("input")).thenReturn(false);
+        assertTrue(condition.evaluate(execution));
+        when(execution.getVariable("input")).thenReturn(1.0d);
+        assertTrue(condition.evaluate(execution));
+        when(execution.getVariable("input")).thenReturn("one");
+        assertTrue(condition.evaluate(execution));
+        verify(fallback, times(3)).evaluate(execution, execution);
+    }
+
+    @Test
+    void evaluate_SameInputs_SameResultsAsJuel() {
+        // Arrange
+        JuelConditions juel = new JuelConditions();
+        List<Object> inputs = Arrays.asList(0, 1, 2, 1L, (short) 1, (byte) 1, "1", "0", "01", "+1", "", " 1", "one",
+                1.0d, 1.5d, 1.0f, true, 'a', BigInteger.ONE, Long.MAX_VALUE, null);
+        Context.setProcessEngineConfiguration(juel);
+        try {
+            for (long index = 0; index <= 2; index++) {
+                Condition uelCondition = juel.uelCondition("${input == " + index + "}");
+                InputIndexCondition condition = new InputIndexCondition(index, uelCondition);
+                for (Object input : inputs) {
+                    // Act
+                    ExecutionImpl execution = JuelConditions.execution(input, true);
+
+                    // Assert
+                    assertEquals(outcome(uelCondition, execution), outcome(condition, execution),
+                            "input " + input + " (" + (input == null ? null : input.getClass().getSimpleName()) + ") against " + index);
+                }
+                ExecutionImpl withoutInput = JuelConditions.execution(null, false);
+                assertEquals(outcome(uelCondition, withoutInput), outcome(condition, withoutInput));
+            }
+        } finally {
+            Context.removeProcessEngineConfiguration();
+        }
+    }
+
+    /* The result of a condition, or the type of the exception it failed with */
+    private static Object outcome(Condition condition, ExecutionImpl execution) {
+        try {
+            return condition.evaluate(execution, execution);
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+}
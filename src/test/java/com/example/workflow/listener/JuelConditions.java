@@ -0,0 +1,39 @@
+package com.example.workflow.listener;
+
+import org.camunda.bpm.engine.impl.Condition;
+import org.camunda.bpm.engine.impl.cfg.StandaloneProcessEngineConfiguration;
+import org.camunda.bpm.engine.impl.delegate.DelegateInvocation;
+import org.camunda.bpm.engine.impl.el.UelExpressionCondition;
+import org.camunda.bpm.engine.impl.pvm.runtime.ExecutionImpl;
+
+/**
+ * Evaluates conditions with the engine's own JUEL expression manager, without building a process engine,
+ * so InputIndexCondition can be compared with the JUEL condition it replaces.
+ * Register the configuration with Context.setProcessEngineConfiguration before evaluating a condition.
+ */
+final class JuelConditions extends StandaloneProcessEngineConfiguration {
+
+    JuelConditions() {
+        initExpressionManager();
+        // Expressions are evaluated through the delegate interceptor, which needs no command context here
+        setDelegateInterceptor(DelegateInvocation::proceed);
+    }
+
+    Condition uelCondition(String expression) {
+        return new UelExpressionCondition(getExpressionManager().createExpression(expression));
+    }
+
+    /**
+     * Returns an in-memory execution holding the input variable.
+     * @param input the value of the input variable
+     * @param present whether the variable is set at all
+     * @return the execution
+     */
+    static ExecutionImpl execution(Object input, boolean present) {
+        ExecutionImpl execution = new ExecutionImpl();
+        if (present) {
+            execution.setVariable("input", input);
+        }
+        return execution;
+    }
+}
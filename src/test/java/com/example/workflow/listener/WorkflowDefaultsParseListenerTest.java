@@ -0,0 +1,155 @@
+package com.example.workflow.listener;
+
+import com.example.workflow.repository.WorkflowRepository;
+import com.example.workflow.repository.WorkflowVersionRepository;
+import com.example.workflow.service.WorkflowService;
+import org.camunda.bpm.engine.delegate.ExecutionListener;
+import org.camunda.bpm.engine.impl.bpmn.listener.ClassDelegateExecutionListener;
+import org.camunda.bpm.engine.impl.bpmn.parser.BpmnParse;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.context.Context;
+import org.camunda.bpm.engine.impl.el.Expression;
+import org.camunda.bpm.engine.impl.el.ExpressionManager;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.camunda.bpm.engine.impl.persistence.entity.DeploymentEntity;
+import org.camunda.bpm.engine.impl.persistence.entity.DeploymentManager;
+import org.camunda.bpm.engine.impl.persistence.entity.ProcessDefinitionEntity;
+import org.camunda.bpm.engine.impl.pvm.process.ActivityImpl;
+import org.camunda.bpm.engine.impl.pvm.process.TransitionImpl;
+import org.camunda.bpm.engine.impl.util.xml.Element;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class WorkflowDefaultsParseListenerTest {
+
+    private final WorkflowRepository workflowRepository = mock(WorkflowRepository.class);
+    private final WorkflowVersionRepository workflowVersionRepository = mock(WorkflowVersionRepository.class);
+    private final DeploymentManager deploymentManager = mock(DeploymentManager.class);
+    private final WorkflowDefaultsParseListener listener = new WorkflowDefaultsParseListener();
+    private final DeploymentEntity deployment = new DeploymentEntity();
+    private ProcessDefinitionEntity processDefinition;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(listener, "workflowRepository", workflowRepository);
+        ReflectionTestUtils.setField(listener, "workflowVersionRepository", workflowVersionRepository);
+
+        ProcessEngineConfigurationImpl processEngineConfiguration = mock(ProcessEngineConfigurationImpl.class);
+        ExpressionManager expressionManager = mock(ExpressionManager.class);
+        when(expressionManager.createExpression(anyString())).thenReturn(mock(Expression.class));
+        when(processEngineConfiguration.getExpressionManager()).thenReturn(expressionManager);
+        Context.setProcessEngineConfiguration(processEngineConfiguration);
+
+        CommandContext commandContext = mock(CommandContext.class);
+        when(commandContext.getDeploymentManager()).thenReturn(deploymentManager);
+        Context.setCommandContext(commandContext);
+
+        deployment.setId("d1");
+        when(deploymentManager.findDeploymentById("d1")).thenReturn(deployment);
+        processDefinition = new ProcessDefinitionEntity();
+        processDefinition.setDeploymentId("d1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        Context.removeCommandContext();
+        Context.removeProcessEngineConfiguration();
+    }
+
+    private static Element element(String name, String text) {
+        Element element = new Element(null, name, name, null);
+        if (text != null) {
+            element.appendText(text);
+        }
+        return element;
+    }
+
+    /* Parses a gateway with the given outgoing flows the way the engine does: the gateway first, then its flows */
+    private List<TransitionImpl> parseGateway(String... flowIds) {
+        ActivityImpl gateway = processDefinition.createActivity(flowIds[0] + "Gateway");
+        Element gatewayElement = element("exclusiveGateway", null);
+        for (String flowId : flowIds) {
+            gatewayElement.add(element("outgoing", flowId));
+        }
+        listener.parseExclusiveGateway(gatewayElement, processDefinition, gateway);
+        List<TransitionImpl> transitions = new ArrayList<>();
+        for (String flowId : flowIds) {
+            TransitionImpl transition = gateway.createOutgoingTransition(flowId);
+            transition.setDestination(processDefinition.createActivity(flowId + "Target"));
+            listener.parseSequenceFlow(element("sequenceFlow", null), processDefinition, transition);
+            transitions.add(transition);
+        }
+        return transitions;
+    }
+
+    @Test
+    void parseExclusiveGateway_WorkflowDeployment_AttachesInputConditions() {
+        // Arrange
+        deployment.setSource(WorkflowService.DEPLOYMENT_SOURCE);
+
+        // Act
+        List<TransitionImpl> transitions = parseGateway("first", "second");
+
+        // Assert
+        assertEquals("${input == 0}", transitions.get(0).getProperty(BpmnParse.PROPERTYNAME_CONDITION_TEXT));
+        assertEquals("${input == 1}", transitions.get(1).getProperty(BpmnParse.PROPERTYNAME_CONDITION_TEXT));
+        assertTrue(transitions.get(1).getProperty(BpmnParse.PROPERTYNAME_CONDITION) instanceof InputIndexCondition);
+        assertTrue(transitions.get(0).getSource().getActivityBehavior() instanceof InputGatewayActivityBehavior);
+        verifyNoInteractions(workflowRepository, workflowVersionRepository);
+    }
+
+    @Test
+    void parseExclusiveGateway_OtherDeployment_ParsedAsModeled() {
+        // Arrange
+        deployment.setSource("process application");
+
+        // Act
+        List<TransitionImpl> transitions = parseGateway("first", "second");
+
+        // Assert
+        assertNull(transitions.get(0).getProperty(BpmnParse.PROPERTYNAME_CONDITION));
+        assertNull(transitions.get(1).getProperty(BpmnParse.PROPERTYNAME_CONDITION_TEXT));
+        assertFalse(transitions.get(0).getSource().getActivityBehavior() instanceof InputGatewayActivityBehavior);
+    }
+
+    @Test
+    void parseExclusiveGateway_WorkflowDeploymentWithoutSource_RecognizedFromVersions() {
+        // Arrange
+        when(workflowVersionRepository.existsByDeploymentId("d1")).thenReturn(true);
+
+        // Act
+        List<TransitionImpl> transitions = parseGateway("first", "second");
+        parseGateway("third", "fourth");
+
+        // Assert
+        assertEquals("${input == 0}", transitions.get(0).getProperty(BpmnParse.PROPERTYNAME_CONDITION_TEXT));
+        // Looked up once per process definition
+        verify(workflowVersionRepository, times(1)).existsByDeploymentId("d1");
+    }
+
+    @Test
+    void parseEndEvent_LegacyCompletionListener_Removed() {
+        // Arrange
+        ActivityImpl endEvent = processDefinition.createActivity("end");
+        ExecutionListener other = mock(ExecutionListener.class);
+        endEvent.addListener(ExecutionListener.EVENTNAME_END, new ClassDelegateExecutionListener(
+                WorkflowDefaultsParseListener.LEGACY_COMPLETION_LISTENER, Collections.emptyList()));
+        endEvent.addListener(ExecutionListener.EVENTNAME_END, other);
+
+        // Act
+        listener.parseEndEvent(element("endEvent", null), processDefinition, endEvent);
+
+        // Assert
+        assertEquals(Collections.singletonList(other), endEvent.getListeners(ExecutionListener.EVENTNAME_END));
+    }
+}
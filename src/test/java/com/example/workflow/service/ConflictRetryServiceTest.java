@@ -0,0 +1,88 @@
+package com.example.workflow.service;
+
+import com.example.workflow.dto.ConflictStatsDto;
+import com.example.workflow.exception.ConcurrentUpdateException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.camunda.bpm.engine.OptimisticLockingException;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.repository.ProcessDefinition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConflictRetryServiceTest {
+
+    private final RepositoryService repositoryService = mock(RepositoryService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConflictRetryService conflictRetryService = new ConflictRetryService(repositoryService, meterRegistry);
+
+    @BeforeEach
+    void setUp() {
+        ProcessDefinition processDefinition = mock(ProcessDefinition.class);
+        when(processDefinition.getKey()).thenReturn("order");
+        when(repositoryService.getProcessDefinition("order:1:1")).thenReturn(processDefinition);
+
+        ReflectionTestUtils.setField(conflictRetryService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(conflictRetryService, "backoffMs", 1L);
+        ReflectionTestUtils.setField(conflictRetryService, "maxBackoffMs", 2L);
+    }
+
+    @Test
+    void execute_ConflictThenSuccess_RetriesAndCounts() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act
+        String result = conflictRetryService.execute("order:1:1", "approve", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new RuntimeException(new OptimisticLockingException("conflict"));
+            }
+            return "done";
+        });
+
+        // Assert
+        assertEquals("done", result);
+        assertEquals(3, calls.get());
+        ConflictStatsDto stats = conflictRetryService.getConflicts().get(0);
+        assertEquals("order", stats.getProcessDefinitionKey());
+        assertEquals("approve", stats.getActivityId());
+        assertEquals(2, stats.getConflicts());
+        assertEquals(2, stats.getRetried());
+        assertEquals(0, stats.getExhausted());
+        assertEquals(2.0, meterRegistry.get("engine.conflicts").tag("outcome", "retried").counter().count());
+    }
+
+    @Test
+    void execute_ConflictOnEveryAttempt_ThrowsConcurrentUpdate() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act & Assert
+        assertThrows(ConcurrentUpdateException.class, () -> conflictRetryService.run("order:1:1", "approve", () -> {
+            calls.incrementAndGet();
+            throw new OptimisticLockingException("conflict");
+        }));
+        assertEquals(3, calls.get());
+        assertEquals(1, conflictRetryService.getConflicts().get(0).getExhausted());
+    }
+
+    @Test
+    void execute_OtherException_ThrowsWithoutRetry() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> conflictRetryService.run(null, null, () -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("broken");
+        }));
+        assertEquals(1, calls.get());
+        assertTrue(conflictRetryService.getConflicts().isEmpty());
+    }
+}
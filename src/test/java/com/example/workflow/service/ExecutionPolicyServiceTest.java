@@ -0,0 +1,102 @@
+package com.example.workflow.service;
+
+import com.example.workflow.payload.request.ExecutionPolicyRule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.instance.SendTask;
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.camunda.bpm.model.bpmn.instance.UserTask;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionPolicyServiceTest {
+
+    private final ExecutionPolicyService executionPolicyService = new ExecutionPolicyService(new ObjectMapper());
+
+    private static BpmnModelInstance model() {
+        return Bpmn.createExecutableProcess("p")
+                .startEvent()
+                .userTask("review")
+                .serviceTask("book").camundaDelegateExpression("#{defaultCamundaDelegateClass}")
+                .sendTask("notify").camundaDelegateExpression("${defaultSendMailDelegateClass}")
+                .endEvent()
+                .done();
+    }
+
+    @Test
+    void apply_ServiceTaskRule_OnlyMarksServiceTasks() {
+        // Arrange
+        BpmnModelInstance modelInstance = model();
+        String policy = executionPolicyService.write(Collections.singletonList(
+                new ExecutionPolicyRule("SERVICE_TASK", null, true, null, false, "10", null)));
+
+        // Act
+        executionPolicyService.apply(modelInstance, policy);
+
+        // Assert
+        ServiceTask serviceTask = modelInstance.getModelElementById("book");
+        assertTrue(serviceTask.isCamundaAsyncBefore());
+        assertFalse(serviceTask.isCamundaAsyncAfter());
+        assertFalse(serviceTask.isCamundaExclusive());
+        assertEquals("10", serviceTask.getCamundaJobPriority());
+        SendTask sendTask = modelInstance.getModelElementById("notify");
+        assertFalse(sendTask.isCamundaAsyncBefore());
+        UserTask userTask = modelInstance.getModelElementById("review");
+        assertFalse(userTask.isCamundaAsyncBefore());
+    }
+
+    @Test
+    void apply_ExternalTopicForChosenTask_TurnsOnlyThatTaskExternal() {
+        // Arrange
+        BpmnModelInstance modelInstance = Bpmn.createExecutableProcess("p")
+                .startEvent()
+                .serviceTask("book").camundaDelegateExpression("#{defaultCamundaDelegateClass}")
+                .serviceTask("pay").camundaDelegateExpression("#{defaultCamundaDelegateClass}")
+                .endEvent()
+                .done();
+        String policy = executionPolicyService.write(Collections.singletonList(
+                new ExecutionPolicyRule("SERVICE_TASK", Collections.singletonList("book"), null, null, null, null, "booking")));
+
+        // Act
+        executionPolicyService.apply(modelInstance, policy);
+
+        // Assert
+        ServiceTask book = modelInstance.getModelElementById("book");
+        assertEquals("external", book.getCamundaType());
+        assertEquals("booking", book.getCamundaTopic());
+        assertNull(book.getCamundaDelegateExpression());
+        ServiceTask pay = modelInstance.getModelElementById("pay");
+        assertNull(pay.getCamundaType());
+        assertEquals("#{defaultCamundaDelegateClass}", pay.getCamundaDelegateExpression());
+        // The result must still deploy, i.e. validate against the schema
+        Bpmn.validateModel(modelInstance);
+    }
+
+    @Test
+    void apply_NoPolicy_LeavesModelUnchanged() {
+        // Arrange
+        BpmnModelInstance modelInstance = model();
+        String before = Bpmn.convertToString(modelInstance);
+
+        // Act
+        executionPolicyService.apply(modelInstance, null);
+
+        // Assert
+        assertEquals(before, Bpmn.convertToString(modelInstance));
+    }
+
+    @Test
+    void write_InvalidRules_Throws() {
+        // Assert
+        assertThrows(IllegalArgumentException.class, () -> executionPolicyService.write(Collections.singletonList(
+                new ExecutionPolicyRule("TIMER", null, true, null, null, null, null))));
+        assertThrows(IllegalArgumentException.class, () -> executionPolicyService.write(Collections.singletonList(
+                new ExecutionPolicyRule("SEND_TASK", null, null, null, null, null, "mail"))));
+        assertThrows(IllegalArgumentException.class, () -> executionPolicyService.write(Collections.singletonList(
+                new ExecutionPolicyRule("SEND_TASK", null, true, null, null, "high", null))));
+    }
+}
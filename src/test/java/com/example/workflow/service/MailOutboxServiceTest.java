@@ -0,0 +1,232 @@
+package com.example.workflow.service;
+
+import com.example.workflow.entity.MailOutboxMessage;
+import com.example.workflow.repository.MailOutboxMessageRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.mail.internet.MimeMessage;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MailOutboxServiceTest {
+
+    @RegisterExtension
+    static final GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private MailOutboxMessageRepository mailOutboxMessageRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private MailOutboxService mailOutboxService;
+
+    @BeforeEach
+    void setUp() {
+        mailOutboxMessageRepository = mock(MailOutboxMessageRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        mailOutboxService = newService(smtpSender(ServerSetupTest.SMTP.getPort()));
+        when(mailOutboxMessageRepository.claim(anyString(), eq(MailOutboxService.PENDING), eq(MailOutboxService.SENDING), any(Date.class)))
+                .thenReturn(1);
+    }
+
+    private MailOutboxService newService(JavaMailSender javaMailSender) {
+        MailOutboxService service = new MailOutboxService(javaMailSender, meterRegistry);
+        ReflectionTestUtils.setField(service, "mailOutboxMessageRepository", mailOutboxMessageRepository);
+        ReflectionTestUtils.setField(service, "batchSize", 10);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "backoffMs", 1000L);
+        ReflectionTestUtils.setField(service, "claimTimeoutMs", 600000L);
+        return service;
+    }
+
+    private static JavaMailSenderImpl smtpSender(int port) {
+        JavaMailSenderImpl javaMailSender = new JavaMailSenderImpl();
+        javaMailSender.setHost("localhost");
+        javaMailSender.setPort(port);
+        javaMailSender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "2000");
+        javaMailSender.getJavaMailProperties().put("mail.smtp.timeout", "2000");
+        return javaMailSender;
+    }
+
+    private static int closedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private MailOutboxMessage due(String id, int attempts) {
+        MailOutboxMessage message = new MailOutboxMessage();
+        message.setId(id);
+        message.setRecipient(id + "@example.com");
+        message.setSubject("Task " + id);
+        message.setBody("The task '" + id + "' has been reached.");
+        message.setStatus(MailOutboxService.PENDING);
+        message.setAttempts(attempts);
+        message.setNextAttemptAt(new Date(0));
+        when(mailOutboxMessageRepository.findById(id)).thenReturn(Optional.of(message));
+        return message;
+    }
+
+    @Test
+    void dispatch_DueMessages_DeliveredOverSmtpAndMarkedSent() throws Exception {
+        // Arrange
+        MailOutboxMessage first = due("a", 0);
+        MailOutboxMessage second = due("b", 0);
+        when(mailOutboxMessageRepository.findDueIds(eq(MailOutboxService.PENDING), any(Date.class), any()))
+                .thenReturn(Arrays.asList("a", "b"));
+
+        // Act
+        mailOutboxService.dispatch();
+
+        // Assert
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(2, received.length);
+        assertEquals("Task a", received[0].getSubject());
+        assertEquals("b@example.com", received[1].getAllRecipients()[0].toString());
+        assertEquals(MailOutboxService.SENT, first.getStatus());
+        assertEquals(MailOutboxService.SENT, second.getStatus());
+        assertNotNull(first.getSentAt());
+        assertEquals(2.0, meterRegistry.counter("mail.outbox.sent").count());
+    }
+
+    @Test
+    void dispatch_ServerUnreachable_MessageRetriedLater() throws Exception {
+        // Arrange
+        mailOutboxService = newService(smtpSender(closedPort()));
+        MailOutboxMessage message = due("a", 0);
+        when(mailOutboxMessageRepository.findDueIds(eq(MailOutboxService.PENDING), any(Date.class), any()))
+                .thenReturn(Collections.singletonList("a"));
+
+        // Act
+        long before = System.currentTimeMillis();
+        mailOutboxService.dispatch();
+
+        // Assert
+        assertEquals(MailOutboxService.PENDING, message.getStatus());
+        assertEquals(1, message.getAttempts());
+        assertNotNull(message.getLastError());
+        assertTrue(message.getNextAttemptAt().getTime() >= before + 1000);
+        assertEquals(1.0, meterRegistry.counter("mail.outbox.retried").count());
+    }
+
+    @Test
+    void dispatch_LastAttemptFails_MessageMarkedFailed() throws Exception {
+        // Arrange
+        mailOutboxService = newService(smtpSender(closedPort()));
+        MailOutboxMessage message = due("a", 2);
+        when(mailOutboxMessageRepository.findDueIds(eq(MailOutboxService.PENDING), any(Date.class), any()))
+                .thenReturn(Collections.singletonList("a"));
+
+        // Act
+        mailOutboxService.dispatch();
+
+        // Assert
+        assertEquals(MailOutboxService.FAILED, message.getStatus());
+        assertEquals(3, message.getAttempts());
+        assertEquals(0, greenMail.getReceivedMessages().length);
+        assertEquals(1.0, meterRegistry.counter("mail.outbox.failed").count());
+    }
+
+    @Test
+    void dispatch_OneMessageRejected_OnlyThatMessageRetriedLater() {
+        // Arrange
+        JavaMailSender javaMailSender = mock(JavaMailSender.class);
+        mailOutboxService = newService(javaMailSender);
+        MailOutboxMessage first = due("a", 0);
+        MailOutboxMessage second = due("b", 0);
+        when(mailOutboxMessageRepository.findDueIds(eq(MailOutboxService.PENDING), any(Date.class), any()))
+                .thenReturn(Arrays.asList("a", "b"));
+        // The sender reports a recipient refused by the server as a failure of that message only
+        doAnswer(invocation -> {
+            Map<Object, Exception> failed = new LinkedHashMap<>();
+            failed.put(invocation.getArgument(1, SimpleMailMessage.class), new IllegalStateException("Mailbox unavailable"));
+            throw new MailSendException(failed);
+        }).when(javaMailSender).send(any(SimpleMailMessage.class), any(SimpleMailMessage.class));
+
+        // Act
+        mailOutboxService.dispatch();
+
+        // Assert
+        assertEquals(MailOutboxService.SENT, first.getStatus());
+        assertEquals(MailOutboxService.PENDING, second.getStatus());
+        assertEquals("Mailbox unavailable", second.getLastError());
+    }
+
+    @Test
+    void dispatch_EqualMessagesOneRejected_OnlyThatMessageRetriedLater() {
+        // Arrange
+        JavaMailSender javaMailSender = mock(JavaMailSender.class);
+        mailOutboxService = newService(javaMailSender);
+        MailOutboxMessage first = due("a", 0);
+        MailOutboxMessage second = due("b", 0);
+        // The same notification queued twice, e.g. for two tasks with the same name
+        second.setRecipient(first.getRecipient());
+        second.setSubject(first.getSubject());
+        second.setBody(first.getBody());
+        when(mailOutboxMessageRepository.findDueIds(eq(MailOutboxService.PENDING), any(Date.class), any()))
+                .thenReturn(Arrays.asList("a", "b"));
+        doAnswer(invocation -> {
+            Map<Object, Exception> failed = new LinkedHashMap<>();
+            failed.put(invocation.getArgument(1, SimpleMailMessage.class), new IllegalStateException("Mailbox unavailable"));
+            throw new MailSendException(failed);
+        }).when(javaMailSender).send(any(SimpleMailMessage.class), any(SimpleMailMessage.class));
+
+        // Act
+        mailOutboxService.dispatch();
+
+        // Assert
+        assertEquals(MailOutboxService.SENT, first.getStatus());
+        assertEquals(MailOutboxService.PENDING, second.getStatus());
+        assertEquals(1, second.getAttempts());
+    }
+
+    @Test
+    void dispatch_StaleClaims_RequeuedBeforeSending() {
+        // Arrange
+        when(mailOutboxMessageRepository.findDueIds(eq(MailOutboxService.PENDING), any(Date.class), any()))
+                .thenReturn(Collections.emptyList());
+
+        // Act
+        long before = System.currentTimeMillis();
+        mailOutboxService.dispatch();
+
+        // Assert
+        verify(mailOutboxMessageRepository).updateStaleClaims(eq(MailOutboxService.SENDING), eq(MailOutboxService.PENDING),
+                argThat(claimedBefore -> claimedBefore.getTime() <= before - 600000 + 1000
+                        && claimedBefore.getTime() >= before - 600000));
+    }
+
+    @Test
+    void enqueue_SameDedupKeyTwice_QueuedOnce() {
+        // Arrange
+        when(mailOutboxMessageRepository.existsByDedupKey("pi:act")).thenReturn(false, true);
+
+        // Act
+        boolean first = mailOutboxService.enqueue("pi:act", "to@example.com", "Task", "Body");
+        boolean second = mailOutboxService.enqueue("pi:act", "to@example.com", "Task", "Body");
+
+        // Assert
+        assertTrue(first);
+        assertFalse(second);
+        verify(mailOutboxMessageRepository, times(1)).save(any(MailOutboxMessage.class));
+    }
+}
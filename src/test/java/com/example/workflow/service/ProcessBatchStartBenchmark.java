@@ -0,0 +1,138 @@
+package com.example.workflow.service;
+
+import com.example.workflow.payload.request.ProcessStartRequest;
+import com.example.workflow.payload.response.BatchStartResponse;
+import com.example.workflow.repository.WorkflowRepository;
+import com.example.workflow.service.ProcessDefinitionLookupCache.ProcessStartTarget;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.ProcessEngineConfiguration;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.cfg.StandaloneInMemProcessEngineConfiguration;
+import org.camunda.bpm.engine.runtime.ProcessInstance;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Starts 10,000 process instances of a single user task process per invocation, once through
+ * ProcessBatchStartService and once one by one with a single insert of the WorkflowProcessInstance row
+ * after each start, like the single start endpoint. Both run against an in-memory H2 engine with full history
+ * and share its connection pool, so the numbers compare the two paths rather than predict MySQL throughput.
+ * Not run by the test phase; start it with main from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProcessBatchStartBenchmark {
+
+    private static final int STARTS = 10000;
+
+    private static final String INSERT_WORKFLOW_PROCESS_INSTANCE =
+            "insert into workflow_process_instance (id, process_instance_id, process_name, workflow_id, status) values (?, ?, ?, ?, ?)";
+
+    @Param({"1", "4"})
+    private int threads;
+
+    private ProcessEngine processEngine;
+    private JdbcTemplate jdbcTemplate;
+    private ProcessDefinitionLookupCache processDefinitionLookupCache;
+    private ProcessBatchStartService processBatchStartService;
+    private String deploymentId;
+    private List<ProcessStartRequest> requests;
+
+    @Setup
+    public void setUp() {
+        ProcessEngineConfigurationImpl configuration = new StandaloneInMemProcessEngineConfiguration();
+        configuration.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=1000");
+        configuration.setDatabaseSchemaUpdate(ProcessEngineConfiguration.DB_SCHEMA_UPDATE_CREATE_DROP);
+        configuration.setHistory(ProcessEngineConfiguration.HISTORY_FULL);
+        configuration.setJdbcMaxActiveConnections(threads + 2);
+        processEngine = configuration.buildProcessEngine();
+
+        jdbcTemplate = new JdbcTemplate(configuration.getDataSource());
+        jdbcTemplate.execute("create table workflow_process_instance (id varchar(64) primary key, "
+                + "process_instance_id varchar(64), process_name varchar(255), workflow_id varchar(255), status varchar(255))");
+
+        deploymentId = processEngine.getRepositoryService().createDeployment()
+                .addModelInstance("review.bpmn", Bpmn.createExecutableProcess("review")
+                        .name("Review")
+                        .startEvent()
+                        .userTask("check")
+                        .endEvent()
+                        .done())
+                .deploy()
+                .getId();
+
+        processDefinitionLookupCache = new ProcessDefinitionLookupCache(processEngine.getRepositoryService());
+        ReflectionTestUtils.setField(processDefinitionLookupCache, "workflowRepository", mock(WorkflowRepository.class));
+
+        processBatchStartService = new ProcessBatchStartService(processEngine.getRuntimeService(), jdbcTemplate);
+        ReflectionTestUtils.setField(processBatchStartService, "processDefinitionLookupCache", processDefinitionLookupCache);
+        ReflectionTestUtils.setField(processBatchStartService, "chunkSize", 200);
+        ReflectionTestUtils.setField(processBatchStartService, "threads", threads);
+        ReflectionTestUtils.setField(processBatchStartService, "maxRequests", STARTS);
+        processBatchStartService.init();
+
+        requests = new ArrayList<>(STARTS);
+        for (int i = 0; i < STARTS; i++) {
+            requests.add(new ProcessStartRequest(deploymentId, "order-" + i, Collections.singletonMap("amount", i)));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        processBatchStartService.shutdown();
+        processEngine.close();
+    }
+
+    @Benchmark
+    public BatchStartResponse batchStart() {
+        return processBatchStartService.startProcesses(requests);
+    }
+
+    @Benchmark
+    public int oneByOne() {
+        int started = 0;
+        for (ProcessStartRequest request : requests) {
+            ProcessStartTarget target = processDefinitionLookupCache.get(request.getDeploymentId());
+            ProcessInstance processInstance = processEngine.getRuntimeService().startProcessInstanceById(
+                    target.getProcessDefinitionId(), request.getBusinessKey(), request.getVariables());
+            started += jdbcTemplate.update(INSERT_WORKFLOW_PROCESS_INSTANCE, processInstance.getId(),
+                    processInstance.getProcessInstanceId(), target.getProcessName(), target.getWorkflowId(),
+                    ProcessService.initialStatus(processInstance));
+        }
+        return started;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProcessBatchStartBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
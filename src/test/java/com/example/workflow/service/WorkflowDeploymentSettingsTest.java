@@ -0,0 +1,69 @@
+package com.example.workflow.service;
+
+import com.example.workflow.payload.request.ExecutionPolicyRule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.instance.ServiceTask;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkflowDeploymentSettingsTest {
+
+    private final ExecutionPolicyService executionPolicyService = new ExecutionPolicyService(new ObjectMapper());
+    private final WorkflowDeploymentSettings workflowDeploymentSettings = new WorkflowDeploymentSettings();
+    private String xmlContent;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(workflowDeploymentSettings, "executionPolicyService", executionPolicyService);
+        xmlContent = Bpmn.convertToString(Bpmn.createExecutableProcess("p")
+                .startEvent()
+                .serviceTask("book").camundaDelegateExpression("#{defaultCamundaDelegateClass}")
+                .endEvent()
+                .done());
+    }
+
+    private static ServiceTask book(String xmlContent) {
+        BpmnModelInstance modelInstance = Bpmn.readModelFromStream(
+                new ByteArrayInputStream(xmlContent.getBytes(StandardCharsets.UTF_8)));
+        return modelInstance.getModelElementById("book");
+    }
+
+    @Test
+    void deploymentXml_PolicyRemoved_DeploysModeledAttributes() {
+        // Arrange
+        String policy = executionPolicyService.write(Collections.singletonList(
+                new ExecutionPolicyRule("SERVICE_TASK", null, true, null, false, "10", "booking")));
+        String withPolicy = workflowDeploymentSettings.deploymentXml(xmlContent, 30, 5L, policy);
+
+        // Act
+        String withoutPolicy = workflowDeploymentSettings.deploymentXml(xmlContent, null, null, null);
+
+        // Assert
+        ServiceTask deployed = book(withPolicy);
+        assertTrue(deployed.isCamundaAsyncBefore());
+        assertEquals("external", deployed.getCamundaType());
+        assertEquals("10", deployed.getCamundaJobPriority());
+        // The stored XML is never changed, so the next deployment starts from the model again
+        assertSame(xmlContent, withoutPolicy);
+        ServiceTask modeled = book(withoutPolicy);
+        assertFalse(modeled.isCamundaAsyncBefore());
+        assertNull(modeled.getCamundaType());
+        assertEquals("#{defaultCamundaDelegateClass}", modeled.getCamundaDelegateExpression());
+    }
+
+    @Test
+    void deploymentXml_NegativeHistoryTimeToLive_Throws() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> workflowDeploymentSettings.deploymentXml(xmlContent, -1, null, null));
+    }
+}
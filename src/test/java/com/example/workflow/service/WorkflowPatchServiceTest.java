@@ -0,0 +1,192 @@
+package com.example.workflow.service;
+
+import com.example.workflow.entity.Workflow;
+import com.example.workflow.payload.request.ElementOperationRequest;
+import com.example.workflow.payload.request.ElementOperationRequest.Operation;
+import com.example.workflow.repository.WorkflowRepository;
+import org.camunda.bpm.engine.RepositoryService;
+import org.camunda.bpm.engine.repository.DeploymentBuilder;
+import org.camunda.bpm.engine.repository.DeploymentWithDefinitions;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.instance.FlowElement;
+import org.camunda.bpm.model.bpmn.instance.UserTask;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class WorkflowPatchServiceTest {
+
+    private final RepositoryService repositoryService = mock(RepositoryService.class);
+    private final WorkflowRepository workflowRepository = mock(WorkflowRepository.class);
+    private final WorkflowVersionService workflowVersionService = mock(WorkflowVersionService.class);
+    private final BpmnModelCache bpmnModelCache = new BpmnModelCache();
+    private final DeploymentBuilder deploymentBuilder = mock(DeploymentBuilder.class, RETURNS_SELF);
+    private final WorkflowPatchService workflowPatchService = new WorkflowPatchService(repositoryService);
+    private Workflow workflow;
+
+    @BeforeEach
+    void setUp() {
+        BpmnModelInstance modelInstance = Bpmn.createExecutableProcess("p")
+                .startEvent()
+                .userTask("review").name("Review")
+                .endEvent()
+                .done();
+        workflow = new Workflow();
+        workflow.setId("w1");
+        workflow.setName("wf");
+        workflow.setXmlName("wf.bpmn");
+        workflow.setDeploymentId("d1");
+        workflow.setXmlContent(Bpmn.convertToString(modelInstance));
+        when(workflowRepository.findById("w1")).thenReturn(Optional.of(workflow));
+
+        DeploymentWithDefinitions deployment = mock(DeploymentWithDefinitions.class);
+        when(deployment.getId()).thenReturn("d2");
+        when(deploymentBuilder.deploy()).thenReturn(deployment);
+        when(repositoryService.createDeployment()).thenReturn(deploymentBuilder);
+
+        ReflectionTestUtils.setField(workflowPatchService, "workflowRepository", workflowRepository);
+        ReflectionTestUtils.setField(workflowPatchService, "workflowVersionService", workflowVersionService);
+        ReflectionTestUtils.setField(workflowPatchService, "bpmnModelCache", bpmnModelCache);
+        ReflectionTestUtils.setField(workflowPatchService, "processDefinitionLookupCache", mock(ProcessDefinitionLookupCache.class));
+        ReflectionTestUtils.setField(workflowPatchService, "workflowMigrationService", mock(WorkflowMigrationService.class));
+        ReflectionTestUtils.setField(workflowPatchService, "workflowDeploymentSettings", new WorkflowDeploymentSettings());
+        ReflectionTestUtils.setField(workflowPatchService, "deployDelayMs", 100L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        workflowPatchService.shutdown();
+    }
+
+    private static ElementOperationRequest rename(String elementId, String name) {
+        return new ElementOperationRequest(Operation.RENAME, elementId, null, name, null, null, null);
+    }
+
+    private String cachedName(String elementId) {
+        return ((FlowElement) bpmnModelCache.getIfPresent("w1").getModelElementById(elementId)).getName();
+    }
+
+    @Test
+    void patchElements_InvalidOperation_LeavesModelUntouched() {
+        // Arrange
+        ElementOperationRequest condition = new ElementOperationRequest(Operation.SET_CONDITION, "review", null, "${true}", null, null, null);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> workflowPatchService.patchElements("w1", Arrays.asList(rename("review", "Check"), condition)));
+        assertThrows(IllegalArgumentException.class,
+                () -> workflowPatchService.patchElements("w1", Collections.singletonList(rename("missing", "Check"))));
+        assertEquals("Review", cachedName("review"));
+        workflowPatchService.flush("w1");
+        verify(repositoryService, never()).createDeployment();
+    }
+
+    @Test
+    void patchElements_ApplyFails_KeepsEarlierPatches() {
+        // Arrange
+        workflowPatchService.patchElements("w1", Collections.singletonList(rename("review", "Check")));
+        // Passes validation, but is not a valid XML attribute name
+        ElementOperationRequest badAttribute = new ElementOperationRequest(Operation.SET_ATTRIBUTE, "review", "1bad", "x", null, null, null);
+
+        // Act
+        assertThrows(RuntimeException.class,
+                () -> workflowPatchService.patchElements("w1", Arrays.asList(rename("review", "Approve"), badAttribute)));
+
+        // Assert
+        assertEquals("Check", cachedName("review"));
+    }
+
+    @Test
+    void patchElements_ApplyFails_UndoesOperationsOfSameRequest() {
+        // Arrange
+        ElementOperationRequest listener = new ElementOperationRequest(Operation.ADD_LISTENER, "review", null, null,
+                "start", "com.example.Listener", null);
+        ElementOperationRequest badAttribute = new ElementOperationRequest(Operation.SET_ATTRIBUTE, "review", "1bad", "x", null, null, null);
+
+        // Act
+        assertThrows(RuntimeException.class,
+                () -> workflowPatchService.patchElements("w1", Arrays.asList(listener, rename("review", "Approve"), badAttribute)));
+
+        // Assert
+        UserTask review = bpmnModelCache.getIfPresent("w1").getModelElementById("review");
+        assertNull(review.getExtensionElements());
+        assertEquals("Review", review.getName());
+        assertEquals(0, bpmnModelCache.revision("w1"));
+    }
+
+    @Test
+    void patchElements_ModelCached_WorkflowReadOnce() {
+        // Act
+        workflowPatchService.patchElements("w1", Collections.singletonList(rename("review", "Check")));
+        workflowPatchService.patchElements("w1", Collections.singletonList(rename("review", "Approve")));
+
+        // Assert
+        verify(workflowRepository, times(1)).findById("w1");
+        assertEquals("Approve", cachedName("review"));
+        assertEquals(2, bpmnModelCache.revision("w1"));
+    }
+
+    @Test
+    void patchElements_CloseTogether_ShareOneDeployment() {
+        // Arrange
+        when(workflowRepository.updateDeployment(eq("w1"), eq("d1"), anyString(), eq("d2"))).thenReturn(1);
+
+        // Act
+        workflowPatchService.patchElements("w1", Collections.singletonList(rename("review", "Check")));
+        workflowPatchService.patchElements("w1", Collections.singletonList(
+                new ElementOperationRequest(Operation.SET_ATTRIBUTE, "review", "camunda:assignee", "demo", null, null, null)));
+
+        // Assert
+        verify(workflowRepository, timeout(2000)).updateDeployment(eq("w1"), eq("d1"), anyString(), eq("d2"));
+        verify(repositoryService, after(300).times(1)).createDeployment();
+        ArgumentCaptor<String> xmlContent = ArgumentCaptor.forClass(String.class);
+        verify(deploymentBuilder).addString(eq("wf.bpmn"), xmlContent.capture());
+        assertTrue(xmlContent.getValue().contains("name=\"Check\""));
+        assertTrue(xmlContent.getValue().contains("camunda:assignee=\"demo\""));
+        verify(workflowVersionService).recordVersion(workflow);
+        assertEquals("d2", workflow.getDeploymentId());
+    }
+
+    @Test
+    void flush_PendingPatches_DeployedRightAway() {
+        // Arrange
+        when(workflowRepository.updateDeployment(eq("w1"), eq("d1"), anyString(), eq("d2"))).thenReturn(1);
+        workflowPatchService.patchElements("w1", Collections.singletonList(rename("review", "Check")));
+
+        // Act
+        workflowPatchService.flush("w1");
+
+        // Assert
+        verify(repositoryService).createDeployment();
+        verify(workflowVersionService).recordVersion(workflow);
+    }
+
+    @Test
+    void flush_WorkflowUpdatedConcurrently_DropsPatchedDeployment() {
+        // Arrange
+        when(workflowRepository.updateDeployment(any(), any(), any(), any())).thenReturn(0);
+        workflowPatchService.patchElements("w1", Collections.singletonList(rename("review", "Check")));
+
+        // Act
+        workflowPatchService.flush("w1");
+
+        // Assert
+        verify(repositoryService).deleteDeployment("d2", false);
+        verify(workflowVersionService, never()).recordVersion(any());
+        assertNull(bpmnModelCache.getIfPresent("w1"));
+        assertEquals("d1", workflow.getDeploymentId());
+    }
+}
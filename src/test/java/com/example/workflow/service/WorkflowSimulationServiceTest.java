@@ -0,0 +1,106 @@
+package com.example.workflow.service;
+
+import com.example.workflow.dto.BranchCoverageDto;
+import com.example.workflow.dto.SimulatedUserTaskDto;
+import com.example.workflow.dto.SimulationEstimateDto;
+import com.example.workflow.dto.SimulationResultDto;
+import com.example.workflow.entity.Workflow;
+import com.example.workflow.repository.WorkflowRepository;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WorkflowSimulationServiceTest {
+
+    private final WorkflowRepository workflowRepository = mock(WorkflowRepository.class);
+    private final WorkflowSimulationService workflowSimulationService = new WorkflowSimulationService();
+
+    @BeforeEach
+    void setUp() {
+        BpmnModelInstance modelInstance = Bpmn.createExecutableProcess("p")
+                .startEvent()
+                .userTask("review").camundaFormKey("reviewForm")
+                .exclusiveGateway("decision")
+                .userTask("approve").camundaFormKey("approveForm")
+                .endEvent("approved")
+                .moveToNode("decision")
+                .endEvent("rejected")
+                .done();
+        Workflow workflow = new Workflow();
+        workflow.setId("w1");
+        workflow.setXmlContent(Bpmn.convertToString(modelInstance));
+        when(workflowRepository.findById("w1")).thenReturn(Optional.of(workflow));
+
+        ReflectionTestUtils.setField(workflowSimulationService, "workflowRepository", workflowRepository);
+        ReflectionTestUtils.setField(workflowSimulationService, "bpmnModelCache", new BpmnModelCache());
+        ReflectionTestUtils.setField(workflowSimulationService, "maxSteps", 1000);
+        ReflectionTestUtils.setField(workflowSimulationService, "maxWalks", 10000);
+        ReflectionTestUtils.setField(workflowSimulationService, "threads", 2);
+        workflowSimulationService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        workflowSimulationService.shutdown();
+    }
+
+    @Test
+    void simulate_InputOfFirstFlow_VisitsItsUserTasks() {
+        // Act
+        SimulationResultDto result = workflowSimulationService.simulate("w1", Collections.singletonList(0)).get();
+
+        // Assert
+        assertTrue(result.isCompleted());
+        assertEquals(Arrays.asList("review", "approve"),
+                result.getUserTasks().stream().map(SimulatedUserTaskDto::getId).collect(Collectors.toList()));
+        assertEquals("approveForm", result.getUserTasks().get(1).getFormKey());
+        assertTrue(result.getPath().contains("approved"));
+        assertEquals(0, result.getUnusedInputs());
+    }
+
+    @Test
+    void simulate_MissingOrUnknownInput_ReportsDeadEnd() {
+        // Act
+        SimulationResultDto withoutInput = workflowSimulationService.simulate("w1", Collections.emptyList()).get();
+        SimulationResultDto unknownInput = workflowSimulationService.simulate("w1", Arrays.asList(5, 1)).get();
+
+        // Assert
+        assertFalse(withoutInput.isCompleted());
+        assertEquals("decision", withoutInput.getDeadEnds().get(0).getElementId());
+        assertFalse(unknownInput.isCompleted());
+        assertEquals(1, unknownInput.getUnusedInputs());
+    }
+
+    @Test
+    void estimate_RandomWalks_CoverBothBranches() {
+        // Act
+        SimulationEstimateDto estimate = workflowSimulationService.estimate("w1", 2000).get();
+
+        // Assert
+        assertEquals(2000, estimate.getWalks());
+        assertEquals(2000, estimate.getCompletedWalks());
+        assertEquals(1.0, estimate.getBranchCoverage());
+        assertEquals(2, estimate.getPaths().size());
+        for (BranchCoverageDto branch : estimate.getBranches()) {
+            assertEquals(0.5, branch.getProbability(), 0.1);
+        }
+    }
+
+    @Test
+    void estimate_TooManyWalks_Throws() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> workflowSimulationService.estimate("w1", 10001));
+    }
+}
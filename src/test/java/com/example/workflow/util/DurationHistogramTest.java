@@ -0,0 +1,49 @@
+package com.example.workflow.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DurationHistogramTest {
+
+    @Test
+    void getPercentile_UniformDurations_WithinTenPercent() {
+        // Arrange
+        DurationHistogram histogram = new DurationHistogram();
+        for (long duration = 1; duration <= 1000; duration++) {
+            histogram.record(duration);
+        }
+
+        // Act
+        long p95 = histogram.getPercentile(95);
+
+        // Assert
+        assertTrue(p95 >= 950 && p95 <= 1045, "p95 was " + p95);
+        assertEquals(500, histogram.getMean());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(1000, histogram.getCount());
+    }
+
+    @Test
+    void getPercentile_SingleDuration_ReturnsThatDuration() {
+        // Arrange
+        DurationHistogram histogram = new DurationHistogram();
+        histogram.record(42);
+
+        // Act
+        long p95 = histogram.getPercentile(95);
+
+        // Assert
+        assertEquals(42, p95);
+    }
+
+    @Test
+    void getPercentile_Empty_ReturnsZero() {
+        // Arrange
+        DurationHistogram histogram = new DurationHistogram();
+
+        // Act & Assert
+        assertEquals(0, histogram.getPercentile(95));
+        assertEquals(0, histogram.getMean());
+    }
+}
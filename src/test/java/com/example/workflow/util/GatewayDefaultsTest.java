@@ -0,0 +1,67 @@
+package com.example.workflow.util;
+
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.camunda.bpm.model.bpmn.instance.ExclusiveGateway;
+import org.camunda.bpm.model.bpmn.instance.SequenceFlow;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GatewayDefaultsTest {
+
+    private static SequenceFlow flow(BpmnModelInstance modelInstance, String id) {
+        return modelInstance.getModelElementById(id);
+    }
+
+    @Test
+    void effectiveCondition_GatewayFlows_IndexOrModeledCondition() {
+        // Arrange
+        BpmnModelInstance modelInstance = Bpmn.createExecutableProcess("p")
+                .startEvent()
+                .userTask("choose")
+                .exclusiveGateway("gateway")
+                .sequenceFlowId("first").userTask("a").endEvent()
+                .moveToNode("gateway").sequenceFlowId("second").userTask("b").endEvent()
+                .moveToNode("gateway").sequenceFlowId("modeled").condition("Approved", "${approved}").userTask("c").endEvent()
+                .done();
+
+        // Act & Assert
+        assertEquals("${input == 0}", GatewayDefaults.effectiveCondition(flow(modelInstance, "first")));
+        assertEquals("${input == 1}", GatewayDefaults.effectiveCondition(flow(modelInstance, "second")));
+        assertEquals("${approved}", GatewayDefaults.effectiveCondition(flow(modelInstance, "modeled")));
+    }
+
+    @Test
+    void effectiveCondition_DefaultFlow_NoCondition() {
+        // Arrange
+        BpmnModelInstance modelInstance = Bpmn.createExecutableProcess("p")
+                .startEvent()
+                .userTask("choose")
+                .exclusiveGateway("gateway")
+                .sequenceFlowId("first").userTask("a").endEvent()
+                .moveToNode("gateway").sequenceFlowId("fallback").userTask("b").endEvent()
+                .done();
+        ExclusiveGateway gateway = modelInstance.getModelElementById("gateway");
+        gateway.setDefault(flow(modelInstance, "fallback"));
+
+        // Act & Assert
+        assertNull(GatewayDefaults.effectiveCondition(flow(modelInstance, "fallback")));
+        assertEquals("${input == 0}", GatewayDefaults.effectiveCondition(flow(modelInstance, "first")));
+    }
+
+    @Test
+    void effectiveCondition_SingleFlowOrNoGateway_NoCondition() {
+        // Arrange
+        BpmnModelInstance modelInstance = Bpmn.createExecutableProcess("p")
+                .startEvent()
+                .sequenceFlowId("toTask").userTask("choose")
+                .exclusiveGateway("gateway")
+                .sequenceFlowId("only").endEvent()
+                .done();
+
+        // Act & Assert
+        assertNull(GatewayDefaults.effectiveCondition(flow(modelInstance, "only")));
+        assertNull(GatewayDefaults.effectiveCondition(flow(modelInstance, "toTask")));
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.workflow.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XmlDiffTest {
+
+    private static final String BASE = "<definitions>\n"
+            + "  <process id=\"p\">\n"
+            + "    <userTask id=\"t1\" name=\"Review\" />\n"
+            + "    <userTask id=\"t2\" name=\"Approve\" />\n"
+            + "  </process>\n"
+            + "</definitions>\n";
+
+    @Test
+    void diff_SingleLineChanged_DeltaOnlyHoldsChangedLine() {
+        // Arrange
+        String target = BASE.replace("name=\"Review\"", "name=\"Check\"");
+
+        // Act
+        String delta = XmlDiff.diff(BASE, target);
+
+        // Assert
+        assertEquals(target, XmlDiff.apply(BASE, delta));
+        assertTrue(delta.contains("name=\"Check\""));
+        assertFalse(delta.contains("Approve"));
+    }
+
+    @Test
+    void apply_InsertedAndRemovedLines_ReconstructsTarget() {
+        // Arrange
+        String target = "<definitions>\n"
+                + "  <process id=\"p\">\n"
+                + "    <userTask id=\"t2\" name=\"Approve\" />\n"
+                + "    <serviceTask id=\"s1\" />\n"
+                + "    <endEvent id=\"e1\" />\n"
+                + "  </process>\n"
+                + "</definitions>";
+
+        // Act
+        String delta = XmlDiff.diff(BASE, target);
+
+        // Assert
+        assertEquals(target, XmlDiff.apply(BASE, delta));
+    }
+
+    @Test
+    void diff_IdenticalTexts_ReconstructsBase() {
+        // Act
+        String delta = XmlDiff.diff(BASE, BASE);
+
+        // Assert
+        assertEquals(BASE, XmlDiff.apply(BASE, delta));
+        assertFalse(delta.contains("+"));
+    }
+
+    @Test
+    void decompress_CompressedText_ReturnsOriginal() {
+        // Act
+        byte[] compressed = XmlDiff.compress(BASE);
+
+        // Assert
+        assertEquals(BASE, XmlDiff.decompress(compressed));
+    }
+}